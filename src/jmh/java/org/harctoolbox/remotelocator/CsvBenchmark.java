@@ -0,0 +1,126 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks splitting the lines of the IRDB test corpus, and parsing their numbers,
+ * with CsvTokenizer, and with the recursive splitter it replaced.
+ * Time and allocation are per line; run with {@code -Djmh.arguments="CsvBenchmark -prof gc"} for the allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CsvBenchmark {
+
+    private static final String COMMA = ",";
+    private static final Pattern WHITESPACE_QUOTE_STUFF = Pattern.compile("\\s+\".*");
+
+    // The splitter as it was before CsvTokenizer.
+    private static LinkedList<String> legacySplitCSV(String input, String separator, int lineNumber) throws ParseException {
+        if (input.charAt(0) == ' ')
+            if (WHITESPACE_QUOTE_STUFF.matcher(input).matches())
+                return legacySplitCSV(input.trim(), separator, lineNumber);
+
+        String first;
+        int index;
+        LinkedList<String> result;
+        if (input.startsWith("\"")) {
+            int closingQuoteIndex = input.indexOf('"', 1);
+            if (closingQuoteIndex == -1)
+                throw new ParseException(input, lineNumber);
+            first = input.substring(1, closingQuoteIndex);
+            index = input.indexOf(separator, closingQuoteIndex);
+            result = index == -1 ? new LinkedList<>() : legacySplitCSV(input.substring(index + separator.length()), separator, lineNumber);
+        } else {
+            index = input.indexOf(separator);
+            if (index == -1) {
+                result = new LinkedList<>();
+                first = input;
+            } else {
+                result = legacySplitCSV(input.substring(index + separator.length()), separator, lineNumber);
+                first = input.substring(0, index);
+            }
+        }
+        result.addFirst(first);
+        return result;
+    }
+
+    private final List<String> lines = new ArrayList<>(1024);
+    private final CsvTokenizer tokenizer = new CsvTokenizer(COMMA);
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(ScrapBenchmark.corpus(ScrapKind.irdb).toPath())) {
+            files = stream.filter(path -> path.toString().endsWith(".csv")).sorted().collect(Collectors.toList());
+        }
+        for (Path path : files) {
+            List<String> fileLines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            lines.addAll(fileLines.subList(1, fileLines.size())); // first line is a header
+        }
+        if (lines.isEmpty())
+            throw new IOException("No lines in " + ScrapBenchmark.corpus(ScrapKind.irdb));
+    }
+
+    private String nextLine() {
+        String line = lines.get(next);
+        next = (next + 1) % lines.size();
+        return line;
+    }
+
+    @Benchmark
+    public long legacy() throws ParseException {
+        List<String> fields = legacySplitCSV(nextLine(), COMMA, 0);
+        return fields.get(0).length() + fields.get(1).length() + Long.parseLong(fields.get(2)) + Long.parseLong(fields.get(3)) + Long.parseLong(fields.get(4));
+    }
+
+    @Benchmark
+    public long tokenizer() throws ParseException {
+        tokenizer.split(nextLine(), 0);
+        return tokenizer.getString(0).length() + tokenizer.getString(1).length() + tokenizer.getLong(2) + tokenizer.getLong(3) + tokenizer.getLong(4);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.harctoolbox.girr.Command;
+import org.harctoolbox.girr.CommandSet;
+import org.harctoolbox.girr.GirrException;
+import org.harctoolbox.ircore.IrSequence;
+import org.harctoolbox.ircore.IrSignal;
+import org.harctoolbox.ircore.ModulatedIrSequence;
+import org.harctoolbox.ircore.OddSequenceLengthException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks parsing the Flipper test corpus, from memory, with FlipperParser,
+ * and with the line splitting it replaced (regex split into a HashMap per command).
+ * Time is per file; run with {@code -Djmh.arguments="FlipperBenchmark -prof gc"} for the allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FlipperBenchmark {
+
+    private static final Double DUMMY_ENDING_GAP = 50000.0;
+
+    // The parser loop as it was before the streaming FlipperParser.
+    private static CommandSet legacyParse(Reader r) throws IOException, ParseException, GirrException {
+        LineNumberReader reader = new LineNumberReader(r);
+        reader.readLine();
+        reader.readLine();
+        reader.readLine();
+        Map<String, Command> commands = new LinkedHashMap<>(64);
+        while (true) {
+            Command command = legacyParseCommand(reader);
+            if (command == null)
+                break;
+            commands.put(command.getName(), command);
+        }
+        return new CommandSet("commandSet", null, commands, null, null);
+    }
+
+    private static Command legacyParseCommand(LineNumberReader reader) throws IOException, ParseException, GirrException {
+        Map<String, String> map = new HashMap<>(16);
+        while (true) {
+            String line = reader.readLine();
+            if (line == null) {
+                if (map.isEmpty())
+                    return null;
+                else
+                    break;
+            }
+            if (line.isEmpty() || line.trim().charAt(0) == '#') {
+                if (map.isEmpty() || line.trim().length() > 1)
+                    continue;
+                else
+                    break;
+            }
+            String[] chunks = line.split(":\\s+");
+            map.put(chunks[0], chunks[1]);
+        }
+
+        switch (map.get("type")) {
+            case "raw":
+                try {
+                    IrSequence irSequence = new IrSequence(map.get("data"), DUMMY_ENDING_GAP);
+                    ModulatedIrSequence modulatedIrSequence = new ModulatedIrSequence(irSequence, Double.valueOf(map.get("frequency")), Double.valueOf(map.get("duty_cycle")));
+                    return new Command(map.get("name"), null, new IrSignal(modulatedIrSequence));
+                } catch (OddSequenceLengthException ex) {
+                    throw new ParseException(ex.getMessage(), reader.getLineNumber());
+                }
+            case "parsed":
+                return FlipperParser.processParsedCommand(map.get("name"), map.get("protocol"),
+                        Long.parseLong(map.get("address").replace(" ", ""), 16), Long.parseLong(map.get("command").replace(" ", ""), 16));
+            default:
+                throw new ParseException("Neither raw nor protocol", reader.getLineNumber());
+        }
+    }
+
+    private final List<String> files = new ArrayList<>(64);
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(ScrapBenchmark.corpus(ScrapKind.flipper).toPath())) {
+            paths = stream.filter(path -> path.toString().endsWith(".ir")).sorted().collect(Collectors.toList());
+        }
+        Charset charset = Charset.forName(FlipperScrap.FLIPPER_CHARSET);
+        for (Path path : paths)
+            files.add(new String(Files.readAllBytes(path), charset));
+        if (files.isEmpty())
+            throw new IOException("No files in " + ScrapBenchmark.corpus(ScrapKind.flipper));
+    }
+
+    private Reader nextFile() {
+        String file = files.get(next);
+        next = (next + 1) % files.size();
+        return new StringReader(file);
+    }
+
+    @Benchmark
+    public CommandSet legacy() throws IOException, ParseException, GirrException {
+        return legacyParse(nextFile());
+    }
+
+    @Benchmark
+    public CommandSet streaming() throws IOException, ParseException, GirrException {
+        return FlipperParser.parse(nextFile());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.harctoolbox.girr.Remote;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+/**
+ * Benchmarks getting a single remote from the Girr files in the GirrLib test corpus,
+ * by streaming extraction, and by DOM and XPath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GirrExtractBenchmark {
+
+    private static final File GIRRLIB_DIR = new File("src/test/GirrLib/Girr");
+
+    @Param({"Philips/philips_37pfl9603_alt.girr", "Philips/philips_bdp_3300.girr", "Coolstream/coolstream_neo.girr"})
+    public String file;
+
+    private byte[] content;
+    private String xpath;
+    private GirrScrap girrScrap;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SAXException, NotFoundException {
+        RemoteDatabase remoteDatabase = new RemoteDatabase();
+        new GirrScrap(remoteDatabase).add(GIRRLIB_DIR);
+        for (ManufacturerDeviceClasses manufacturer : remoteDatabase)
+            for (DeviceClassRemotes deviceClass : manufacturer)
+                for (RemoteLink remoteLink : deviceClass)
+                    if (remoteLink.getFile().getPath().equals(file))
+                        xpath = remoteLink.getXpath();
+        if (xpath == null)
+            throw new NotFoundException("No remote in " + file);
+        content = Files.readAllBytes(new File(GIRRLIB_DIR, file).toPath());
+        girrScrap = new GirrScrap();
+    }
+
+    private InputStreamReader reader() {
+        return new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Remote stream() throws IOException {
+        return girrScrap.getRemote(reader(), file, xpath, null, null);
+    }
+
+    @Benchmark
+    public Remote dom() throws IOException {
+        return GirrScrap.getRemoteByXpath(reader(), xpath);
+    }
+}
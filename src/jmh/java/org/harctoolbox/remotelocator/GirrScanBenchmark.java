@@ -0,0 +1,81 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+import org.harctoolbox.girr.GirrException;
+import org.harctoolbox.girr.Remote;
+import org.harctoolbox.girr.RemoteSet;
+import static org.harctoolbox.girr.XmlStatic.REMOTES_ELEMENT_NAME;
+import org.harctoolbox.xml.XmlUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+/**
+ * Benchmarks reading what the index needs from Girr files in the test corpus,
+ * i.e. the summaries of the remotes, from a DOM of the entire file, and by GirrScanner.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GirrScanBenchmark {
+
+    private static final File GIRR_DIR = new File("src/test/girr");
+
+    @Param({"onkyo-t-4555.girr", "philips_37pfl9603_alt.girr", "sony_tv.girr"})
+    public String file;
+
+    private static List<RemoteLink.Summary> summarize(Element element) throws GirrException {
+        List<RemoteLink.Summary> result = new ArrayList<>(8);
+        if (element.getLocalName().equals(REMOTES_ELEMENT_NAME))
+            for (Remote remote : new RemoteSet(element, "benchmark"))
+                result.add(new RemoteLink.Summary(remote));
+        else
+            result.add(new RemoteLink.Summary(new Remote(element, "benchmark")));
+        return result;
+    }
+
+    @Benchmark
+    public List<RemoteLink.Summary> dom() throws IOException, SAXException, GirrException {
+        return summarize(XmlUtils.openXmlFile(new File(GIRR_DIR, file)).getDocumentElement());
+    }
+
+    @Benchmark
+    public List<RemoteLink.Summary> scan() throws IOException, XMLStreamException, GirrException {
+        return summarize(GirrScanner.scan(new File(GIRR_DIR, file)));
+    }
+}
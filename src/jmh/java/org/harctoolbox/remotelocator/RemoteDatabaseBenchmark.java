@@ -0,0 +1,152 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.validation.Schema;
+import org.harctoolbox.xml.XmlUtils;
+import static org.harctoolbox.xml.XmlUtils.DEFAULT_CHARSETNAME;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Benchmarks loading, querying, and serializing a RemoteDatabase scraped from all test corpora in src/test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RemoteDatabaseBenchmark {
+
+    private static final OutputStream NULL_OUTPUT_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private RemoteDatabase remoteDatabase;
+    private File file;
+    private final List<String[]> remotes = new ArrayList<>(1024);
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SAXException {
+        remoteDatabase = new RemoteDatabase();
+        for (ScrapKind k : new ScrapKind[] { ScrapKind.girr, ScrapKind.irdb, ScrapKind.flipper, ScrapKind.lirc })
+            ScrapKind.mkScrapable(remoteDatabase, k).add(ScrapBenchmark.corpus(k));
+        file = File.createTempFile("remotelocator", ".xml");
+        remoteDatabase.print(file);
+
+        for (ManufacturerDeviceClasses manufacturer : remoteDatabase)
+            for (DeviceClassRemotes deviceClass : manufacturer)
+                for (RemoteLink remoteLink : deviceClass)
+                    remotes.add(new String[] { manufacturer.getName(), deviceClass.getName(), remoteLink.getName() });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public RemoteDatabase load() throws IOException, SAXException, RemoteDatabase.FormatVersionMismatchException {
+        return new RemoteDatabase(file);
+    }
+
+    /**
+     * Loads the data base through a DOM, for comparison with load(), which uses the pull parser.
+     * Run with "-prof gc" to compare the allocation rates too.
+     * @return RemoteDatabase
+     */
+    @Benchmark
+    public RemoteDatabase loadDom() throws IOException, SAXException, RemoteDatabase.FormatVersionMismatchException {
+        Document document = XmlUtils.openXmlFile(file, (Schema) null, true, false);
+        return new RemoteDatabase(document);
+    }
+
+    /**
+     * Looks up the remotes of the data base in turn.
+     * @return RemoteLink found
+     * @throws NotFoundException
+     */
+    @Benchmark
+    public RemoteLink get() throws NotFoundException {
+        String[] remote = remotes.get(next);
+        next = (next + 1) % remotes.size();
+        return remoteDatabase.get(remote[0], remote[1], remote[2]);
+    }
+
+    @Benchmark
+    public List<String> getManufacturers(Kind kind) {
+        return remoteDatabase.getManufacturers(kind.scrapKind);
+    }
+
+    @Benchmark
+    public void print() throws IOException {
+        remoteDatabase.print(NULL_OUTPUT_STREAM);
+    }
+
+    /**
+     * Serializes the data base through a DOM, for comparison with print(), which streams.
+     */
+    @Benchmark
+    public void printDom() throws IOException {
+        XmlUtils.printDOM(NULL_OUTPUT_STREAM, remoteDatabase.toDocument(), DEFAULT_CHARSETNAME, null);
+    }
+
+    /**
+     * Kind argument to getManufacturers; "all" for null.
+     */
+    @State(Scope.Thread)
+    public static class Kind {
+
+        @Param({"all", "girr", "lirc"})
+        public String kind;
+
+        private ScrapKind scrapKind;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            scrapKind = kind.equals("all") ? null : ScrapKind.valueOf(kind);
+        }
+    }
+}
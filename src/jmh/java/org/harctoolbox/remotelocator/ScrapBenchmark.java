@@ -0,0 +1,70 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+/**
+ * Benchmarks the scrapers, each over its test corpus in src/test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScrapBenchmark {
+
+    @Param({"girr", "irdb", "flipper", "lirc"})
+    public ScrapKind kind;
+
+    static File corpus(ScrapKind kind) {
+        switch (kind) {
+            case girr:
+                return new File("src/test/GirrLib/Girr");
+            case irdb:
+                return new File("src/test/irdb/codes");
+            case flipper:
+                return new File("src/test/Flipper-IRDB");
+            case lirc:
+                return new File("src/test/lirc-remotes/remotes");
+            default:
+                throw new IllegalArgumentException("No test corpus for " + kind);
+        }
+    }
+
+    @Benchmark
+    public RemoteDatabase add() throws IOException, SAXException {
+        RemoteDatabase remoteDatabase = new RemoteDatabase();
+        ScrapKind.mkScrapable(remoteDatabase, kind).add(corpus(kind));
+        return remoteDatabase;
+    }
+}
@@ -0,0 +1,460 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the regular files of an archive, without extracting it.
+ * Supported are zip archives, and tar archives compressed with gzip, like the snapshots
+ * ("zipball", "tarball") that Github and SourceForge deliver of a repository.
+ * Such a snapshot has a single top level directory, named after the repository and its version,
+ * which is stripped from the entry names. If the first entry is not in a directory,
+ * the archive is assumed not to have a top level directory.
+ *
+ * The tar reader understands the ustar format, with the POSIX (pax) and GNU extensions for long names.
+ * Links and other special files of tar archives are ignored. In zip archives, they cannot be distinguished from
+ * regular files, since java.util.zip does not expose the file modes.
+ */
+final class Archive {
+
+    private static final Logger logger = Logger.getLogger(Archive.class.getName());
+
+    private static final byte[] ZIP_MAGIC = { 'P', 'K', 3, 4 };
+    private static final byte[] GZIP_MAGIC = { 0x1f, (byte) 0x8b };
+    private static final int MAGIC_LENGTH = 4;
+    private static final int BUFFER_SIZE = 65536;
+    private static final char SEPARATOR = '/';
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 100;
+    private static final int SIZE_OFFSET = 124;
+    private static final int SIZE_LENGTH = 12;
+    private static final int MTIME_OFFSET = 136;
+    private static final int MTIME_LENGTH = 12;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final int TYPEFLAG_OFFSET = 156;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int PREFIX_OFFSET = 345;
+    private static final int PREFIX_LENGTH = 155;
+    private static final byte[] USTAR_MAGIC = { 'u', 's', 't', 'a', 'r', 0 };
+
+    private static final byte REGULAR = '0';
+    private static final byte OLD_REGULAR = 0;
+    private static final byte CONTIGUOUS = '7';
+    private static final byte PAX_HEADER = 'x';
+    private static final byte PAX_GLOBAL_HEADER = 'g';
+    private static final byte GNU_LONGNAME = 'L';
+
+    private static final String PAX_PATH = "path";
+    private static final String PAX_SIZE = "size";
+    private static final String PAX_MTIME = "mtime";
+
+    /**
+     * Tests whether the argument is a regular file starting like a zip or a gzip file.
+     * @param file
+     * @return true if the file looks like a supported archive.
+     * @throws IOException
+     */
+    static boolean isArchive(File file) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException ex) {
+            return false;
+        }
+        if (!attributes.isRegularFile())
+            return false;
+
+        byte[] magic = new byte[MAGIC_LENGTH];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int length = readFully(inputStream, magic, 0, magic.length);
+            return (length >= ZIP_MAGIC.length && startsWith(magic, ZIP_MAGIC))
+                    || (length >= GZIP_MAGIC.length && startsWith(magic, GZIP_MAGIC));
+        }
+    }
+
+    /**
+     * Tests whether the argument starts like a zip file.
+     * @param file
+     * @return true if the file looks like a zip file.
+     * @throws IOException if the file cannot be read.
+     */
+    static boolean isZip(File file) throws IOException {
+        return startsWith(readMagic(file), ZIP_MAGIC);
+    }
+
+    /**
+     * Calls the visitor for every regular file of the archive in the directory given as argument, or below it.
+     * The entries are delivered in the order of the archive.
+     *
+     * @param archive zip or gzip-ed tar archive.
+     * @param directory Directory, relative to the top level directory of the archive, possibly empty.
+     * @param visitor
+     * @throws IOException if the archive cannot be read, or thrown by the visitor.
+     */
+    static void visitEntries(File archive, String directory, Visitor visitor) throws IOException {
+        Archive instance = new Archive(archive, directory, visitor);
+        byte[] magic = readMagic(archive);
+        if (startsWith(magic, ZIP_MAGIC))
+            instance.readZip();
+        else if (startsWith(magic, GZIP_MAGIC))
+            instance.readTarGz();
+        else
+            throw new IOException(archive + " is neither a zip nor a gzip file");
+    }
+
+    // The first bytes of the file, padded with zeros if it is shorter.
+    private static byte[] readMagic(File file) throws IOException {
+        byte[] magic = new byte[MAGIC_LENGTH];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            readFully(inputStream, magic, 0, magic.length);
+        }
+        return magic;
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        return Arrays.equals(Arrays.copyOf(data, prefix.length), prefix);
+    }
+
+    private static int readFully(InputStream inputStream, byte[] buffer, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = inputStream.read(buffer, offset + total, length - total);
+            if (n < 0)
+                break;
+            total += n;
+        }
+        return total;
+    }
+
+    private static byte[] readContent(InputStream inputStream, long size) throws IOException {
+        if (size < 0) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(BUFFER_SIZE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = inputStream.read(buffer)) > 0)
+                outputStream.write(buffer, 0, n);
+            return outputStream.toByteArray();
+        }
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Archive entry too large: " + size + " bytes");
+        byte[] content = new byte[(int) size];
+        if (readFully(inputStream, content, 0, content.length) < content.length)
+            throw new EOFException("Premature end of archive");
+        return content;
+    }
+
+    private static void skip(InputStream inputStream, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long n = inputStream.skip(remaining);
+            if (n <= 0) {
+                if (inputStream.read() < 0)
+                    throw new EOFException("Premature end of archive");
+                n = 1;
+            }
+            remaining -= n;
+        }
+    }
+
+    private static long padding(long size) {
+        return (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+    }
+
+    private static String parseString(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0)
+            end++;
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a numeric header field, either octal, or, as a GNU extension, binary if the first bit is set.
+     */
+    private static long parseNumber(byte[] header, int offset, int length) throws IOException {
+        long result = 0L;
+        if ((header[offset] & 0x80) != 0) {
+            for (int i = offset + 1; i < offset + length; i++)
+                result = (result << 8) | (header[i] & 0xff);
+            return result;
+        }
+        int i = offset;
+        int end = offset + length;
+        while (i < end && (header[i] == ' ' || header[i] == 0))
+            i++;
+        for (; i < end && header[i] != ' ' && header[i] != 0; i++) {
+            if (header[i] < '0' || header[i] > '7')
+                throw new IOException("Invalid number in tar header");
+            result = (result << 3) + (header[i] - '0');
+        }
+        return result;
+    }
+
+    private static boolean isZeroBlock(byte[] header) {
+        for (byte b : header)
+            if (b != 0)
+                return false;
+        return true;
+    }
+
+    private static long checksum(byte[] header) {
+        long sum = 0L;
+        for (int i = 0; i < header.length; i++)
+            sum += (i >= CHECKSUM_OFFSET && i < CHECKSUM_OFFSET + CHECKSUM_LENGTH) ? ' ' : (header[i] & 0xff);
+        return sum;
+    }
+
+    private final File archive;
+    private final String directory;
+    private final Visitor visitor;
+    private String prefix = null;
+
+    // Overrides of the next tar header, from pax extended headers or GNU long names.
+    private String nextPath = null;
+    private long nextSize = -1L;
+    private long nextLastModified = -1L;
+
+    private Archive(File archive, String directory, Visitor visitor) {
+        this.archive = archive;
+        this.directory = directory;
+        this.visitor = visitor;
+    }
+
+    private void readZip() throws IOException {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry zipEntry = entries.nextElement();
+                String path = relativePath(zipEntry.getName());
+                if (path == null || zipEntry.isDirectory())
+                    continue;
+                byte[] content;
+                try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+                    content = readContent(inputStream, zipEntry.getSize());
+                }
+                visitor.visit(new Entry(archive, path, zipEntry.getTime(), content));
+            }
+        }
+    }
+
+    private void readTarGz() throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(archive), BUFFER_SIZE)) {
+            readTar(inputStream);
+        }
+    }
+
+    private void readTar(InputStream inputStream) throws IOException {
+        byte[] header = new byte[BLOCK_SIZE];
+        while (true) {
+            int length = readFully(inputStream, header, 0, BLOCK_SIZE);
+            if (length == 0 || (length == BLOCK_SIZE && isZeroBlock(header)))
+                return;
+            if (length < BLOCK_SIZE)
+                throw new EOFException("Premature end of archive");
+            if (checksum(header) != parseNumber(header, CHECKSUM_OFFSET, CHECKSUM_LENGTH))
+                throw new IOException(archive + ": invalid tar header checksum, not a tar archive, or corrupt");
+
+            byte type = header[TYPEFLAG_OFFSET];
+            long size = nextSize >= 0 ? nextSize : parseNumber(header, SIZE_OFFSET, SIZE_LENGTH);
+            switch (type) {
+                case PAX_HEADER:
+                    parsePax(readContent(inputStream, size));
+                    skip(inputStream, padding(size));
+                    continue;
+                case GNU_LONGNAME:
+                    nextPath = parseString(readContent(inputStream, size), 0, (int) size);
+                    skip(inputStream, padding(size));
+                    continue;
+                case PAX_GLOBAL_HEADER:
+                    // Github puts the commit id here; not an entry, and not to be considered as top level directory.
+                    skip(inputStream, size + padding(size));
+                    continue;
+                default:
+                    break;
+            }
+
+            String name = nextPath != null ? nextPath : headerName(header);
+            long lastModified = 1000L * (nextLastModified >= 0 ? nextLastModified : parseNumber(header, MTIME_OFFSET, MTIME_LENGTH));
+            nextPath = null;
+            nextSize = -1L;
+            nextLastModified = -1L;
+
+            String path = relativePath(name);
+            if (path != null && (type == REGULAR || type == OLD_REGULAR || type == CONTIGUOUS) && !name.endsWith("/")) {
+                byte[] content = readContent(inputStream, size);
+                skip(inputStream, padding(size));
+                visitor.visit(new Entry(archive, path, lastModified, content));
+            } else
+                // Directories, links, other special files, entries outside of the directory
+                skip(inputStream, size + padding(size));
+        }
+    }
+
+    private static String headerName(byte[] header) {
+        String name = parseString(header, NAME_OFFSET, NAME_LENGTH);
+        if (startsWith(Arrays.copyOfRange(header, MAGIC_OFFSET, MAGIC_OFFSET + USTAR_MAGIC.length), USTAR_MAGIC)) {
+            String namePrefix = parseString(header, PREFIX_OFFSET, PREFIX_LENGTH);
+            if (!namePrefix.isEmpty())
+                name = namePrefix + SEPARATOR + name;
+        }
+        return name;
+    }
+
+    /**
+     * Parses the records "length key=value\n" of a pax extended header.
+     */
+    private void parsePax(byte[] data) throws IOException {
+        int position = 0;
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ')
+                space++;
+            int recordLength;
+            try {
+                recordLength = Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException ex) {
+                throw new IOException(archive + ": invalid pax header");
+            }
+            int end = position + recordLength - 1; // excluding the trailing newline
+            if (recordLength <= 0 || end > data.length || end <= space)
+                throw new IOException(archive + ": invalid pax header");
+            String record = new String(data, space + 1, end - space - 1, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0) {
+                String key = record.substring(0, equals);
+                String value = record.substring(equals + 1);
+                try {
+                    switch (key) {
+                        case PAX_PATH:
+                            nextPath = value;
+                            break;
+                        case PAX_SIZE:
+                            nextSize = Long.parseLong(value);
+                            break;
+                        case PAX_MTIME:
+                            int dot = value.indexOf('.');
+                            nextLastModified = Long.parseLong(dot >= 0 ? value.substring(0, dot) : value);
+                            break;
+                        default:
+                            break;
+                    }
+                } catch (NumberFormatException ex) {
+                    logger.log(Level.WARNING, "{0}: invalid pax record \"{1}\" ignored", new Object[]{archive, record});
+                }
+            }
+            position += recordLength;
+        }
+    }
+
+    /**
+     * Maps an entry name to its path relative to the directory, or null if it is not in the directory.
+     */
+    private String relativePath(String name) {
+        if (prefix == null) {
+            int slash = name.indexOf(SEPARATOR);
+            String top = slash >= 0 ? name.substring(0, slash + 1) : "";
+            prefix = directory.isEmpty() ? top : top + directory + SEPARATOR;
+        }
+        return name.startsWith(prefix) && name.length() > prefix.length() ? name.substring(prefix.length()) : null;
+    }
+
+    @FunctionalInterface
+    interface Visitor {
+        void visit(Entry entry) throws IOException;
+    }
+
+    /**
+     * A regular file of an archive, with its content.
+     */
+    static final class Entry {
+
+        private final File file;
+        private final String path;
+        private final long lastModified;
+        private final byte[] content;
+
+        private Entry(File archive, String path, long lastModified, byte[] content) {
+            this.file = new File(archive, path);
+            this.path = path;
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+
+        /**
+         * Returns the file as it would be named if the archive was extracted to a directory with the archive's name.
+         * Used as base directory, the archive thus gives the RemoteLinks the same paths and URLs as the extracted directory.
+         * @return File, that does not exist in the file system.
+         */
+        File getFile() {
+            return file;
+        }
+
+        /**
+         * @return Path relative to the directory, with "/" as separator.
+         */
+        String getPath() {
+            return path;
+        }
+
+        /**
+         * @return Path relative to the directory, split into its components.
+         */
+        String[] getPathComponents() {
+            return path.split(String.valueOf(SEPARATOR));
+        }
+
+        String getName() {
+            return file.getName();
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        long getSize() {
+            return content.length;
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+
+        InputStream getInputStream() {
+            return new ByteArrayInputStream(content);
+        }
+    }
+}
@@ -0,0 +1,546 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.harctoolbox.ircore.ThisCannotHappenException;
+import static org.harctoolbox.irp.IrpUtils.EXIT_SUCCESS;
+import static org.harctoolbox.irp.IrpUtils.EXIT_USAGE_ERROR;
+import static org.harctoolbox.remotelocator.RemoteDatabase.mkKey;
+import org.xml.sax.SAXException;
+
+/**
+ * Compact binary form of a RemoteDatabase, for query frontends that cannot afford parsing the XML file at every start.
+ * The file is mapped into memory, and queries are answered directly from the mapping,
+ * without deserializing the data base; only the RemoteLinks actually asked for are created.
+ *
+ * <p>The file consists of, in this order (all numbers big endian):
+ * <ul>
+ * <li>Header: magic number, format version, set of kinds (as bit mask),
+ * number of manufacturers, of device classes, of remote links, and of strings.
+ * <li>Manufacturer records: key, name, first device class, number of device classes, kinds.
+ * <li>Manufacturer numbers, sorted by key.
+ * <li>Device class records: key, name, first remote link, number of remote links, kinds.
+ * <li>Device class numbers, sorted by key within every manufacturer.
+ * <li>Remote link records: key, name, comment, kind, path, url, xpath, protocol, device (long), subdevice (long).
+ * <li>Remote link numbers, sorted by key within every device class.
+ * <li>String table: offset of every string, plus the end offset, followed by the strings in UTF-8.
+ * </ul>
+ * All records have fixed width. Strings are given by their number in the string table, -1 for absent;
+ * absent device and subdevice are given as -1.
+ * Records are in the order of the RemoteDatabase, so the order of the lists returned is the same as there.
+ * Keys are compared as unsigned UTF-8 bytes.
+ */
+public final class BinaryIndex implements RemoteIndex {
+
+    public static final String BINARY_EXTENSION = ".rlbi";
+    private static final int MAGIC = 0x524c4249; // "RLBI"
+    private static final int VERSION = 1;
+    private static final int INT_SIZE = 4;
+    private static final int LONG_SIZE = 8;
+    private static final int HEADER_SIZE = 7 * INT_SIZE;
+    private static final int MANUFACTURER_RECORD_SIZE = 5 * INT_SIZE;
+    private static final int DEVICECLASS_RECORD_SIZE = 5 * INT_SIZE;
+    private static final int REMOTELINK_RECORD_SIZE = 8 * INT_SIZE + 2 * LONG_SIZE;
+    private static final int NONE = -1;
+
+    // Fields of manufacturer and device class records
+    private static final int KEY = 0;
+    private static final int NAME = 1;
+    private static final int FIRST = 2;
+    private static final int COUNT = 3;
+    private static final int KINDS = 4;
+
+    // Fields of remote link records
+    private static final int LINK_COMMENT = 2;
+    private static final int LINK_KIND = 3;
+    private static final int LINK_PATH = 4;
+    private static final int LINK_URL = 5;
+    private static final int LINK_XPATH = 6;
+    private static final int LINK_PROTOCOL = 7;
+    private static final int LINK_DEVICE = 8 * INT_SIZE;
+    private static final int LINK_SUBDEVICE = LINK_DEVICE + LONG_SIZE;
+
+    private static int mask(ScrapKind kind) {
+        return 1 << kind.ordinal();
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0)
+                return diff;
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Checks whether the file given is a binary index, by looking at its magic number.
+     * @param file
+     * @return true if the file exists and is a binary index.
+     */
+    public static boolean isBinaryIndex(File file) {
+        if (!file.isFile())
+            return false;
+        try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+            return inputStream.readInt() == MAGIC;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the RemoteDatabase in binary form to the file.
+     * @param remoteDatabase
+     * @param file
+     * @throws IOException
+     */
+    public static void write(RemoteDatabase remoteDatabase, File file) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            write(remoteDatabase, outputStream);
+        }
+    }
+
+    /**
+     * Writes the RemoteDatabase in binary form to the stream, which is flushed, but not closed.
+     * @param remoteDatabase
+     * @param outputStream
+     * @throws IOException
+     */
+    public static void write(RemoteDatabase remoteDatabase, OutputStream outputStream) throws IOException {
+        new Writer(remoteDatabase).write(outputStream);
+    }
+
+    /**
+     * Converts between the XML form and the binary form.
+     * If the input file is a binary index, it is written as XML, otherwise it is read as XML and written as binary index.
+     * @param args input file, output file.
+     */
+    @SuppressWarnings("UseOfSystemOutOrSystemErr")
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: " + BinaryIndex.class.getSimpleName() + " <input file> <output file>");
+            System.exit(EXIT_USAGE_ERROR);
+        }
+
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        try {
+            if (isBinaryIndex(input)) {
+                RemoteDatabase remoteDatabase = new BinaryIndex(input).toRemoteDatabase();
+                remoteDatabase.print(output);
+                System.err.println("Configuration file " + output + " written, containing " + remoteDatabase.numberRemotes() + " remotes.");
+            } else {
+                RemoteDatabase remoteDatabase = new RemoteDatabase(input);
+                write(remoteDatabase, output);
+                System.err.println("Binary index " + output + " written, containing " + remoteDatabase.numberRemotes() + " remotes.");
+            }
+        } catch (IOException | SAXException | RemoteDatabase.FormatVersionMismatchException ex) {
+            System.err.println(ex.getLocalizedMessage());
+            System.exit(EXIT_USAGE_ERROR);
+        }
+        System.exit(EXIT_SUCCESS);
+    }
+
+    private final ByteBuffer buffer;
+    private final int kinds;
+    private final int manufacturerCount;
+    private final int manufacturersOffset;
+    private final int manufacturerIndexOffset;
+    private final int deviceClassesOffset;
+    private final int deviceClassIndexOffset;
+    private final int remoteLinksOffset;
+    private final int remoteLinkIndexOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+
+    /**
+     * Opens a binary index by mapping it into memory.
+     * Nothing is read apart from the header.
+     * @param file
+     * @throws IOException if the file could not be read, or is not a binary index of the supported version.
+     */
+    public BinaryIndex(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel has been closed.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException(file + " is not a binary RemoteLocator index.");
+        int version = buffer.getInt(INT_SIZE);
+        if (version != VERSION)
+            throw new IOException("Binary index version mismatch, expected = " + VERSION + ", actual = " + version);
+
+        kinds = buffer.getInt(2 * INT_SIZE);
+        manufacturerCount = buffer.getInt(3 * INT_SIZE);
+        int deviceClassCount = buffer.getInt(4 * INT_SIZE);
+        int remoteLinkCount = buffer.getInt(5 * INT_SIZE);
+        int stringCount = buffer.getInt(6 * INT_SIZE);
+
+        manufacturersOffset = HEADER_SIZE;
+        manufacturerIndexOffset = manufacturersOffset + manufacturerCount * MANUFACTURER_RECORD_SIZE;
+        deviceClassesOffset = manufacturerIndexOffset + manufacturerCount * INT_SIZE;
+        deviceClassIndexOffset = deviceClassesOffset + deviceClassCount * DEVICECLASS_RECORD_SIZE;
+        remoteLinksOffset = deviceClassIndexOffset + deviceClassCount * INT_SIZE;
+        remoteLinkIndexOffset = remoteLinksOffset + remoteLinkCount * REMOTELINK_RECORD_SIZE;
+        stringOffsetsOffset = remoteLinkIndexOffset + remoteLinkCount * INT_SIZE;
+        stringDataOffset = stringOffsetsOffset + (stringCount + 1) * INT_SIZE;
+        if (stringDataOffset > buffer.capacity())
+            throw new IOException(file + " is truncated.");
+    }
+
+    private int manufacturerField(int manufacturer, int field) {
+        return buffer.getInt(manufacturersOffset + manufacturer * MANUFACTURER_RECORD_SIZE + field * INT_SIZE);
+    }
+
+    private int deviceClassField(int deviceClass, int field) {
+        return buffer.getInt(deviceClassesOffset + deviceClass * DEVICECLASS_RECORD_SIZE + field * INT_SIZE);
+    }
+
+    private int remoteLinkField(int remoteLink, int field) {
+        return buffer.getInt(remoteLinksOffset + remoteLink * REMOTELINK_RECORD_SIZE + field * INT_SIZE);
+    }
+
+    private String string(int number) {
+        if (number == NONE)
+            return null;
+        int start = stringDataOffset + buffer.getInt(stringOffsetsOffset + number * INT_SIZE);
+        int end = stringDataOffset + buffer.getInt(stringOffsetsOffset + (number + 1) * INT_SIZE);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String stringOrEmpty(int number) {
+        return number == NONE ? "" : string(number);
+    }
+
+    private int compare(int number, byte[] key) {
+        int start = stringDataOffset + buffer.getInt(stringOffsetsOffset + number * INT_SIZE);
+        int end = stringDataOffset + buffer.getInt(stringOffsetsOffset + (number + 1) * INT_SIZE);
+        int length = Math.min(end - start, key.length);
+        for (int i = 0; i < length; i++) {
+            int diff = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (diff != 0)
+                return diff;
+        }
+        return (end - start) - key.length;
+    }
+
+    /**
+     * Binary search in a segment of a sorted index.
+     * @return number of the record with the key, or NONE.
+     */
+    private int find(int indexOffset, int first, int count, int recordsOffset, int recordSize, String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int low = first;
+        int high = first + count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int record = buffer.getInt(indexOffset + mid * INT_SIZE);
+            int cmp = compare(buffer.getInt(recordsOffset + record * recordSize + KEY * INT_SIZE), keyBytes);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return record;
+        }
+        return NONE;
+    }
+
+    private int findManufacturer(String manufacturer) throws NotFoundException {
+        int m = find(manufacturerIndexOffset, 0, manufacturerCount, manufacturersOffset, MANUFACTURER_RECORD_SIZE, mkKey(manufacturer));
+        if (m == NONE)
+            throw new NotFoundException("Manufacturer \""  + manufacturer + "\" not found in the data base.");
+        return m;
+    }
+
+    private int findDeviceClass(int manufacturer, String deviceClass) throws NotFoundException {
+        int d = find(deviceClassIndexOffset, manufacturerField(manufacturer, FIRST), manufacturerField(manufacturer, COUNT), deviceClassesOffset, DEVICECLASS_RECORD_SIZE, mkKey(deviceClass));
+        if (d == NONE)
+            throw new NotFoundException("Manufacturer \""  + string(manufacturerField(manufacturer, NAME)) + "\" has no device class \"" + deviceClass + "\" in the data base.");
+        return d;
+    }
+
+    private static boolean hasKind(int kinds, ScrapKind kind) {
+        return kind == null || (kinds & mask(kind)) != 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return manufacturerCount == 0;
+    }
+
+    public int numberRemotes() {
+        return (remoteLinkIndexOffset - remoteLinksOffset) / REMOTELINK_RECORD_SIZE;
+    }
+
+    public List<String> getManufacturers() {
+        return getManufacturers(null);
+    }
+
+    @Override
+    public List<String> getManufacturers(ScrapKind kind) {
+        List<String> result = new ArrayList<>(manufacturerCount);
+        for (int m = 0; m < manufacturerCount; m++)
+            if (hasKind(manufacturerField(m, KINDS), kind))
+                result.add(string(manufacturerField(m, NAME)));
+        return result;
+    }
+
+    public List<String> getDeviceTypes(String manufacturer) throws NotFoundException {
+        return getDeviceTypes(null, manufacturer);
+    }
+
+    @Override
+    public List<String> getDeviceTypes(ScrapKind kind, String manufacturer) throws NotFoundException {
+        int m = findManufacturer(manufacturer);
+        int first = manufacturerField(m, FIRST);
+        int count = manufacturerField(m, COUNT);
+        List<String> result = new ArrayList<>(count);
+        for (int d = first; d < first + count; d++)
+            if (hasKind(deviceClassField(d, KINDS), kind))
+                result.add(string(deviceClassField(d, NAME)));
+        return result;
+    }
+
+    public List<String> getRemotes(String manufacturer, String deviceType) throws NotFoundException {
+        return getRemotes(null, manufacturer, deviceType);
+    }
+
+    @Override
+    public List<String> getRemotes(ScrapKind kind, String manufacturer, String deviceType) throws NotFoundException {
+        int d = findDeviceClass(findManufacturer(manufacturer), deviceType);
+        int first = deviceClassField(d, FIRST);
+        int count = deviceClassField(d, COUNT);
+        List<String> result = new ArrayList<>(count);
+        for (int r = first; r < first + count; r++)
+            if (kind == null || remoteLinkField(r, LINK_KIND) == kind.ordinal())
+                result.add(string(remoteLinkField(r, NAME)));
+        return result;
+    }
+
+    /**
+     * Looks up a remote link, and creates it.
+     * The RemoteLink returned belongs to a stand-alone manufacturer and device class, not to a RemoteDatabase.
+     * @param manufacturer
+     * @param deviceClass
+     * @param remoteName
+     * @return new RemoteLink
+     * @throws NotFoundException
+     */
+    @Override
+    public RemoteLink get(String manufacturer, String deviceClass, String remoteName) throws NotFoundException {
+        int m = findManufacturer(manufacturer);
+        int d = findDeviceClass(m, deviceClass);
+        int r = find(remoteLinkIndexOffset, deviceClassField(d, FIRST), deviceClassField(d, COUNT), remoteLinksOffset, REMOTELINK_RECORD_SIZE, remoteName.toLowerCase(Locale.US));
+        if (r == NONE)
+            throw new NotFoundException("No such remote in selected manufacturer and device class");
+        RemoteLink remoteLink = mkRemoteLink(r);
+        DeviceClassRemotes.detached(string(manufacturerField(m, NAME)), string(deviceClassField(d, NAME))).add(remoteLink);
+        return remoteLink;
+    }
+
+    @Override
+    public URL getUrl(String manufacturer, String deviceClass, String remoteName) throws NotFoundException {
+        return get(manufacturer, deviceClass, remoteName).getUrl();
+    }
+
+    private RemoteLink mkRemoteLink(int r) {
+        int offset = remoteLinksOffset + r * REMOTELINK_RECORD_SIZE;
+        long device = buffer.getLong(offset + LINK_DEVICE);
+        long subdevice = buffer.getLong(offset + LINK_SUBDEVICE);
+        try {
+            return new RemoteLink(ScrapKind.values()[remoteLinkField(r, LINK_KIND)].name(),
+                    string(remoteLinkField(r, NAME)),
+                    stringOrEmpty(remoteLinkField(r, LINK_COMMENT)),
+                    stringOrEmpty(remoteLinkField(r, LINK_PROTOCOL)),
+                    device == NONE ? "" : Long.toString(device),
+                    subdevice == NONE ? "" : Long.toString(subdevice),
+                    stringOrEmpty(remoteLinkField(r, LINK_PATH)),
+                    stringOrEmpty(remoteLinkField(r, LINK_URL)),
+                    stringOrEmpty(remoteLinkField(r, LINK_XPATH)));
+        } catch (URISyntaxException | MalformedURLException ex) {
+            // The URL has been written from a valid URL
+            throw new ThisCannotHappenException(ex);
+        }
+    }
+
+    /**
+     * Reads the complete content into a RemoteDatabase.
+     * @return new RemoteDatabase, equivalent to the one the index was written from.
+     */
+    public RemoteDatabase toRemoteDatabase() {
+        RemoteDatabase remoteDatabase = new RemoteDatabase();
+        for (ScrapKind kind : ScrapKind.values())
+            if (hasKind(kinds, kind))
+                remoteDatabase.addKind(kind);
+        for (int m = 0; m < manufacturerCount; m++) {
+            ManufacturerDeviceClasses manufacturer = remoteDatabase.getOrCreate(string(manufacturerField(m, NAME)));
+            int firstDeviceClass = manufacturerField(m, FIRST);
+            for (int d = firstDeviceClass; d < firstDeviceClass + manufacturerField(m, COUNT); d++) {
+                DeviceClassRemotes deviceClass = manufacturer.getOrCreate(string(deviceClassField(d, NAME)));
+                int firstRemoteLink = deviceClassField(d, FIRST);
+                for (int r = firstRemoteLink; r < firstRemoteLink + deviceClassField(d, COUNT); r++)
+                    deviceClass.add(mkRemoteLink(r));
+            }
+        }
+        return remoteDatabase;
+    }
+
+    /**
+     * Collects the content of a RemoteDatabase into records, and writes them.
+     */
+    private static final class Writer {
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>(1024);
+        private final List<byte[]> stringBytes = new ArrayList<>(1024);
+        private final List<int[]> manufacturers = new ArrayList<>(256);
+        private final List<int[]> deviceClasses = new ArrayList<>(1024);
+        private final List<Integer> remoteLinkKeys = new ArrayList<>(4096);
+        private final ByteArrayOutputStream remoteLinks = new ByteArrayOutputStream(65536);
+        private int kinds = 0;
+
+        Writer(RemoteDatabase remoteDatabase) throws IOException {
+            DataOutputStream remoteLinkStream = new DataOutputStream(remoteLinks);
+            for (ManufacturerDeviceClasses manufacturer : remoteDatabase) {
+                int[] manufacturerRecord = { string(mkKey(manufacturer.getName())), string(manufacturer.getName()), deviceClasses.size(), 0, 0 };
+                manufacturers.add(manufacturerRecord);
+                for (DeviceClassRemotes deviceClass : manufacturer) {
+                    int[] deviceClassRecord = { string(mkKey(deviceClass.getName())), string(deviceClass.getName()), remoteLinkKeys.size(), 0, 0 };
+                    deviceClasses.add(deviceClassRecord);
+                    for (Map.Entry<String, RemoteLink> entry : deviceClass.getRemoteLinks().entrySet()) {
+                        RemoteLink remoteLink = entry.getValue();
+                        int key = string(entry.getKey());
+                        remoteLinkKeys.add(key);
+                        remoteLinkStream.writeInt(key);
+                        remoteLinkStream.writeInt(string(remoteLink.getName()));
+                        remoteLinkStream.writeInt(string(remoteLink.getComment()));
+                        remoteLinkStream.writeInt(remoteLink.getKind().ordinal());
+                        remoteLinkStream.writeInt(string(remoteLink.getFile()));
+                        remoteLinkStream.writeInt(string(remoteLink.getUrl()));
+                        remoteLinkStream.writeInt(string(remoteLink.getXpath()));
+                        remoteLinkStream.writeInt(string(remoteLink.getProtocol()));
+                        remoteLinkStream.writeLong(remoteLink.getDevice() != null ? remoteLink.getDevice() : NONE);
+                        remoteLinkStream.writeLong(remoteLink.getSubdevice() != null ? remoteLink.getSubdevice() : NONE);
+                        deviceClassRecord[COUNT]++;
+                        deviceClassRecord[KINDS] |= mask(remoteLink.getKind());
+                    }
+                    manufacturerRecord[COUNT]++;
+                    manufacturerRecord[KINDS] |= deviceClassRecord[KINDS];
+                }
+            }
+            remoteLinkStream.flush();
+            for (ScrapKind kind : remoteDatabase.getKinds())
+                kinds |= mask(kind);
+        }
+
+        /**
+         * @return number of the string in the string table, or NONE for null or empty.
+         */
+        private int string(Object object) {
+            if (object == null)
+                return NONE;
+            String string = object.toString();
+            if (string.isEmpty())
+                return NONE;
+            return strings.computeIfAbsent(string, (String s) -> {
+                stringBytes.add(s.getBytes(StandardCharsets.UTF_8));
+                return stringBytes.size() - 1;
+            });
+        }
+
+        private void writeIndex(DataOutputStream outputStream, List<Integer> keys, int first, int count) throws IOException {
+            Integer[] numbers = new Integer[count];
+            for (int i = 0; i < count; i++)
+                numbers[i] = first + i;
+            Arrays.sort(numbers, (Integer a, Integer b) -> BinaryIndex.compare(stringBytes.get(keys.get(a)), stringBytes.get(keys.get(b))));
+            for (Integer number : numbers)
+                outputStream.writeInt(number);
+        }
+
+        private static void writeRecords(DataOutputStream outputStream, List<int[]> records) throws IOException {
+            for (int[] record : records)
+                for (int field : record)
+                    outputStream.writeInt(field);
+        }
+
+        private static List<Integer> keys(List<int[]> records) {
+            List<Integer> keys = new ArrayList<>(records.size());
+            records.forEach(record -> keys.add(record[KEY]));
+            return keys;
+        }
+
+        void write(OutputStream stream) throws IOException {
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(stream));
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeInt(kinds);
+            outputStream.writeInt(manufacturers.size());
+            outputStream.writeInt(deviceClasses.size());
+            outputStream.writeInt(remoteLinkKeys.size());
+            outputStream.writeInt(stringBytes.size());
+
+            writeRecords(outputStream, manufacturers);
+            writeIndex(outputStream, keys(manufacturers), 0, manufacturers.size());
+
+            writeRecords(outputStream, deviceClasses);
+            List<Integer> deviceClassKeys = keys(deviceClasses);
+            for (int[] manufacturer : manufacturers)
+                writeIndex(outputStream, deviceClassKeys, manufacturer[FIRST], manufacturer[COUNT]);
+
+            remoteLinks.writeTo(outputStream);
+            for (int[] deviceClass : deviceClasses)
+                writeIndex(outputStream, remoteLinkKeys, deviceClass[FIRST], deviceClass[COUNT]);
+
+            int offset = 0;
+            for (byte[] bytes : stringBytes) {
+                outputStream.writeInt(offset);
+                offset += bytes.length;
+            }
+            outputStream.writeInt(offset);
+            for (byte[] bytes : stringBytes)
+                outputStream.write(bytes);
+            outputStream.flush();
+        }
+    }
+}
@@ -0,0 +1,487 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.harctoolbox.girr.GirrException;
+import org.harctoolbox.girr.Remote;
+import org.harctoolbox.ircore.IrCoreException;
+import org.harctoolbox.irp.IrpException;
+
+/**
+ * Downloads many remotes concurrently, and writes them as Girr files, or other export formats, either into a directory, or into a zip archive.
+ * The remotes are fetched, or read from a local source tree, and parsed and converted in parallel, with a bound on the number of remotes in flight.
+ * If the JVM supports virtual threads (Java 21 and later), every remote gets its own virtual thread,
+ * otherwise a thread pool is used.
+ */
+public final class BulkDownloader {
+
+    private static final Logger logger = Logger.getLogger(BulkDownloader.class.getName());
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final String GIRR_EXTENSION = ".girr";
+    public static final String ZIP_EXTENSION = ".zip";
+    private static final String VIRTUAL_THREAD_EXECUTOR_METHOD = "newVirtualThreadPerTaskExecutor";
+    private static final char SEPARATOR = '/';
+    private static final int INITIAL_CAPACITY = 64;
+    private static final String ERROR_REPORT_SUFFIX = "-errors.txt";
+
+    /**
+     * Creates an executor with a virtual thread per task if available, otherwise a fixed thread pool.
+     * @param threads Number of threads of the pool, if used.
+     * @return new ExecutorService
+     */
+    static ExecutorService newExecutor(int threads) {
+        try {
+            // Found by reflection, since this code is to run also on older JVMs.
+            return (ExecutorService) Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_METHOD).invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    /**
+     * Runs the task on all items concurrently, with at most maxInFlight running at the same time, and waits for all to finish.
+     * @param <T>
+     * @param items
+     * @param maxInFlight
+     * @param task
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    static <T> void forEach(Collection<T> items, int maxInFlight, Consumer<? super T> task) throws InterruptedIOException {
+        forEach(items, maxInFlight, task, () -> false);
+    }
+
+    /**
+     * Like forEach(Collection, int, Consumer), but starts no more items once stop returns true.
+     * Items already started are waited for.
+     * @param <T>
+     * @param items
+     * @param maxInFlight
+     * @param task
+     * @param stop
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    static <T> void forEach(Collection<T> items, int maxInFlight, Consumer<? super T> task, BooleanSupplier stop) throws InterruptedIOException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService executor = newExecutor(maxInFlight);
+        try {
+            for (T item : items) {
+                inFlight.acquire();
+                if (stop.getAsBoolean()) {
+                    inFlight.release();
+                    break;
+                }
+                executor.execute(() -> {
+                    try {
+                        task.accept(item);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted");
+        }
+    }
+
+    /**
+     * Selects remotes from a RemoteIndex.
+     * @param remoteIndex
+     * @param kind If non-null, select only remotes of this kind.
+     * @param manufacturer If null, all remotes.
+     * @param deviceClass If null, all remotes of the manufacturer.
+     * @param remoteNames If null or empty, all remotes of the device class.
+     * @return List of selected remote links, without duplicates.
+     * @throws NotFoundException
+     */
+    public static List<RemoteLink> select(RemoteIndex remoteIndex, ScrapKind kind, String manufacturer, String deviceClass, List<String> remoteNames) throws NotFoundException {
+        Map<String, RemoteLink> result = new LinkedHashMap<>(INITIAL_CAPACITY);
+        if (manufacturer == null)
+            for (String m : remoteIndex.getManufacturers(kind))
+                select(result, remoteIndex, kind, m, null, null);
+        else
+            select(result, remoteIndex, kind, manufacturer, deviceClass, remoteNames);
+        return new ArrayList<>(result.values());
+    }
+
+    private static void select(Map<String, RemoteLink> result, RemoteIndex remoteIndex, ScrapKind kind, String manufacturer, String deviceClass, List<String> remoteNames) throws NotFoundException {
+        List<String> deviceClasses = new ArrayList<>(INITIAL_CAPACITY);
+        if (deviceClass != null)
+            deviceClasses.add(deviceClass);
+        else
+            deviceClasses.addAll(remoteIndex.getDeviceTypes(kind, manufacturer));
+
+        for (String dc : deviceClasses) {
+            List<String> names = (remoteNames == null || remoteNames.isEmpty()) ? remoteIndex.getRemotes(kind, manufacturer, dc) : remoteNames;
+            for (String name : names) {
+                RemoteLink remoteLink = remoteIndex.get(manufacturer, dc, name);
+                if (kind == null || remoteLink.getKind() == kind)
+                    result.putIfAbsent(RemoteDatabase.mkKey(manufacturer) + SEPARATOR + RemoteDatabase.mkKey(dc) + SEPARATOR + name.toLowerCase(Locale.US), remoteLink);
+            }
+        }
+    }
+
+    private static String sanitize(String name) {
+        StringBuilder str = new StringBuilder(name.length());
+        for (char ch : name.toCharArray())
+            str.append(Character.isLetterOrDigit(ch) || ch == '.' || ch == '-' || ch == '_' || ch == ' ' ? ch : '_');
+        return str.length() == 0 || str.charAt(0) == '.' ? "_" + str : str.toString();
+    }
+
+    private static String entryName(RemoteLink remoteLink, Set<String> used) {
+        String base = sanitize(remoteLink.getManufacturer()) + SEPARATOR + sanitize(remoteLink.getDeviceClass()) + SEPARATOR + sanitize(remoteLink.getName());
+        String name = base;
+        for (int number = 1; !used.add(name.toLowerCase(Locale.US)); number++)
+            name = base + "$" + number;
+        return name;
+    }
+
+    private final int maxInFlight;
+    private volatile File sourceDirectory = null;
+
+    /**
+     * @param maxInFlight Maximal number of remotes being fetched or parsed at the same time.
+     */
+    public BulkDownloader(int maxInFlight) {
+        if (maxInFlight <= 0)
+            throw new IllegalArgumentException("Number of remotes in flight must be positive");
+        this.maxInFlight = maxInFlight;
+    }
+
+    public BulkDownloader() {
+        this(DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Makes the remotes to be read from a local source tree, as sourceDirectory/path, instead of through RemoteLink.getRemote().
+     * @param sourceDirectory Root of the tree that was scraped, or null (default) for none.
+     */
+    public void setSourceDirectory(File sourceDirectory) {
+        this.sourceDirectory = sourceDirectory;
+    }
+
+    public File getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    /**
+     * Downloads the remotes, and writes them as Girr files, named manufacturer/deviceclass/remote.girr.
+     * Remotes that cannot be loaded are logged and counted, but do not stop the others.
+     * @param remoteLinks
+     * @param output Directory, or, if its name ends with .zip, zip file, to write to.
+     * @return Result, with statistics.
+     * @throws IOException if the output could not be written.
+     */
+    public Result download(List<RemoteLink> remoteLinks, File output) throws IOException {
+        return export(remoteLinks, EnumSet.of(ExportFormat.girr), output).get(ExportFormat.girr);
+    }
+
+    /**
+     * Exports the remotes in one or more formats.
+     * Every remote is read and parsed once, and converted to all the formats; at most maxInFlight are kept in memory.
+     * With one format, the files are named manufacturer/deviceclass/remote.extension,
+     * otherwise format/manufacturer/deviceclass/remote.extension.
+     * For every format with errors, a report format-errors.txt is written.
+     * @param remoteLinks
+     * @param formats
+     * @param output Directory, or, if its name ends with .zip, zip file, to write to.
+     * @return Results, with statistics and errors, for each of the formats.
+     * @throws IOException if the output could not be written.
+     */
+    public Map<ExportFormat, Result> export(List<RemoteLink> remoteLinks, Set<ExportFormat> formats, File output) throws IOException {
+        if (formats.isEmpty())
+            throw new IllegalArgumentException("No export format given");
+        try (Sink sink = output.getName().toLowerCase(Locale.US).endsWith(ZIP_EXTENSION) ? new ZipSink(output) : new DirectorySink(output)) {
+            Map<ExportFormat, Result> results = export(remoteLinks, formats, sink);
+            for (Map.Entry<ExportFormat, Result> entry : results.entrySet()) {
+                List<String> errors = entry.getValue().getErrors();
+                if (!errors.isEmpty()) {
+                    StringBuilder report = new StringBuilder(errors.size() * INITIAL_CAPACITY);
+                    errors.forEach(error -> report.append(error).append(System.lineSeparator()));
+                    writeTo(sink, entry.getKey().name() + ERROR_REPORT_SUFFIX, report.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return results;
+        }
+    }
+
+    private static void writeTo(Sink sink, String name, byte[] content) throws IOException {
+        try {
+            sink.write(name, content);
+        } catch (SinkException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private Map<ExportFormat, Result> export(List<RemoteLink> remoteLinks, Set<ExportFormat> formats, Sink sink) throws IOException {
+        Map<ExportFormat, Result> results = new EnumMap<>(ExportFormat.class);
+        formats.forEach(format -> results.put(format, new Result()));
+        Set<String> used = new HashSet<>(remoteLinks.size());
+        Map<RemoteLink, String> names = new LinkedHashMap<>(remoteLinks.size());
+        for (RemoteLink remoteLink : remoteLinks) {
+            if (remoteLink.isLoadable())
+                names.put(remoteLink, entryName(remoteLink, used));
+            else {
+                logger.log(Level.INFO, "Remote {0} of kind {1} cannot be downloaded, skipped", new Object[]{remoteLink.getName(), remoteLink.getKind()});
+                results.values().forEach(Result::skipped);
+            }
+        }
+
+        File source = sourceDirectory;
+        // Once the output has failed, the remaining remotes are neither loaded nor converted.
+        AtomicReference<IOException> sinkException = new AtomicReference<>();
+        forEach(names.entrySet(), maxInFlight, (Map.Entry<RemoteLink, String> entry) -> {
+            if (sinkException.get() != null)
+                return;
+            String name = entry.getValue();
+            Remote remote;
+            try {
+                remote = load(entry.getKey(), source);
+                if (remote == null)
+                    throw new IOException("Could not parse");
+            } catch (IOException | Girrable.NotGirrableException | NotFoundException | RuntimeException ex) {
+                logger.log(Level.WARNING, "Remote {0} could not be loaded: {1}", new Object[]{name, ex.getLocalizedMessage()});
+                results.values().forEach(result -> result.failed(name, ex));
+                return;
+            }
+
+            for (Map.Entry<ExportFormat, Result> formatResult : results.entrySet()) {
+                ExportFormat format = formatResult.getKey();
+                Result result = formatResult.getValue();
+                try {
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    try (PrintStream printStream = new PrintStream(outputStream, false, StandardCharsets.UTF_8.name())) {
+                        format.print(printStream, remote);
+                    }
+                    byte[] bytes = outputStream.toByteArray();
+                    sink.write((results.size() > 1 ? format.name() + SEPARATOR : "") + name + format.getExtension(), bytes);
+                    result.succeeded(bytes.length);
+                } catch (SinkException ex) {
+                    sinkException.compareAndSet(null, ex.getCause());
+                    return;
+                } catch (GirrException | IrpException | IrCoreException | IOException | RuntimeException ex) {
+                    logger.log(Level.FINE, "Remote {0} could not be converted to {1}: {2}", new Object[]{name, format, ex.getLocalizedMessage()});
+                    result.failed(name, ex);
+                }
+            }
+        }, () -> sinkException.get() != null);
+        results.values().forEach(Result::finish);
+        if (sinkException.get() != null)
+            throw sinkException.get();
+        return results;
+    }
+
+    private static Remote load(RemoteLink remoteLink, File source) throws IOException, Girrable.NotGirrableException, NotFoundException {
+        if (source == null)
+            return remoteLink.getRemote();
+
+        Scrapable scrap = ScrapKind.mkScrapable(remoteLink.getKind());
+        if (!(scrap instanceof Girrable))
+            throw new Girrable.NotGirrableException();
+        return ((Girrable) scrap).getRemoteFile(remoteLink, FileUtils.resolve(source, remoteLink.getFile().getPath()));
+    }
+
+    /**
+     * Statistics of a download, also used by Mirror.
+     */
+    public static final class Result {
+        private final long start = System.nanoTime();
+        private long elapsed;
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>(8));
+
+        Result() {
+        }
+
+        void succeeded(long size) {
+            succeeded.incrementAndGet();
+            bytes.addAndGet(size);
+        }
+
+        void failed(String name, Exception ex) {
+            failed.incrementAndGet();
+            errors.add(name + ": " + ex.getLocalizedMessage());
+        }
+
+        void skipped() {
+            skipped.incrementAndGet();
+        }
+
+        void finish() {
+            elapsed = System.nanoTime() - start;
+        }
+
+        public int getSucceeded() {
+            return succeeded.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        /**
+         * @return The errors, one line per failed item.
+         */
+        public List<String> getErrors() {
+            synchronized (errors) {
+                return new ArrayList<>(errors);
+            }
+        }
+
+        /**
+         * @return Elapsed time in seconds.
+         */
+        public double getSeconds() {
+            return elapsed / 1e9;
+        }
+
+        /**
+         * @return Number of files written per second.
+         */
+        public double getThroughput() {
+            return elapsed > 0 ? getSucceeded() / getSeconds() : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d files (%d bytes) written in %.3f s, %.1f files/s; %d failed, %d skipped.",
+                    getSucceeded(), getBytes(), getSeconds(), getThroughput(), getFailed(), getSkipped());
+        }
+    }
+
+    private interface Sink extends Closeable {
+        void write(String name, byte[] content) throws SinkException;
+    }
+
+    // Signals failure to write the output, which, contrary to failure to download a remote, aborts:
+    // no further remotes are started, and the exception is rethrown when the running ones have finished.
+    private static final class SinkException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        SinkException(IOException ex) {
+            super(ex);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private static final class DirectorySink implements Sink {
+        private final File directory;
+
+        DirectorySink(File directory) throws IOException {
+            this.directory = directory;
+            if (!directory.isDirectory() && !directory.mkdirs())
+                throw new IOException("Could not create directory " + directory);
+        }
+
+        @Override
+        public void write(String name, byte[] content) throws SinkException {
+            File file = new File(directory, name);
+            try {
+                File parent = file.getParentFile();
+                if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory())
+                    throw new IOException("Could not create directory " + parent);
+                try (OutputStream outputStream = new FileOutputStream(file)) {
+                    outputStream.write(content);
+                }
+            } catch (IOException ex) {
+                throw new SinkException(ex);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class ZipSink implements Sink {
+        private final ZipOutputStream zipOutputStream;
+
+        ZipSink(File file) throws IOException {
+            zipOutputStream = new ZipOutputStream(new FileOutputStream(file));
+        }
+
+        @Override
+        public synchronized void write(String name, byte[] content) throws SinkException {
+            try {
+                zipOutputStream.putNextEntry(new ZipEntry(name));
+                zipOutputStream.write(content);
+                zipOutputStream.closeEntry();
+            } catch (IOException ex) {
+                throw new SinkException(ex);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            zipOutputStream.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.xml.sax.SAXException;
+
+/**
+ * Runs a number of scrapers concurrently, each in its own thread and into its own private RemoteDatabase.
+ * The private data bases are then merged into the target, in the order the scrapers were added.
+ * The result is thereby identical to running the scrapers sequentially in that order.
+ */
+final class ConcurrentScraper {
+
+    private static final Logger logger = Logger.getLogger(ConcurrentScraper.class.getName());
+
+    private final List<Scrapable> scrapers = new ArrayList<>(ScrapKind.values().length);
+    private final List<File> files = new ArrayList<>(ScrapKind.values().length);
+
+    ConcurrentScraper() {
+    }
+
+    /**
+     * Registers a scraper to be run.
+     * The scraper is instantiated in the calling thread, so that the static initializers
+     * of the scraper classes are run in the same order as in the sequential case.
+     *
+     * @param kind Kind of scraper
+     * @param file Argument to its add(File) method.
+     */
+    void add(ScrapKind kind, File file) {
+        add(ScrapKind.mkScrapable(new RemoteDatabase(), kind), file);
+    }
+
+    /**
+     * Registers an already configured scraper to be run.
+     * It must have its own, private, RemoteDatabase.
+     *
+     * @param scrapable Scraper
+     * @param file Argument to its add(File) method.
+     */
+    void add(Scrapable scrapable, File file) {
+        scrapers.add(scrapable);
+        files.add(file);
+    }
+
+    /**
+     * Runs all registered scrapers concurrently, and merges their results into the argument.
+     * @param remoteDatabase RemoteDatabase to merge the results into.
+     * @throws IOException if any of the scrapers throws it.
+     * @throws SAXException if any of the scrapers throws it.
+     */
+    void scrap(RemoteDatabase remoteDatabase) throws IOException, SAXException {
+        if (scrapers.isEmpty())
+            return;
+
+        ExecutorService executor = Executors.newFixedThreadPool(scrapers.size());
+        try {
+            List<Future<RemoteDatabase>> futures = new ArrayList<>(scrapers.size());
+            for (int i = 0; i < scrapers.size(); i++) {
+                Scrapable scrapable = scrapers.get(i);
+                File file = files.get(i);
+                futures.add(executor.submit(() -> {
+                    long start = System.currentTimeMillis();
+                    scrapable.add(file);
+                    logger.log(Level.INFO, "Scraper {0} finished in {1} ms", new Object[]{scrapable.getName(), System.currentTimeMillis() - start});
+                    return scrapable.remoteDatabase;
+                }));
+            }
+
+            for (Future<RemoteDatabase> future : futures)
+                remoteDatabase.merge(get(future));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static RemoteDatabase get(Future<RemoteDatabase> future) throws IOException, SAXException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof SAXException)
+                throw (SAXException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.text.ParseException;
+
+/**
+ * Splits lines of CSV into fields, in a single pass, without allocating anything for the fields that are not asked for.
+ * The fields are stored as start and end indices into the line, in buffers that are reused for the next line.
+ * Fields can be enclosed in double quotes, protecting separators; embedded double quotation marks are not considered.
+ * Text between a closing quote and the next separator is ignored. Whitespace before an opening quote is skipped,
+ * and then also trailing whitespace at the end of the line.
+ * Not thread safe; use one instance per thread.
+ */
+final class CsvTokenizer {
+
+    private static final char QUOTE = '"';
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int RADIX = 10;
+
+    private final String separator;
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private int size;
+    private String line;
+
+    /**
+     * @param separator String (typically a comma ",") to use as separator.
+     */
+    CsvTokenizer(String separator) {
+        if (separator.isEmpty())
+            throw new IllegalArgumentException("Empty separator");
+        this.separator = separator;
+    }
+
+    // Same as \s in regular expressions; also used by FlipperParser.
+    static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+    }
+
+    /**
+     * Splits the line into fields.
+     * @param line
+     * @param lineNumber Line number, only used for error messages.
+     * @return Number of fields.
+     * @throws ParseException in the presence of un-balanced quotes.
+     */
+    int split(String line, int lineNumber) throws ParseException {
+        this.line = line;
+        size = 0;
+        int end = line.length();
+        int position = 0;
+        while (true) {
+            if (position < end && line.charAt(position) == ' ') {
+                int quote = position;
+                while (quote < end && isWhitespace(line.charAt(quote)))
+                    quote++;
+                if (quote < end && line.charAt(quote) == QUOTE) {
+                    position = quote;
+                    while (line.charAt(end - 1) <= ' ')
+                        end--;
+                }
+            }
+
+            int separatorIndex;
+            if (position < end && line.charAt(position) == QUOTE) {
+                int closingQuote = line.indexOf(QUOTE, position + 1);
+                if (closingQuote == -1 || closingQuote >= end)
+                    throw new ParseException(line.substring(position), lineNumber);
+                add(position + 1, closingQuote);
+                separatorIndex = line.indexOf(separator, closingQuote);
+            } else {
+                separatorIndex = line.indexOf(separator, position);
+                add(position, separatorIndex == -1 || separatorIndex >= end ? end : separatorIndex);
+            }
+            if (separatorIndex == -1 || separatorIndex >= end)
+                return size;
+            position = separatorIndex + separator.length();
+        }
+    }
+
+    private void add(int start, int end) {
+        if (size == starts.length) {
+            int[] newStarts = new int[2 * size];
+            System.arraycopy(starts, 0, newStarts, 0, size);
+            starts = newStarts;
+            int[] newEnds = new int[2 * size];
+            System.arraycopy(ends, 0, newEnds, 0, size);
+            ends = newEnds;
+        }
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty(int index) {
+        check(index);
+        return starts[index] == ends[index];
+    }
+
+    String getString(int index) {
+        check(index);
+        return line.substring(starts[index], ends[index]);
+    }
+
+    /**
+     * Parses a field as a decimal number, with the same rules as Long.parseLong, but without creating a String.
+     * @param index
+     * @return value
+     * @throws NumberFormatException
+     */
+    long getLong(int index) {
+        check(index);
+        int start = starts[index];
+        int end = ends[index];
+        if (start == end)
+            throw new NumberFormatException("Empty field " + index);
+        boolean negative = false;
+        int position = start;
+        char first = line.charAt(position);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            position++;
+            if (position == end)
+                throw new NumberFormatException("For input string: \"" + line.substring(start, end) + "\"");
+        }
+        // Accumulate negatively, so that Long.MIN_VALUE can be represented.
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long minimum = limit / RADIX;
+        long result = 0L;
+        for (; position < end; position++) {
+            int digit = Character.digit(line.charAt(position), RADIX);
+            if (digit < 0 || result < minimum)
+                throw new NumberFormatException("For input string: \"" + line.substring(start, end) + "\"");
+            result *= RADIX;
+            if (result < limit + digit)
+                throw new NumberFormatException("For input string: \"" + line.substring(start, end) + "\"");
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private void check(int index) {
+        if (index < 0 || index >= size)
+            throw new ArrayIndexOutOfBoundsException(index);
+    }
+}
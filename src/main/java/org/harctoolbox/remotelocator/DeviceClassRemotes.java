@@ -31,6 +31,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import org.harctoolbox.girr.Named;
 import org.harctoolbox.girr.Remote;
 import static org.harctoolbox.remotelocator.RemoteDatabase.REMOTELOCATOR_NAMESPACE;
@@ -67,6 +70,36 @@ public final class DeviceClassRemotes implements Named, Iterable<RemoteLink> {
         }
     }
 
+    /**
+     * Reads an rl:deviceClass element, leaving the reader at its end element.
+     * @param reader XMLStreamReader positioned at the start of an rl:deviceClass element.
+     * @throws XMLStreamException
+     * @throws MalformedURLException
+     * @throws URISyntaxException
+     */
+    DeviceClassRemotes(XMLStreamReader reader) throws XMLStreamException, MalformedURLException, URISyntaxException {
+        this(RemoteDatabase.getAttribute(reader, DEVICECLASS_ATTRIBUTE_NAME));
+        while (true) {
+            reader.next();
+            if (RemoteDatabase.isEndElement(reader, DEVICECLASS_ELEMENT_NAME))
+                break;
+            if (RemoteDatabase.isStartElement(reader, REMOTELINK_ELEMENT_NAME))
+                add(new RemoteLink(reader));
+        }
+    }
+
+    /**
+     * Creates a DeviceClassRemotes with a stand-alone owner, not belonging to any RemoteDatabase.
+     * Remote links added to it thereby know their manufacturer and device class,
+     * until they are put into a RemoteDatabase.
+     * @param manufacturer
+     * @param deviceClass
+     * @return new DeviceClassRemotes
+     */
+    static DeviceClassRemotes detached(String manufacturer, String deviceClass) {
+        return new ManufacturerDeviceClasses((manufacturer == null || manufacturer.isEmpty()) ? RemoteDatabase.UNKNOWN : manufacturer).getOrCreate(deviceClass);
+    }
+
     public int numberRemotes() {
         return remoteLinks.size();
     }
@@ -89,6 +122,13 @@ public final class DeviceClassRemotes implements Named, Iterable<RemoteLink> {
         return remoteLinks.values().iterator();
     }
 
+    /**
+     * @return the remote links, keyed by the (possibly renamed) key under which get finds them.
+     */
+    Map<String, RemoteLink> getRemoteLinks() {
+        return Collections.unmodifiableMap(remoteLinks);
+    }
+
     public Element toElement(Document document) {
         Element element = document.createElementNS(REMOTELOCATOR_NAMESPACE, REMOTELOCATOR_PREFIX + ":" + DEVICECLASS_ELEMENT_NAME);
         element.setAttribute(DEVICECLASS_ATTRIBUTE_NAME, deviceClass);
@@ -98,6 +138,28 @@ public final class DeviceClassRemotes implements Named, Iterable<RemoteLink> {
         return element;
     }
 
+    /**
+     * Writes the rl:deviceClass element, including its content, to the XMLStreamWriter.
+     * @param writer
+     * @throws XMLStreamException
+     */
+    public void write(XMLStreamWriter writer) throws XMLStreamException {
+        RemoteDatabase.indent(writer, 2);
+        if (remoteLinks.isEmpty()) {
+            writer.writeEmptyElement(REMOTELOCATOR_PREFIX, DEVICECLASS_ELEMENT_NAME, REMOTELOCATOR_NAMESPACE);
+            writer.writeAttribute(DEVICECLASS_ATTRIBUTE_NAME, deviceClass);
+            return;
+        }
+        writer.writeStartElement(REMOTELOCATOR_PREFIX, DEVICECLASS_ELEMENT_NAME, REMOTELOCATOR_NAMESPACE);
+        writer.writeAttribute(DEVICECLASS_ATTRIBUTE_NAME, deviceClass);
+        for (RemoteLink remoteLink : this) {
+            RemoteDatabase.indent(writer, 3);
+            remoteLink.write(writer);
+        }
+        RemoteDatabase.indent(writer, 2);
+        writer.writeEndElement();
+    }
+
     void add(ScrapKind kind, Remote remote, URI baseUri, File baseDir, File path, String xpath) {
         RemoteLink remoteLink = new RemoteLink(kind, remote, baseUri, baseDir, path, xpath);
         add(remoteLink);
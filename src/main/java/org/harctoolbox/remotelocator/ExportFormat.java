@@ -0,0 +1,79 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.PrintStream;
+import org.harctoolbox.girr.Command;
+import org.harctoolbox.girr.CommandSet;
+import org.harctoolbox.girr.GirrException;
+import org.harctoolbox.girr.Remote;
+import org.harctoolbox.ircore.IrCoreException;
+import org.harctoolbox.irp.IrpException;
+
+/**
+ * Formats, in which a Remote can be output.
+ */
+public enum ExportFormat {
+    girr(".girr") {
+        @Override
+        public void print(PrintStream out, Remote remote) {
+            remote.print(out, true, true, true);
+        }
+    },
+    pronto(".txt") {
+        @Override
+        public void print(PrintStream out, Remote remote) throws GirrException, IrpException, IrCoreException {
+            for (CommandSet cs : remote) {
+                for (Command c : cs) {
+                    out.println(c.getName());
+                    out.println(c.getProntoHex());
+                    out.println();
+                }
+            }
+        }
+    },
+    csv(".csv") {
+        @Override
+        public void print(PrintStream out, Remote remote) throws IrpException, IrCoreException {
+            IrdbScrap.print(out, remote);
+        }
+    };
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return File extension, including the period.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Prints the remote in this format.
+     * @param out
+     * @param remote
+     * @throws GirrException
+     * @throws IrpException
+     * @throws IrCoreException
+     */
+    public abstract void print(PrintStream out, Remote remote) throws GirrException, IrpException, IrCoreException;
+}
@@ -0,0 +1,70 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Static helpers for local files.
+ */
+final class FileUtils {
+
+    /**
+     * Resolves a relative path, typically taken from a RemoteLink of a downloaded index, against a root directory.
+     * Paths that would lead outside of the root, like "../x", or absolute paths, are rejected.
+     * @param root Root directory
+     * @param path Relative path, with "/" or the platform separator.
+     * @return File below root, with normalized path.
+     * @throws IOException if the path escapes root, or is invalid.
+     */
+    static File resolve(File root, String path) throws IOException {
+        Path rootPath = root.toPath().toAbsolutePath().normalize();
+        Path resolved;
+        try {
+            resolved = rootPath.resolve(path).normalize();
+        } catch (InvalidPathException ex) {
+            throw new IOException("Invalid path " + path, ex);
+        }
+        if (!resolved.startsWith(rootPath) || resolved.equals(rootPath))
+            throw new IOException("Path " + path + " is outside of " + root);
+        return new File(root, rootPath.relativize(resolved).toString());
+    }
+
+    /**
+     * Moves a file, replacing the target, atomically if the file system supports it.
+     * @param from
+     * @param to
+     * @throws IOException
+     */
+    static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private FileUtils() {
+    }
+}
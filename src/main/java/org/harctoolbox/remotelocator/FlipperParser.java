@@ -18,9 +18,9 @@ package org.harctoolbox.remotelocator;
 
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.io.Reader;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -34,12 +34,15 @@ import org.harctoolbox.ircore.IrSignal;
 import org.harctoolbox.ircore.ModulatedIrSequence;
 import org.harctoolbox.ircore.OddSequenceLengthException;
 import org.harctoolbox.ircore.ThisCannotHappenException;
+import static org.harctoolbox.remotelocator.CsvTokenizer.isWhitespace;
 import org.harctoolbox.xml.XmlUtils;
 import org.w3c.dom.Document;
 
 /**
  * This class has only one public functions: parse(Reader), which delivers
  * a CommandSet from a Reader.
+ * The input is scanned character by character into a reused line buffer,
+ * without regular expressions; raw durations are parsed directly into a double array.
  */
 public final class FlipperParser {
 
@@ -52,6 +55,10 @@ public final class FlipperParser {
     private static final String HEADER2 = "Version: 1";
     private static final Double DUMMY_ENDING_GAP = 50000.0;
     private static final char COMMENTCHAR = '#';
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_LINE_LENGTH = 256;
+    private static final int INITIAL_DURATIONS_LENGTH = 256;
+    private static final int MAX_INTEGER_DIGITS = 15;
 
     /**
      * Parses an *.ir file and returns a CommandSet (if successfull).
@@ -80,90 +87,296 @@ public final class FlipperParser {
         }
     }
 
-    private FlipperParser(Reader r) throws IOException, ParseException, GirrException {
-        LineNumberReader reader = new LineNumberReader(r);
-
-        checkHeader(reader);
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private boolean skipLinefeed = false;
+    private int lineNumber = 0;
+
+    // The current line, without its line terminator.
+    private char[] line = new char[INITIAL_LINE_LENGTH];
+    private int lineLength = 0;
+
+    // The command being read; reset by clearCommand().
+    private boolean empty;
+    private String name;
+    private String type;
+    private String protocol;
+    private long address;
+    private boolean hasAddress;
+    private long command;
+    private boolean hasCommand;
+    private String frequency;
+    private String dutyCycle;
+    private double[] durations = new double[INITIAL_DURATIONS_LENGTH];
+    private int noDurations;
+
+    private FlipperParser(Reader reader) throws IOException, ParseException, GirrException {
+        this.reader = reader;
+        checkHeader();
         while (true) {
-            Command command = parseCommand(reader);
-            if (command == null) {
+            Command cmd = parseCommand();
+            if (cmd == null) {
                 break;
             }
-            commands.put(command.getName(), command);
+            commands.put(cmd.getName(), cmd);
         }
     }
 
-    private void checkHeader(LineNumberReader reader) throws IOException, ParseException {
-        checkLine(reader, HEADER1);
-        checkLine(reader, HEADER2);
-        reader.readLine();
+    private void checkHeader() throws IOException, ParseException {
+        checkLine(HEADER1);
+        checkLine(HEADER2);
+        readLine();
     }
 
-    private void checkLine(LineNumberReader reader, String expected) throws IOException, ParseException {
-        String line = nonCommentLineRead(reader);
-        if (!line.equals(expected)) {
-            throw new ParseException(line, reader.getLineNumber());
+    private void checkLine(String expected) throws IOException, ParseException {
+        boolean found;
+        do {
+            found = readLine();
+        } while (found && isComment());
+        if (!found || !lineEquals(expected)) {
+            throw new ParseException(found ? new String(line, 0, lineLength) : "Premature end of file", lineNumber);
         }
     }
 
-    private String nonCommentLineRead(LineNumberReader reader) throws IOException {
-        String line;
-        do {
-            line = reader.readLine();
-        } while (isComment(line));
-        return line;
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
     }
 
-    private Command parseCommand(LineNumberReader reader) throws IOException, ParseException, GirrException {
-        Map<String, String> map = new HashMap<>(16);
-        while (true) {
-            String line = reader.readLine();
-            if (line == null) {
-                if (map.isEmpty()) {
-                    return null;
-                } else {
-                    break;
-                }
-            }
-            if (isComment(line)) {
-                if (map.isEmpty() || line.trim().length() > 1) {
+    /**
+     * Reads the next line into line/lineLength, with the same line terminators as BufferedReader.readLine.
+     * @return false at end of file.
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        int ch = read();
+        if (skipLinefeed) {
+            skipLinefeed = false;
+            if (ch == '\n')
+                ch = read();
+        }
+        if (ch == -1)
+            return false;
+
+        while (ch != -1 && ch != '\n' && ch != '\r') {
+            if (lineLength == line.length)
+                line = Arrays.copyOf(line, 2 * lineLength);
+            line[lineLength++] = (char) ch;
+            ch = read();
+        }
+        skipLinefeed = ch == '\r';
+        lineNumber++;
+        return true;
+    }
+
+    private Command parseCommand() throws IOException, ParseException, GirrException {
+        clearCommand();
+        while (readLine()) {
+            if (isComment()) {
+                if (empty || !isSeparator()) {
                     continue;
                 } else {
                     break;
                 }
             }
-            String[] chunks = line.split(":\\s+");
-            map.put(chunks[0], chunks[1]);
+            parseLine();
         }
+        return empty ? null : mkCommand();
+    }
+
+    private void clearCommand() {
+        empty = true;
+        name = null;
+        type = null;
+        protocol = null;
+        hasAddress = false;
+        hasCommand = false;
+        frequency = null;
+        dutyCycle = null;
+        noDurations = 0;
+    }
+
+    // Lines are "key: value", where the value extends to the next colon followed by white space, if any.
+    private void parseLine() throws ParseException {
+        int keyEnd = nextSeparator(0);
+        if (keyEnd == -1)
+            throw new ParseException(new String(line, 0, lineLength), lineNumber);
+
+        int start = keyEnd + 1;
+        while (start < lineLength && isWhitespace(line[start]))
+            start++;
+        int end = nextSeparator(start);
+        if (end == -1)
+            end = lineLength;
+
+        empty = false;
+        if (keyEquals("name", keyEnd))
+            name = new String(line, start, end - start);
+        else if (keyEquals("type", keyEnd))
+            type = new String(line, start, end - start);
+        else if (keyEquals("protocol", keyEnd))
+            protocol = new String(line, start, end - start);
+        else if (keyEquals("address", keyEnd)) {
+            address = parseHex(start, end);
+            hasAddress = true;
+        } else if (keyEquals("command", keyEnd)) {
+            command = parseHex(start, end);
+            hasCommand = true;
+        } else if (keyEquals("frequency", keyEnd))
+            frequency = new String(line, start, end - start);
+        else if (keyEquals("duty_cycle", keyEnd))
+            dutyCycle = new String(line, start, end - start);
+        else if (keyEquals("data", keyEnd))
+            parseDurations(start, end);
+        // other keys are ignored
+    }
+
+    private Command mkCommand() throws ParseException, GirrException {
+        if (type == null)
+            throw new ParseException("Neither raw nor protocol", lineNumber);
 
-        Command command = null;
-        switch (map.get("type")) {
-            case "raw": {
+        switch (type) {
+            case "raw":
                 try {
-                    IrSequence irSequence = new IrSequence(map.get("data"), DUMMY_ENDING_GAP);
-                    ModulatedIrSequence modulatedIrSequence = new ModulatedIrSequence(irSequence, Double.valueOf(map.get("frequency")), Double.valueOf(map.get("duty_cycle")));
-                    command = new Command(map.get("name"), null, new IrSignal(modulatedIrSequence));
+                    IrSequence irSequence = new IrSequence(Arrays.copyOf(durations, noDurations), DUMMY_ENDING_GAP);
+                    ModulatedIrSequence modulatedIrSequence = new ModulatedIrSequence(irSequence, parseDouble(frequency, "frequency"), parseDouble(dutyCycle, "duty_cycle"));
+                    return new Command(name, null, new IrSignal(modulatedIrSequence));
                 } catch (OddSequenceLengthException ex) {
                     throw new ThisCannotHappenException();
                 }
-            }
-            break;
 
             case "parsed":
-                command = processParsedCommand(map.get("name"), map.get("protocol"), parse(map.get("address")), parse(map.get("command")));
-                break;
+                if (protocol == null || !hasAddress || !hasCommand)
+                    throw new ParseException("Parsed command without protocol, address, or command", lineNumber);
+                return processParsedCommand(name, protocol, address, command);
 
             default:
-                throw new ParseException("Neither raw nor protocol", reader.getLineNumber());
+                throw new ParseException("Neither raw nor protocol", lineNumber);
+        }
+    }
+
+    private double parseDouble(String str, String key) throws ParseException {
+        if (str == null)
+            throw new ParseException("Raw command without " + key, lineNumber);
+        try {
+            return Double.parseDouble(str);
+        } catch (NumberFormatException ex) {
+            throw new ParseException(str, lineNumber);
         }
-        return command;
     }
 
-    private long parse(String str) {
-        return Long.parseLong(str.replace(" ", ""), 16);
+    // Hex bytes like "07 00 00 00", spaces ignored.
+    private long parseHex(int start, int end) throws ParseException {
+        long result = 0L;
+        boolean any = false;
+        for (int i = start; i < end; i++) {
+            char ch = line[i];
+            if (ch == ' ')
+                continue;
+            int digit = Character.digit(ch, 16);
+            if (digit < 0 || (result >>> 59) != 0L)
+                throw new ParseException(new String(line, start, end - start), lineNumber);
+            result = (result << 4) | digit;
+            any = true;
+        }
+        if (!any)
+            throw new ParseException("Empty hex number", lineNumber);
+        return result;
+    }
+
+    // White space separated durations, in the common case unsigned integers.
+    private void parseDurations(int start, int end) throws ParseException {
+        noDurations = 0;
+        int i = start;
+        while (true) {
+            while (i < end && isWhitespace(line[i]))
+                i++;
+            if (i == end)
+                break;
+
+            int tokenStart = i;
+            long value = 0L;
+            boolean integer = true;
+            while (i < end && !isWhitespace(line[i])) {
+                char ch = line[i];
+                if (integer && ch >= '0' && ch <= '9' && i - tokenStart < MAX_INTEGER_DIGITS)
+                    value = 10L * value + (ch - '0');
+                else
+                    integer = false;
+                i++;
+            }
+
+            if (noDurations == durations.length)
+                durations = Arrays.copyOf(durations, 2 * noDurations);
+            durations[noDurations++] = integer ? value : parseDuration(tokenStart, i);
+        }
+    }
+
+    private double parseDuration(int start, int end) throws ParseException {
+        String token = new String(line, start, end - start);
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException ex) {
+            throw new ParseException(token, lineNumber);
+        }
+    }
+
+    // Index of the next colon followed by white space, starting at from, or -1.
+    private int nextSeparator(int from) {
+        for (int i = from; i < lineLength - 1; i++)
+            if (line[i] == ':' && isWhitespace(line[i + 1]))
+                return i;
+        return -1;
     }
 
-    private Command processParsedCommand(String name, String protocol, long address, long cmd) throws GirrException {
+    private boolean keyEquals(String key, int keyLength) {
+        if (keyLength != key.length())
+            return false;
+        for (int i = 0; i < keyLength; i++)
+            if (line[i] != key.charAt(i))
+                return false;
+        return true;
+    }
+
+    private boolean lineEquals(String str) {
+        return keyEquals(str, lineLength);
+    }
+
+    private int firstNonBlank() {
+        int i = 0;
+        while (i < lineLength && line[i] <= ' ')
+            i++;
+        return i;
+    }
+
+    private int lastNonBlank() {
+        int i = lineLength - 1;
+        while (i >= 0 && line[i] <= ' ')
+            i--;
+        return i;
+    }
+
+    // Empty lines, blank lines, and lines starting with COMMENTCHAR.
+    private boolean isComment() {
+        int first = firstNonBlank();
+        return first == lineLength || line[first] == COMMENTCHAR;
+    }
+
+    // A comment without text, like "#", ends a command.
+    private boolean isSeparator() {
+        return lastNonBlank() - firstNonBlank() < 1;
+    }
+
+    static Command processParsedCommand(String name, String protocol, long address, long cmd) throws GirrException {
         String protocolName;
         Map<String, Long> parameters = new HashMap<>(4);
 
@@ -299,8 +512,4 @@ public final class FlipperParser {
         }
         return new Command(name, null, null, null, protocolName, parameters, false);
     }
-
-    private boolean isComment(String line) {
-        return line.isEmpty() || line.trim().charAt(0) == COMMENTCHAR;
-    }
 }
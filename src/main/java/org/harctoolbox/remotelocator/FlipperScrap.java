@@ -19,24 +19,24 @@ package org.harctoolbox.remotelocator;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.harctoolbox.girr.Command;
 import org.harctoolbox.girr.CommandSet;
 import org.harctoolbox.girr.GirrException;
 import org.harctoolbox.girr.Remote;
-import org.harctoolbox.ircore.ThisCannotHappenException;
-import org.harctoolbox.irp.IrpDatabase;
-import org.harctoolbox.irp.IrpParseException;
 import org.xml.sax.SAXException;
 
 public final class FlipperScrap extends Girrable {
@@ -51,20 +51,9 @@ public final class FlipperScrap extends Girrable {
     public static final String FLIPPER_BASE    = DELIVERY_SERVICE +  "Lucaslhm/Flipper-IRDB@main/";
     public static final URI FLIPPER_BASE_URI   = URI.create(FLIPPER_BASE);
     private static final String FLIPPER_NAME   = "flipper";
-    private static final IrpDatabase irpDatabase;
     private static final String FLIPPER_REMOTE_ENDING = ".ir";
     private static final int FLIPPER_REMOTE_ENDING_LENGTH = FLIPPER_REMOTE_ENDING.length();
 
-    static {
-        // Unfortunately, this forces IrpProtocol.xml to be parsed twice :-(
-        try {
-            irpDatabase = new IrpDatabase((String) null);
-            Command.setIrpDatabase(irpDatabase);
-        } catch (IOException | IrpParseException | SAXException ex) {
-            throw new ThisCannotHappenException(ex);
-        }
-    }
-
     public static RemoteDatabase scrap(File baseDir) throws IOException, SAXException {
         FlipperScrap flipper = new FlipperScrap();
         return flipper.scrapSort(baseDir);
@@ -75,29 +64,49 @@ public final class FlipperScrap extends Girrable {
             logger.log(Level.WARNING, "{0} is not a regular and readable file, ignored.", new Object[]{file});
             return null;
         }
-        String remoteName = file.getName();
-        if (remoteName.endsWith(FLIPPER_REMOTE_ENDING)) {
-            remoteName = remoteName.substring(0, remoteName.length() - FLIPPER_REMOTE_ENDING_LENGTH);
+        return parseFile(file, manufacturer, deviceClass);
+    }
+
+    private static String remoteName(File file) {
+        String name = file.getName();
+        if (!name.endsWith(FLIPPER_REMOTE_ENDING)) {
+            logger.log(Level.WARNING, "File {0} does not end with \"" + FLIPPER_REMOTE_ENDING + "\", ignored", file);
+            return null;
         }
-        else {
-            logger.log(Level.WARNING, "File {0} does not end with \"" + FLIPPER_REMOTE_ENDING + "\", ignored", file.getCanonicalPath());
+        return name.substring(0, name.length() - FLIPPER_REMOTE_ENDING_LENGTH);
+    }
+
+    /**
+     * Parses a file known to be a regular file, without further checks.
+     * @return Remote, or null if the file has the wrong extension, or cannot be opened.
+     */
+    private static Remote parseFile(File file, String manufacturer, String deviceClass) throws IOException, ParseException, GirrException {
+        String remoteName = remoteName(file);
+        if (remoteName == null)
             return null;
+        FileInputStream inputStream;
+        try {
+            inputStream = new FileInputStream(file);
+        } catch (FileNotFoundException ex) {
+            logger.log(Level.WARNING, "{0} is not a regular and readable file, ignored.", new Object[]{file});
+            return null;
+        }
+        try (InputStreamReader reader = new InputStreamReader(inputStream, FLIPPER_CHARSET)) {
+            return parse(reader, manufacturer, deviceClass, remoteName, file.getPath());
         }
-        //System.err.println("$$$$$$$$$$$$$ " + file.getCanonicalPath());
-        return parse(new InputStreamReader(new FileInputStream(file), FLIPPER_CHARSET), manufacturer, deviceClass, remoteName, file.getPath());
     }
 
     public static Remote parse(RemoteLink remoteLink, String manufacturer, String deviceClass, String remoteName) throws IOException, ParseException, GirrException {
         if (remoteLink.getKind() != ScrapKind.flipper)
             return null;
 
-        try (InputStream inputStream = remoteLink.getUrl().openStream(); InputStreamReader inputStreamReader = new InputStreamReader(inputStream, FLIPPER_CHARSET)) {
+        try (InputStream inputStream = HttpFetcher.getInstance().openStream(remoteLink.getUrl()); InputStreamReader inputStreamReader = new InputStreamReader(inputStream, FLIPPER_CHARSET)) {
             return parse(inputStreamReader, manufacturer, deviceClass, remoteName, remoteLink.getUrl().toString());
         }
     }
 
     public static Remote parse(URL url, String manufacturer, String deviceClass, String remoteName) throws IOException, ParseException, GirrException {
-        try (InputStream inputStream = url.openStream(); InputStreamReader inputStreamReader = new InputStreamReader(inputStream, FLIPPER_CHARSET)) {
+        try (InputStream inputStream = HttpFetcher.getInstance().openStream(url); InputStreamReader inputStreamReader = new InputStreamReader(inputStream, FLIPPER_CHARSET)) {
             return parse(inputStreamReader, manufacturer, deviceClass, remoteName, url.toString());
         }
     }
@@ -126,71 +135,108 @@ public final class FlipperScrap extends Girrable {
     @Override
     public void add(File dir) throws IOException {
         remoteDatabase.addKind(ScrapKind.flipper);
-        addDeviceTypesDirectory(FLIPPER_BASE_URI, dir);
+        addManifestRoot(dir);
+        if (Archive.isArchive(dir))
+            addArchive(FLIPPER_BASE_URI, dir);
+        else
+            addDeviceTypesDirectory(FLIPPER_BASE_URI, dir);
     }
 
-    private void addDeviceTypesDirectory(URI uriBase, File baseDir) throws IOException {
-        assertReadableDirectory(baseDir);
-
-        String[] deviceTypes = baseDir.list((File dir, String name) -> Character.isAlphabetic(name.charAt(0)));
-        for (String devType : deviceTypes) {
-            addDeviceType(uriBase, baseDir, devType, new File(baseDir, devType));
-        }
+    @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
+    private void addArchive(URI uriBase, File archive) throws IOException {
+        Archive.visitEntries(archive, "", (Archive.Entry entry) -> {
+            String[] components = entry.getPathComponents();
+            if (components.length < 3 || !Character.isAlphabetic(components[0].charAt(0))) {
+                logger.log(Level.FINE, "Archive entry {0} is not a remote, ignored.", entry.getFile());
+                return;
+            }
+            // As in addRemote, junk files in subdirectories of the manufacturer are skipped.
+            for (int i = 3; i < components.length; i++)
+                if (components[i].endsWith("~"))
+                    return;
+            String manufacturer = components[1];
+            ManufacturerDeviceClasses manufacturerTypes = remoteDatabase.getOrCreate(manufacturer);
+            DeviceClassRemotes devices = manufacturerTypes.getOrCreate(components[0]);
+            try {
+                scrapFile(entry, (File file) -> {
+                    try {
+                        String remoteName = remoteName(file);
+                        Remote remote = remoteName != null
+                                ? parse(new InputStreamReader(entry.getInputStream(), FLIPPER_CHARSET), manufacturer, devices.getName(), remoteName, file.getPath())
+                                : null;
+                        return remote != null
+                                ? Collections.singletonList(new RemoteLink(ScrapKind.flipper, remote, uriBase, archive, file))
+                                : Collections.emptyList();
+                    } catch (ParseException | GirrException ex) {
+                        logger.log(Level.SEVERE, "Parse error in file {0}, ignored", file.toString());
+                        return Collections.emptyList();
+                    }
+                }).forEach(devices::add);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Parse error in file {0}, ignored", entry.getFile().toString());
+            }
+        });
     }
 
-    private void addDeviceType(URI uriBase, File baseDir, String deviceType, File dir) throws IOException {
-        if (!isReadableDirectory(dir)) {
-            logger.log(Level.WARNING, "File {0} is not a readable directory, skipping", dir.getCanonicalPath());
-            return;
-        }
+    private void addDeviceTypesDirectory(URI uriBase, File baseDir) throws IOException {
+        boolean readable = visitEntries(baseDir, (File dir, BasicFileAttributes attributes) -> {
+            if (Character.isAlphabetic(dir.getName().charAt(0)))
+                addDeviceType(uriBase, baseDir, dir.getName(), dir, attributes);
+        });
+        if (!readable)
+            throw new IOException(baseDir + " is not a readable directory");
+    }
 
-        String[] manufacturers = dir.list();
-        for (String manufacturer : manufacturers) {
-            addManifacturer(uriBase, baseDir, manufacturer, deviceType, new File(dir, manufacturer));
-        }
+    private void addDeviceType(URI uriBase, File baseDir, String deviceType, File dir, BasicFileAttributes attributes) throws IOException {
+        boolean readable = attributes.isDirectory() && visitEntries(dir,
+                (File manufacturerDir, BasicFileAttributes manufacturerAttributes) -> addManifacturer(uriBase, baseDir, manufacturerDir.getName(), deviceType, manufacturerDir, manufacturerAttributes));
+        if (!readable)
+            logger.log(Level.WARNING, "File {0} is not a readable directory, skipping", dir);
     }
 
-    private void addManifacturer(URI uriBase, File baseDir, String manifacturer, String deviceType, File dir) throws IOException {
-        if (!isReadableDirectory(dir)) {
+    private void addManifacturer(URI uriBase, File baseDir, String manifacturer, String deviceType, File dir, BasicFileAttributes attributes) throws IOException {
+        if (!attributes.isDirectory()) {
             logger.log(Level.WARNING, "Non-directory: {0}, ignored.", dir);
             return;
         }
-//        if (manifacturer.equals("Yarra"))
-//            System.err.println("sdfsdsd");
         ManufacturerDeviceClasses manufacturerTypes = remoteDatabase.getOrCreate(manifacturer);
         DeviceClassRemotes devType = manufacturerTypes.getOrCreate(deviceType);
-        String[] remotes = dir.list();
-        for (String remoteFileName : remotes) {
-            addRemote(uriBase, baseDir, devType, manifacturer, /*deviceType,*/ remoteFileName, new File(dir, remoteFileName), "");
-//            remoteDatabase.removeIfEmpty(manufacturerTypes);
+        boolean readable = visitEntries(dir,
+                (File file, BasicFileAttributes fileAttributes) -> addRemote(uriBase, baseDir, devType, manifacturer, file, fileAttributes, ""));
+        if (!readable) {
+            logger.log(Level.WARNING, "Non-directory: {0}, ignored.", dir);
+            manufacturerTypes.removeIfEmpty(devType);
+            remoteDatabase.removeIfEmpty(manufacturerTypes);
         }
     }
 
     @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
-    private void addRemote(URI uriBase, File baseDir, DeviceClassRemotes devices, String manifacturer, String remoteFileName, File file, String prefix) throws IOException {
-        if (isReadableDirectory(file)) {
+    private void addRemote(URI uriBase, File baseDir, DeviceClassRemotes devices, String manifacturer, File file, BasicFileAttributes attributes, String prefix) throws IOException {
+        if (attributes.isDirectory()) {
             // Can be junk file; non-fatal
-            //logger.log(Level.WARNING, "File {0} is not a readable directory, ignored.", dir);
-            //return;
-            //}
-
-            String[] array = file.list();
-            for (String remoteName : array) {
-                if (remoteName.endsWith("~")) {
-                    continue;
-                }
-
-                File f = new File(file, remoteName);
-                addRemote(uriBase, baseDir, devices, manifacturer, remoteFileName, f, prefix + f.getName() + "$");
-            }
+            boolean readable = visitEntries(file, (File f, BasicFileAttributes fileAttributes) -> {
+                if (!f.getName().endsWith("~"))
+                    addRemote(uriBase, baseDir, devices, manifacturer, f, fileAttributes, prefix + f.getName() + "$");
+            });
+            if (!readable)
+                logger.log(Level.WARNING, "File {0} is not a readable directory, ignored.", file);
+        } else if (!attributes.isRegularFile()) {
+            logger.log(Level.WARNING, "{0} is not a regular and readable file, ignored.", new Object[]{file});
         } else {
             try {
-                Remote remote = parse(file, manifacturer, devices.getName());
-                if (remote != null) {
-                    RemoteLink remoteLink = new RemoteLink(ScrapKind.flipper, remote, uriBase, baseDir, file);
-                    devices.add(remoteLink);
-                }
-            } catch (IOException | ParseException | GirrException ex) {
+                List<RemoteLink> remoteLinks = scrapFile(file, attributes, (File f) -> {
+                    try {
+                        Remote remote = parseFile(f, manifacturer, devices.getName());
+                        return remote != null
+                                ? Collections.singletonList(new RemoteLink(ScrapKind.flipper, remote, uriBase, baseDir, f))
+                                : Collections.emptyList();
+                    } catch (ParseException | GirrException ex) {
+                        logger.log(Level.SEVERE, "Parse error in file {0}, ignored", f.toString());
+                        return Collections.emptyList();
+                    }
+                });
+                remoteLinks.forEach(devices::add);
+            } catch (IOException ex) {
                 logger.log(Level.SEVERE, "Parse error in file {0}, ignored", file.toString());
             }
         }
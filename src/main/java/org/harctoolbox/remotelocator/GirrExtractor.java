@@ -0,0 +1,199 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.Reader;
+import java.util.function.BiPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.harctoolbox.girr.GirrException;
+import org.harctoolbox.girr.Remote;
+import static org.harctoolbox.girr.XmlStatic.NAME_ATTRIBUTE_NAME;
+import static org.harctoolbox.girr.XmlStatic.REMOTES_ELEMENT_NAME;
+import static org.harctoolbox.girr.XmlStatic.REMOTE_ELEMENT_NAME;
+import org.harctoolbox.xml.XmlUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Extracts a single remote from a Girr file, without building a DOM of the entire file.
+ * The file is read with a streaming (StAX) parser, skipping everything up to the wanted remote element,
+ * and only that element is built into a DOM, from which the Remote is constructed.
+ * Handles the XPaths generated by GirrScrap, i.e. {@code /remote} and {@code remotes/remote[@name='...']}.
+ */
+final class GirrExtractor {
+
+    private static final String TOP_REMOTE_XPATH = "/" + REMOTE_ELEMENT_NAME;
+    private static final Pattern NAMED_REMOTE_XPATH = Pattern.compile(REMOTES_ELEMENT_NAME + "/" + REMOTE_ELEMENT_NAME
+            + "\\[@" + NAME_ATTRIBUTE_NAME + "='([^']*)'\\]");
+    private static final XMLInputFactory xmlInputFactory = newXmlInputFactory();
+
+    private static XMLInputFactory newXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Creates an extractor for the xpath argument, if it is of a supported form.
+     * @param xpath
+     * @return GirrExtractor, or null if xpath is not supported.
+     */
+    static GirrExtractor newExtractor(String xpath) {
+        if (xpath == null)
+            return null;
+        if (xpath.equals(TOP_REMOTE_XPATH))
+            return new GirrExtractor(null);
+        Matcher matcher = NAMED_REMOTE_XPATH.matcher(xpath);
+        return matcher.matches() ? new GirrExtractor(matcher.group(1)) : null;
+    }
+
+    // null for the top level remote element
+    private final String remoteName;
+
+    private GirrExtractor(String remoteName) {
+        this.remoteName = remoteName;
+    }
+
+    /**
+     * Reads the reader argument up to the wanted remote, and returns it.
+     * @param reader
+     * @param source Textual description of the source, for the Remote.
+     * @return Remote, or null if not found.
+     * @throws XMLStreamException
+     * @throws GirrException
+     */
+    Remote extract(Reader reader, String source) throws XMLStreamException, GirrException {
+        Element element = extractElement(reader);
+        return element != null ? new Remote(element, source) : null;
+    }
+
+    Element extractElement(Reader reader) throws XMLStreamException {
+        XMLStreamReader xmlReader = xmlInputFactory.createXMLStreamReader(reader);
+        try {
+            xmlReader.nextTag();
+            if (remoteName == null)
+                return xmlReader.getLocalName().equals(REMOTE_ELEMENT_NAME) ? build(xmlReader) : null;
+
+            if (!xmlReader.getLocalName().equals(REMOTES_ELEMENT_NAME))
+                return null;
+
+            // Consider the children of the top level element only, skipping all other elements with their content.
+            while (xmlReader.hasNext()) {
+                int event = xmlReader.next();
+                if (event == XMLStreamConstants.END_ELEMENT)
+                    return null;
+                if (event != XMLStreamConstants.START_ELEMENT)
+                    continue;
+                if (xmlReader.getLocalName().equals(REMOTE_ELEMENT_NAME) && remoteName.equals(xmlReader.getAttributeValue(null, NAME_ATTRIBUTE_NAME)))
+                    return build(xmlReader);
+                skipElement(xmlReader);
+            }
+            return null;
+        } finally {
+            xmlReader.close();
+        }
+    }
+
+    static void skipElement(XMLStreamReader xmlReader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    /**
+     * Builds a DOM of the current element of the reader, which is left at its end tag.
+     */
+    private static Element build(XMLStreamReader xmlReader) throws XMLStreamException {
+        return build(xmlReader, null);
+    }
+
+    /**
+     * Builds a DOM of the current element of the reader, which is left at its end tag.
+     * @param xmlReader
+     * @param skip If non-null, called for every start tag below the top element, with the element to be its parent,
+     * and the reader positioned at the start tag. If it returns true, the element, with its content, is left out.
+     * @return Element
+     * @throws XMLStreamException
+     */
+    static Element build(XMLStreamReader xmlReader, BiPredicate<Element, XMLStreamReader> skip) throws XMLStreamException {
+        Document document = XmlUtils.newDocument(true);
+        Node parent = document;
+        do {
+            switch (xmlReader.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (skip != null && parent != document && skip.test((Element) parent, xmlReader)) {
+                        skipElement(xmlReader);
+                        break;
+                    }
+                    Element element = document.createElementNS(emptyToNull(xmlReader.getNamespaceURI()), qualifiedName(xmlReader.getPrefix(), xmlReader.getLocalName()));
+                    for (int i = 0; i < xmlReader.getNamespaceCount(); i++) {
+                        String prefix = xmlReader.getNamespacePrefix(i);
+                        element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                                prefix == null || prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix,
+                                xmlReader.getNamespaceURI(i));
+                    }
+                    for (int i = 0; i < xmlReader.getAttributeCount(); i++)
+                        element.setAttributeNS(emptyToNull(xmlReader.getAttributeNamespace(i)),
+                                qualifiedName(xmlReader.getAttributePrefix(i), xmlReader.getAttributeLocalName(i)),
+                                xmlReader.getAttributeValue(i));
+                    parent.appendChild(element);
+                    parent = element;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    parent = parent.getParentNode();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    parent.appendChild(document.createTextNode(xmlReader.getText()));
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    parent.appendChild(document.createComment(xmlReader.getText()));
+                    break;
+                default:
+                    break;
+            }
+            if (parent == document)
+                break;
+            xmlReader.next();
+        } while (true);
+        return document.getDocumentElement();
+    }
+
+    private static String emptyToNull(String string) {
+        return string == null || string.isEmpty() ? null : string;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+}
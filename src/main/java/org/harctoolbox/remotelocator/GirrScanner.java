@@ -0,0 +1,102 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import static org.harctoolbox.girr.XmlStatic.COMMANDSET_ELEMENT_NAME;
+import static org.harctoolbox.girr.XmlStatic.COMMAND_ELEMENT_NAME;
+import static org.harctoolbox.girr.XmlStatic.REMOTE_ELEMENT_NAME;
+import static org.harctoolbox.xml.XmlUtils.XINCLUDE_NAMESPACE_URI;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Reads the parts of a Girr file that are needed for indexing, without building a DOM of the entire file.
+ * The top level element is built with all of its remotes and their attributes,
+ * but of every remote only the first command set, and of that, only the first command, is kept.
+ * This is what RemoteLink.Summary uses; the remaining commands are skipped by the streaming (StAX) parser.
+ * Since XInclude is not supported by StAX, files using it must be read in full, see {@link #scan(File)}.
+ */
+final class GirrScanner {
+
+    private static final XMLInputFactory xmlInputFactory = RemoteDatabase.newXMLInputFactory();
+
+    /**
+     * Reads the file argument into a pruned DOM.
+     * @param file Girr file.
+     * @return Top level element, or null if the file uses XInclude, and must be read with an XInclude aware parser.
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    static Element scan(File file) throws IOException, XMLStreamException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return scan(inputStream, file.toURI().toString());
+        }
+    }
+
+    /**
+     * Like {@link #scan(File)}, reading from an InputStream, which is not closed.
+     * @param inputStream Girr file content.
+     * @param systemId System id of the content.
+     * @return Top level element, or null if the content uses XInclude.
+     * @throws XMLStreamException
+     */
+    static Element scan(InputStream inputStream, String systemId) throws XMLStreamException {
+        XMLStreamReader xmlReader = xmlInputFactory.createXMLStreamReader(systemId, inputStream);
+        try {
+            xmlReader.nextTag();
+            GirrScanner scanner = new GirrScanner();
+            Element element = GirrExtractor.build(xmlReader, scanner::skip);
+            return scanner.xinclude ? null : element;
+        } finally {
+            xmlReader.close();
+        }
+    }
+
+    private static boolean hasChildElement(Element element, String localName) {
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling())
+            if (node.getNodeType() == Node.ELEMENT_NODE && localName.equals(node.getLocalName()))
+                return true;
+        return false;
+    }
+
+    private boolean xinclude = false;
+
+    private GirrScanner() {
+    }
+
+    private boolean skip(Element parent, XMLStreamReader xmlReader) {
+        if (XINCLUDE_NAMESPACE_URI.equals(xmlReader.getNamespaceURI())) {
+            xinclude = true;
+            return false;
+        }
+        String localName = xmlReader.getLocalName();
+        if (localName.equals(COMMANDSET_ELEMENT_NAME) && parent.getLocalName().equals(REMOTE_ELEMENT_NAME))
+            return hasChildElement(parent, COMMANDSET_ELEMENT_NAME);
+        if (localName.equals(COMMAND_ELEMENT_NAME) && parent.getLocalName().equals(COMMANDSET_ELEMENT_NAME))
+            return hasChildElement(parent, COMMAND_ELEMENT_NAME);
+        return false;
+    }
+}
@@ -21,8 +21,19 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
@@ -30,6 +41,7 @@ import javax.xml.xpath.XPathFactory;
 import org.harctoolbox.girr.GirrException;
 import org.harctoolbox.girr.Remote;
 import org.harctoolbox.girr.RemoteSet;
+import org.harctoolbox.ircore.ThisCannotHappenException;
 import static org.harctoolbox.girr.XmlStatic.NAME_ATTRIBUTE_NAME;
 import static org.harctoolbox.girr.XmlStatic.REMOTES_ELEMENT_NAME;
 import static org.harctoolbox.girr.XmlStatic.REMOTE_ELEMENT_NAME;
@@ -37,6 +49,7 @@ import org.harctoolbox.xml.XmlUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 public class GirrScrap extends Girrable {
@@ -45,6 +58,8 @@ public class GirrScrap extends Girrable {
     public static final String GIRRLIB_BASE = DELIVERY_SERVICE + "bengtmartensson/GirrLib@master/Girr/";
     public static final URI GIRRLIB_BASE_URI= URI.create(GIRRLIB_BASE);
     private static final String GIRR_NAME = "girr";
+    private static final String GIRR_ARCHIVE_DIRECTORY = "Girr";
+    private static final int INITIAL_CAPACITY = 1024;
     private static final String[] junkExtensions = {
         ".xsl",
         ".jpg",
@@ -70,65 +85,201 @@ public class GirrScrap extends Girrable {
         return GIRR_NAME;
     }
 
+    /**
+     * Reads a Girr file of an archive, using XInclude. Included files are taken from the archive.
+     * @param entry Archive entry
+     * @param entries All Girr files of the archive, keyed by the URI of their {@link Archive.Entry#getFile()}.
+     * @return Top level element
+     */
+    private static Element parseXInclude(Archive.Entry entry, Map<String, Archive.Entry> entries) throws IOException, SAXException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setXIncludeAware(true);
+        DocumentBuilder builder;
+        try {
+            builder = factory.newDocumentBuilder();
+        } catch (ParserConfigurationException ex) {
+            throw new ThisCannotHappenException(ex);
+        }
+        builder.setEntityResolver((String publicId, String systemId) -> {
+            Archive.Entry included = entries.get(systemId);
+            if (included == null)
+                throw new SAXException(systemId + " not found in archive");
+            InputSource inputSource = new InputSource(included.getInputStream());
+            inputSource.setSystemId(systemId);
+            return inputSource;
+        });
+        InputSource inputSource = new InputSource(entry.getInputStream());
+        inputSource.setSystemId(entry.getFile().toURI().toString());
+        return builder.parse(inputSource).getDocumentElement();
+    }
+
+    /**
+     * Adds the remotes of the directory argument, recursively, or, if it is an archive (zip or tar.gz) of GirrLib,
+     * of its "Girr" directory.
+     * @param dir Directory or archive.
+     * @throws IOException
+     * @throws SAXException
+     */
     @Override
     public void add(File dir) throws IOException, SAXException {
         remoteDatabase.addKind(ScrapKind.girr);
-        addRecursive(GIRRLIB_BASE_URI, dir, dir);
+        addManifestRoot(dir);
+        if (Archive.isArchive(dir)) {
+            addArchive(GIRRLIB_BASE_URI, dir);
+            return;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(dir.toPath(), BasicFileAttributes.class);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Unknown file {0}", dir.toString());
+            return;
+        }
+        addRecursive(GIRRLIB_BASE_URI, dir, dir, attributes);
     }
 
-    private void addRecursive(URI uriBase, File baseDir, File file) throws IOException {
-        if (file.isDirectory()) {
-            assertReadableDirectory(file);
-
-            String[] files = file.list();
-            for (String f : files)
-                addRecursive(uriBase, baseDir, new File(file, f));
+    private void addRecursive(URI uriBase, File baseDir, File file, BasicFileAttributes attributes) throws IOException {
+        if (attributes.isDirectory()) {
+            if (!visitEntries(file, (File f, BasicFileAttributes fileAttributes) -> addRecursive(uriBase, baseDir, f, fileAttributes)))
+                throw new IOException(file + " is not a readable directory");
         } else if (ignoreByExtension(file.getName())) {
             logger.log(Level.FINE, "File {0} ignored due to its extension", file.toString());
-        } else if (file.isFile()) {
+        } else if (attributes.isRegularFile()) {
             try {
-                add(XmlUtils.openXmlFile(file), uriBase, baseDir, file);
-            } catch (IOException | SAXException ex) {
+                scrapFile(file, attributes, (File f) -> parse(uriBase, baseDir, f)).forEach(this::put);
+            } catch (IOException ex) {
                 logger.log(Level.WARNING, "Could not read file {0}; {1}", new Object[]{file.toString(), ex.getLocalizedMessage()});
-            } catch (GirrException ex) {
-                Logger.getLogger(GirrScrap.class.getName()).log(Level.SEVERE, null, ex);
             }
         } else
             logger.log(Level.WARNING, "Unknown file {0}", file.toString());
     }
 
-    private void add(Document document, URI baseUri, File baseDir, File file) throws GirrException {
-        add(document.getDocumentElement(), baseUri, baseDir, file);
+    /**
+     * Since files may XInclude files that come later in the archive, all Girr files are read before parsing them.
+     */
+    private void addArchive(URI uriBase, File archive) throws IOException {
+        Map<String, Archive.Entry> entries = new LinkedHashMap<>(INITIAL_CAPACITY);
+        Archive.visitEntries(archive, GIRR_ARCHIVE_DIRECTORY, (Archive.Entry entry) -> {
+            if (ignoreByExtension(entry.getName()))
+                logger.log(Level.FINE, "File {0} ignored due to its extension", entry.getFile().toString());
+            else
+                entries.put(entry.getFile().toURI().toString(), entry);
+        });
+
+        for (Archive.Entry entry : entries.values()) {
+            try {
+                scrapFile(entry, (File f) -> parse(uriBase, archive, entry, entries)).forEach(this::put);
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Could not read file {0}; {1}", new Object[]{entry.getFile().toString(), ex.getLocalizedMessage()});
+            }
+        }
+    }
+
+    private List<RemoteLink> parse(URI baseUri, File archive, Archive.Entry entry, Map<String, Archive.Entry> entries) {
+        File file = entry.getFile();
+        try {
+            Element element = GirrScanner.scan(entry.getInputStream(), file.toURI().toString());
+            if (element == null) {
+                doNotCache(file);
+                element = parseXInclude(entry, entries);
+            }
+            return parse(element, baseUri, archive, file);
+        } catch (IOException | SAXException | XMLStreamException ex) {
+            logger.log(Level.WARNING, "Could not read file {0}; {1}", new Object[]{file.toString(), ex.getLocalizedMessage()});
+        } catch (GirrException ex) {
+            Logger.getLogger(GirrScrap.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return Collections.emptyList();
     }
 
-    private void add(Element element, URI baseUri, File baseDir, File file) throws GirrException {
+    /**
+     * Parses the file, reading only what is needed for the RemoteLinks, see GirrScanner.
+     * Files using XInclude are read in full.
+     */
+    private List<RemoteLink> parse(URI baseUri, File baseDir, File file) {
+        try {
+            Element element = GirrScanner.scan(file);
+            if (element == null) {
+                // The included files are not known to the manifest
+                doNotCache(file);
+                element = XmlUtils.openXmlFile(file).getDocumentElement();
+            }
+            return parse(element, baseUri, baseDir, file);
+        } catch (IOException | SAXException | XMLStreamException ex) {
+            logger.log(Level.WARNING, "Could not read file {0}; {1}", new Object[]{file.toString(), ex.getLocalizedMessage()});
+        } catch (GirrException ex) {
+            Logger.getLogger(GirrScrap.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return Collections.emptyList();
+    }
+
+    private List<RemoteLink> parse(Element element, URI baseUri, File baseDir, File file) throws GirrException {
         switch (element.getLocalName()) {
             case REMOTES_ELEMENT_NAME:
                 RemoteSet remoteSet = new RemoteSet(element, file.toString());
-                add(remoteSet, baseUri, baseDir, file);
-                break;
+                List<RemoteLink> result = new ArrayList<>(remoteSet.size());
+                for (Remote remote : remoteSet)
+                    result.add(mkRemoteLink(remote, baseUri, baseDir, file, mkXpath(remote)));
+                return result;
             case REMOTE_ELEMENT_NAME:
                 Remote remote = new Remote(element, file.toString());
-                add(remote, baseUri, baseDir, file, "/" + REMOTE_ELEMENT_NAME);
-                break;
+                return Collections.singletonList(mkRemoteLink(remote, baseUri, baseDir, file, "/" + REMOTE_ELEMENT_NAME));
             default:
                 logger.log(Level.INFO, "File  {0} ignored, since its top level element is {1}", new Object[]{file, element.getTagName()});
+                return Collections.emptyList();
         }
     }
 
-    public void add(RemoteSet remoteSet, URI baseUri, File baseDir, File file) {
-        for (Remote remote : remoteSet) {
-            String xpath = REMOTES_ELEMENT_NAME + "/" + REMOTE_ELEMENT_NAME + "[@" + NAME_ATTRIBUTE_NAME + "=\'" + remote.getName() + "\']";
-            add(remote, baseUri, baseDir, file, xpath);
-        }
+    private static String mkXpath(Remote remote) {
+        return REMOTES_ELEMENT_NAME + "/" + REMOTE_ELEMENT_NAME + "[@" + NAME_ATTRIBUTE_NAME + "=\'" + remote.getName() + "\']";
     }
 
-    private void add(Remote remote, URI baseUri, File baseDir, File file, String xpath) {
-        ManufacturerDeviceClasses manufacturerTypes = remoteDatabase.getOrCreate(remote.getManufacturer());
-        manufacturerTypes.add(ScrapKind.girr, remote, baseUri, baseDir, file, xpath);
+    /**
+     * Creates a RemoteLink, knowing its manufacturer and device class, but not yet belonging to the RemoteDatabase.
+     */
+    private static RemoteLink mkRemoteLink(Remote remote, URI baseUri, File baseDir, File file, String xpath) {
+        RemoteLink remoteLink = new RemoteLink(ScrapKind.girr, remote, baseUri, baseDir, file, xpath);
+        DeviceClassRemotes.detached(remote.getManufacturer(), remote.getDeviceClass()).add(remoteLink);
+        return remoteLink;
+    }
+
+    private void put(RemoteLink remoteLink) {
+        remoteDatabase.put(remoteLink.getManufacturer(), remoteLink.getDeviceClass(), remoteLink);
+    }
+
+    public void add(RemoteSet remoteSet, URI baseUri, File baseDir, File file) {
+        for (Remote remote : remoteSet)
+            put(mkRemoteLink(remote, baseUri, baseDir, file, mkXpath(remote)));
     }
 
     public Remote getRemote(InputStreamReader reader, String source, String xpath, String manufacturer, String deviceClass) throws IOException {
+        GirrExtractor extractor = GirrExtractor.newExtractor(xpath);
+        if (extractor != null) {
+            try {
+                Remote remote = extractor.extract(reader, "remote");
+                if (remote == null)
+                    logger.log(Level.WARNING, "XPath \"{0}\" produced no match, please report this as bug.", xpath);
+                return remote;
+            } catch (XMLStreamException ex) {
+                if (ex.getNestedException() instanceof IOException)
+                    throw (IOException) ex.getNestedException();
+                logger.log(Level.WARNING, ex.getLocalizedMessage());
+                return null;
+            } catch (GirrException ex) {
+                logger.log(Level.WARNING, ex.getLocalizedMessage());
+                return null;
+            }
+        }
+
+        // Not generated by this class, evaluate as general XPath.
+        return getRemoteByXpath(reader, xpath);
+    }
+
+    /**
+     * Gets the remote by evaluating the xpath argument on a DOM of the entire document.
+     */
+    static Remote getRemoteByXpath(InputStreamReader reader, String xpath) throws IOException {
         try {
             Document document = XmlUtils.openXmlReader(reader, null, false, true);
             XPath xpathy = XPathFactory.newInstance().newXPath();
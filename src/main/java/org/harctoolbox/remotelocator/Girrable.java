@@ -22,7 +22,6 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.URLConnection;
 import org.harctoolbox.girr.Remote;
 import static org.harctoolbox.ircore.IrCoreUtils.EXTENDED_LATIN1;
 
@@ -30,6 +29,39 @@ public abstract class Girrable extends Scrapable {
 
     protected final static String DELIVERY_SERVICE = "https://cdn.jsdelivr.net/gh/";
 
+    static {
+        // All Girrables parse commands, so make sure that they use the shared protocol data base.
+        ProtocolDatabase.getIrpDatabase();
+    }
+
+    private static volatile HttpCache httpCache = null;
+
+    /**
+     * Sets a cache for the files of remotes that are downloaded; null for none (default).
+     * @param cache
+     */
+    public static void setHttpCache(HttpCache cache) {
+        httpCache = cache;
+    }
+
+    public static HttpCache getHttpCache() {
+        return httpCache;
+    }
+
+    private static volatile Mirror mirror = null;
+
+    /**
+     * Sets a local mirror, from which the files of remotes are read if present; null for none (default).
+     * @param localMirror
+     */
+    public static void setMirror(Mirror localMirror) {
+        mirror = localMirror;
+    }
+
+    public static Mirror getMirror() {
+        return mirror;
+    }
+
     Girrable(RemoteDatabase remoteDatabase) {
         super(remoteDatabase);
     }
@@ -39,19 +71,28 @@ public abstract class Girrable extends Scrapable {
     }
 
     public Remote getRemote(RemoteLink remoteLink) throws IOException {
+        Mirror localMirror = mirror;
+        File mirrored = localMirror != null ? localMirror.lookup(remoteLink) : null;
+        if (mirrored != null)
+            return getRemoteFile(remoteLink, mirrored);
         File file = remoteLink.getFile();
-        return file.canRead() ? getRemoteFile(remoteLink) : getRemoteUrl(remoteLink);
+        return file.canRead() ? getRemoteFile(remoteLink, file) : getRemoteUrl(remoteLink);
     }
 
-    private Remote getRemoteFile(RemoteLink remoteLink) throws IOException {
-        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(remoteLink.getFile()), EXTENDED_LATIN1)) {
-            return getRemote(reader, remoteLink.getFile().getPath(), remoteLink.getXpath(), remoteLink.getManufacturer(), remoteLink.getDeviceClass(), remoteLink.getName());
+    Remote getRemoteFile(RemoteLink remoteLink, File file) throws IOException {
+        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(file), EXTENDED_LATIN1)) {
+            return getRemote(reader, file.getPath(), remoteLink.getXpath(), remoteLink.getManufacturer(), remoteLink.getDeviceClass(), remoteLink.getName());
         }
     }
 
     private Remote getRemoteUrl(RemoteLink remoteLink) throws IOException {
-        URLConnection conn = remoteLink.getUrl().openConnection();
-        try (InputStream stream = conn.getInputStream()) {
+        HttpCache cache = httpCache;
+        if (cache != null && HttpCache.isCacheable(remoteLink.getUrl())) {
+            try (InputStreamReader reader = new InputStreamReader(cache.open(remoteLink.getUrl()), EXTENDED_LATIN1)) {
+                return getRemote(reader, remoteLink.getUrl().toString(), remoteLink.getXpath(), remoteLink.getManufacturer(), remoteLink.getDeviceClass(), remoteLink.getName());
+            }
+        }
+        try (InputStream stream = HttpFetcher.getInstance().openStream(remoteLink.getUrl())) {
             InputStreamReader reader = new InputStreamReader(stream, EXTENDED_LATIN1);
             return getRemote(reader, remoteLink.getUrl().toString(), remoteLink.getXpath(), remoteLink.getManufacturer(), remoteLink.getDeviceClass(), remoteLink.getName());
         }
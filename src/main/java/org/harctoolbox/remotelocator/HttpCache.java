@@ -0,0 +1,353 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * On-disk cache for files fetched by HTTP(S).
+ * Every file is stored together with the validators (ETag, Last-Modified) sent by the server.
+ * A file fetched less than max-age seconds ago is used without any network access;
+ * otherwise it is revalidated by a conditional GET, and only downloaded again if it has changed.
+ * If the server cannot be reached, a cached copy is used, however old.
+ * The total size of the cached files can be bounded; if it is exceeded, the least recently used files are evicted.
+ * Different URLs can be fetched concurrently, unless they happen to share a lock stripe.
+ */
+public final class HttpCache {
+
+    private static final Logger logger = Logger.getLogger(HttpCache.class.getName());
+
+    public static final long DEFAULT_MAX_AGE = 0L;
+    public static final long UNLIMITED_SIZE = Long.MAX_VALUE;
+    private static final String METADATA_EXTENSION = ".properties";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final String URL_PROPERTY = "url";
+    private static final String ETAG_PROPERTY = "etag";
+    private static final String LASTMODIFIED_PROPERTY = "lastModified";
+    private static final String FETCHED_PROPERTY = "fetched";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * @param url
+     * @return true if the URL can be cached, i.e. is http or https.
+     */
+    public static boolean isCacheable(URL url) {
+        return HttpFetcher.isHttp(url);
+    }
+
+    private static String key(URL url) {
+        return Manifest.hash(url.toString());
+    }
+
+    private final File directory;
+    private volatile long maxAge = DEFAULT_MAX_AGE;
+    private long maxSize = UNLIMITED_SIZE;
+    // Sizes of the cached files, by key, in access order; guarded by itself, as is totalSize.
+    private final LinkedHashMap<String, Long> index;
+    private long totalSize;
+    // Locks of the keys, striped so that their number is bounded.
+    private final ReentrantLock[] locks;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Creates a cache in the directory given, which is created if it does not exist.
+     * Files already present in the directory are taken over.
+     * @param directory
+     * @throws IOException if the directory could not be created.
+     */
+    public HttpCache(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Could not create cache directory " + directory);
+        this.index = new LinkedHashMap<>(INITIAL_CAPACITY, 0.75f, true);
+        this.locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++)
+            locks[i] = new ReentrantLock();
+        File[] files = directory.listFiles((File dir, String name) -> new File(dir, name + METADATA_EXTENSION).isFile());
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                index.put(file.getName(), file.length());
+                totalSize += file.length();
+            }
+        }
+    }
+
+    /**
+     * Sets the maximal total size of the cached files; if exceeded, the least recently used files are removed.
+     * @param maxSize Size in bytes.
+     */
+    public void setMaxSize(long maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("Maximal size must be non-negative");
+        synchronized (index) {
+            this.maxSize = maxSize;
+            evict(null);
+        }
+    }
+
+    public long getMaxSize() {
+        synchronized (index) {
+            return maxSize;
+        }
+    }
+
+    /**
+     * @return Total size of the cached files in bytes.
+     */
+    public long getSize() {
+        synchronized (index) {
+            return totalSize;
+        }
+    }
+
+    /**
+     * @return Number of requests answered without downloading, i.e. fresh, not modified, or server unreachable.
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of requests that required downloading.
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @param maxAge Time in seconds, during which a cached file is used without revalidation.
+     */
+    public void setMaxAge(long maxAge) {
+        if (maxAge < 0)
+            throw new IllegalArgumentException("max-age must be non-negative");
+        this.maxAge = maxAge;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns a local file with the current content of the URL, fetching it only if necessary.
+     * If the cache is used concurrently, with a bounded size, the file may be evicted before it is read;
+     * use open(URL) in that case.
+     * @param url http or https URL.
+     * @return File in the cache directory.
+     * @throws IOException if the content could neither be fetched, nor found in the cache.
+     */
+    public File get(URL url) throws IOException {
+        return get(url, (File file) -> file);
+    }
+
+    /**
+     * Like get(URL), but opens the file before other threads can evict it.
+     * @param url http or https URL.
+     * @return InputStream of the file in the cache directory, to be closed by the caller.
+     * @throws IOException if the content could neither be fetched, nor found in the cache.
+     */
+    public InputStream open(URL url) throws IOException {
+        return get(url, FileInputStream::new);
+    }
+
+    private <T> T get(URL url, Accessor<T> accessor) throws IOException {
+        if (!isCacheable(url))
+            throw new IllegalArgumentException("Only http and https URLs can be cached: " + url);
+
+        String key = key(url);
+        ReentrantLock lock = lock(key);
+        lock.lock();
+        try {
+            File file = new File(directory, key);
+            File metadataFile = new File(directory, key + METADATA_EXTENSION);
+            Properties metadata = file.isFile() ? loadMetadata(metadataFile) : null;
+            if (metadata != null && !url.toString().equals(metadata.getProperty(URL_PROPERTY)))
+                metadata = null; // hash collision, or garbage
+            if (metadata != null && System.currentTimeMillis() - Long.parseLong(metadata.getProperty(FETCHED_PROPERTY, "0")) < maxAge * 1000L) {
+                logger.log(Level.FINE, "{0} taken from cache without revalidation", url);
+                hit(key, file);
+                return accessor.access(file);
+            }
+
+            try {
+                if (fetch(url, file, metadataFile, metadata)) {
+                    misses.incrementAndGet();
+                    added(key, file.length());
+                } else
+                    hit(key, file);
+            } catch (IOException ex) {
+                if (metadata == null)
+                    throw ex;
+                logger.log(Level.WARNING, "Could not revalidate {0} ({1}), using cached copy", new Object[]{url, ex.getLocalizedMessage()});
+                hit(key, file);
+            }
+            return accessor.access(file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lock(String key) {
+        return locks[Math.floorMod(key.hashCode(), locks.length)];
+    }
+
+    private void hit(String key, File file) {
+        hits.incrementAndGet();
+        file.setLastModified(System.currentTimeMillis());
+        synchronized (index) {
+            index.get(key);
+        }
+    }
+
+    private void added(String key, long size) {
+        synchronized (index) {
+            Long oldSize = index.put(key, size);
+            totalSize += size - (oldSize != null ? oldSize : 0L);
+            evict(key);
+        }
+    }
+
+    /**
+     * Removes least recently used files until the total size is within the limit.
+     * Runs with the monitor of the index held. Files the stripe lock of which is held by another thread are skipped,
+     * since they may be in use by get. The lock is only tried, not waited for: get holds a stripe lock
+     * when it takes the monitor of the index in hit and added, so waiting here could deadlock.
+     * @param keep Key of file not to be removed, or null.
+     */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+        while (totalSize > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            String key = entry.getKey();
+            if (key.equals(keep))
+                continue;
+            ReentrantLock lock = lock(key);
+            if (!lock.tryLock())
+                continue;
+            try {
+                logger.log(Level.FINE, "Evicting {0}", key);
+                new File(directory, key + METADATA_EXTENSION).delete();
+                new File(directory, key).delete();
+            } finally {
+                lock.unlock();
+            }
+            totalSize -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * @return true if the file was downloaded, false if it was not modified.
+     */
+    private boolean fetch(URL url, File file, File metadataFile, Properties metadata) throws IOException {
+        try (HttpFetcher.Response response = HttpFetcher.getInstance().get(url, connection -> {
+            if (metadata != null) {
+                String etag = metadata.getProperty(ETAG_PROPERTY);
+                if (etag != null)
+                    connection.setRequestProperty(IF_NONE_MATCH_HEADER, etag);
+                long lastModified = Long.parseLong(metadata.getProperty(LASTMODIFIED_PROPERTY, "0"));
+                if (lastModified > 0)
+                    connection.setIfModifiedSince(lastModified);
+            }
+        })) {
+            int responseCode = response.getCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && metadata != null) {
+                logger.log(Level.FINE, "{0} not modified", url);
+                metadata.setProperty(FETCHED_PROPERTY, Long.toString(System.currentTimeMillis()));
+                saveMetadata(metadataFile, metadata);
+                return false;
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK)
+                throw new IOException("HTTP " + responseCode + " " + response.getMessage() + " for " + url);
+
+            logger.log(Level.FINE, "Fetching {0}", url);
+            File tempFile = File.createTempFile(file.getName(), TEMP_EXTENSION, directory);
+            try {
+                try (InputStream inputStream = response.getInputStream(); OutputStream outputStream = new FileOutputStream(tempFile)) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int n;
+                    while ((n = inputStream.read(buffer)) > 0)
+                        outputStream.write(buffer, 0, n);
+                }
+                FileUtils.move(tempFile, file);
+            } finally {
+                tempFile.delete();
+            }
+
+            Properties newMetadata = new Properties();
+            newMetadata.setProperty(URL_PROPERTY, url.toString());
+            String etag = response.getHeader(ETAG_HEADER);
+            if (etag != null)
+                newMetadata.setProperty(ETAG_PROPERTY, etag);
+            newMetadata.setProperty(LASTMODIFIED_PROPERTY, Long.toString(response.getLastModified()));
+            newMetadata.setProperty(FETCHED_PROPERTY, Long.toString(System.currentTimeMillis()));
+            saveMetadata(metadataFile, newMetadata);
+            return true;
+        }
+    }
+
+    // Access to the cached file, while its lock is held.
+    private interface Accessor<T> {
+        T access(File file) throws IOException;
+    }
+
+    private static Properties loadMetadata(File metadataFile) {
+        if (!metadataFile.isFile())
+            return null;
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(metadataFile)) {
+            properties.load(inputStream);
+            return properties;
+        } catch (IOException | IllegalArgumentException ex) {
+            logger.log(Level.WARNING, "Could not read {0}: {1}", new Object[]{metadataFile, ex.getLocalizedMessage()});
+            return null;
+        }
+    }
+
+    private static void saveMetadata(File metadataFile, Properties metadata) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(metadataFile)) {
+            metadata.store(outputStream, null);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Fetches http and https URLs, for all network access of the program.
+ * Connections are kept alive and reused, as long as the responses are read and closed
+ * (but the connections are never disconnected explicitly). Compressed (gzip) transfer is requested,
+ * and decompressed transparently. Connect and read timeouts can be set; failed requests,
+ * and requests answered with a transient error (429, 5xx), are retried, with exponential backoff.
+ * Latency (time to the response headers, including retries) and volume are recorded.
+ */
+public final class HttpFetcher {
+
+    private static final Logger logger = Logger.getLogger(HttpFetcher.class.getName());
+
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+    public static final int DEFAULT_MAX_RETRIES = 2;
+    public static final long DEFAULT_BACKOFF = 500L;
+    private static final long MAX_BACKOFF = 30000L;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String HTTP_SCHEME_NAME = "http";
+    private static final String HTTPS_SCHEME_NAME = "https";
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    private static final String GZIP_ENCODING = "gzip";
+    private static final double NANOS_PER_MILLISECOND = 1e6;
+
+    private static volatile HttpFetcher instance = new HttpFetcher();
+
+    /**
+     * @return The HttpFetcher used for all network access.
+     */
+    public static HttpFetcher getInstance() {
+        return instance;
+    }
+
+    public static void setInstance(HttpFetcher httpFetcher) {
+        if (httpFetcher == null)
+            throw new NullPointerException("HttpFetcher must not be null");
+        instance = httpFetcher;
+    }
+
+    /**
+     * @param url
+     * @return true if the URL is http or https.
+     */
+    public static boolean isHttp(URL url) {
+        String protocol = url.getProtocol();
+        return protocol.equals(HTTP_SCHEME_NAME) || protocol.equals(HTTPS_SCHEME_NAME);
+    }
+
+    private static boolean isTransient(int responseCode) {
+        return responseCode == HTTP_TOO_MANY_REQUESTS || responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    private volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+    private volatile long backoff = DEFAULT_BACKOFF;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    public HttpFetcher() {
+    }
+
+    /**
+     * @param connectTimeout Timeout for establishing a connection in milliseconds, 0 for infinite.
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        if (connectTimeout < 0)
+            throw new IllegalArgumentException("Timeout must be non-negative");
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param readTimeout Timeout for reading in milliseconds, 0 for infinite.
+     */
+    public void setReadTimeout(int readTimeout) {
+        if (readTimeout < 0)
+            throw new IllegalArgumentException("Timeout must be non-negative");
+        this.readTimeout = readTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * @param maxRetries Number of times a request is repeated after failure; 0 for none.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0)
+            throw new IllegalArgumentException("Number of retries must be non-negative");
+        this.maxRetries = maxRetries;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param backoff Waiting time before the first retry in milliseconds; doubled for every further retry.
+     */
+    public void setBackoff(long backoff) {
+        if (backoff < 0)
+            throw new IllegalArgumentException("Backoff must be non-negative");
+        this.backoff = backoff;
+    }
+
+    public long getBackoff() {
+        return backoff;
+    }
+
+    /**
+     * @return Number of requests, not counting retries.
+     */
+    public int getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return Number of retries.
+     */
+    public int getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return Number of requests that failed, also after retries.
+     */
+    public int getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return Number of bytes read, after decompression.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return Mean time to the response in milliseconds, over the requests answered.
+     */
+    public double getMeanLatency() {
+        int answered = requests.get() - failures.get();
+        return answered > 0 ? totalLatency.get() / NANOS_PER_MILLISECOND / answered : 0.0;
+    }
+
+    /**
+     * @return Maximal time to the response in milliseconds.
+     */
+    public double getMaxLatency() {
+        return maxLatency.get() / NANOS_PER_MILLISECOND;
+    }
+
+    public void resetStatistics() {
+        requests.set(0);
+        retries.set(0);
+        failures.set(0);
+        bytes.set(0L);
+        totalLatency.set(0L);
+        maxLatency.set(0L);
+    }
+
+    /**
+     * @return Human readable summary of the statistics.
+     */
+    public String getStatistics() {
+        return String.format(Locale.US, "%d requests, %d retries, %d failed, %d bytes, latency mean %.1f ms, max %.1f ms",
+                getRequests(), getRetries(), getFailures(), getBytes(), getMeanLatency(), getMaxLatency());
+    }
+
+    /**
+     * Opens the URL for reading. Other than http and https URLs are just opened.
+     * The stream must be closed, to make the connection available for reuse.
+     * @param url
+     * @return InputStream with the (decompressed) content.
+     * @throws IOException if the request failed, or was not answered with 200 (OK).
+     */
+    public InputStream openStream(URL url) throws IOException {
+        if (!isHttp(url))
+            return url.openStream();
+
+        Response response = get(url, null);
+        if (response.getCode() != HttpURLConnection.HTTP_OK) {
+            String message = "HTTP " + response.getCode() + " " + response.getMessage() + " for " + url;
+            response.close();
+            throw new IOException(message);
+        }
+        return response.getInputStream();
+    }
+
+    /**
+     * Performs a GET request, retrying on failure and on transient errors.
+     * @param url http or https URL.
+     * @param setup If non-null, called with the connection before every attempt, for example to set request headers.
+     * @return Response, which must be closed.
+     * @throws IOException if the request failed, also after retries.
+     */
+    public Response get(URL url, Consumer<HttpURLConnection> setup) throws IOException {
+        if (!isHttp(url))
+            throw new IllegalArgumentException("Only http and https URLs can be fetched: " + url);
+
+        requests.incrementAndGet();
+        long start = System.nanoTime();
+        for (int attempt = 0;; attempt++) {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty(ACCEPT_ENCODING_HEADER, GZIP_ENCODING);
+            if (setup != null)
+                setup.accept(connection);
+            try {
+                int responseCode = connection.getResponseCode();
+                if (!isTransient(responseCode) || attempt >= maxRetries) {
+                    long latency = System.nanoTime() - start;
+                    totalLatency.addAndGet(latency);
+                    maxLatency.accumulateAndGet(latency, Math::max);
+                    return new Response(connection, responseCode);
+                }
+                logger.log(Level.FINE, "HTTP {0} for {1}, retrying", new Object[]{responseCode, url});
+                new Response(connection, responseCode).close();
+            } catch (UnknownHostException ex) {
+                // not going to get better by retrying
+                failures.incrementAndGet();
+                throw ex;
+            } catch (IOException ex) {
+                if (attempt >= maxRetries) {
+                    failures.incrementAndGet();
+                    throw ex;
+                }
+                logger.log(Level.FINE, "{0} for {1}, retrying", new Object[]{ex, url});
+            }
+            retries.incrementAndGet();
+            sleep(Math.min(backoff << Math.min(attempt, Long.SIZE - 2), MAX_BACKOFF));
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for retry");
+        }
+    }
+
+    /**
+     * Response to a GET request. Closing it makes the connection available for reuse.
+     */
+    public final class Response implements Closeable {
+        private final HttpURLConnection connection;
+        private final int code;
+        private InputStream inputStream;
+
+        private Response(HttpURLConnection connection, int code) {
+            this.connection = connection;
+            this.code = code;
+            this.inputStream = null;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getMessage() throws IOException {
+            return connection.getResponseMessage();
+        }
+
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        public long getLastModified() {
+            return connection.getLastModified();
+        }
+
+        /**
+         * @return The body of the response, decompressed; the error body for error responses.
+         * @throws IOException
+         */
+        public InputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                InputStream raw = code < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream();
+                if (raw == null)
+                    raw = new ByteArrayInputStream(new byte[0]);
+                else if (GZIP_ENCODING.equalsIgnoreCase(connection.getContentEncoding())
+                        && code != HttpURLConnection.HTTP_NO_CONTENT && code != HttpURLConnection.HTTP_NOT_MODIFIED)
+                    raw = new GZIPInputStream(raw);
+                inputStream = new CountingInputStream(raw);
+            }
+            return inputStream;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The body has to be opened and closed (not the connection disconnected) for the connection to be reused.
+            getInputStream().close();
+        }
+    }
+
+    private final class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int ch = super.read();
+            if (ch >= 0)
+                bytes.incrementAndGet();
+            return ch;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0)
+                bytes.addAndGet(n);
+            return n;
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.harctoolbox.remotelocator;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -27,7 +28,9 @@ import java.io.PrintStream;
 import java.io.Reader;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -35,18 +38,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 import org.harctoolbox.girr.Command;
 import org.harctoolbox.girr.CommandSet;
 import org.harctoolbox.girr.GirrException;
 import org.harctoolbox.girr.Remote;
 import org.harctoolbox.ircore.IrCoreException;
-import org.harctoolbox.ircore.ThisCannotHappenException;
-import org.harctoolbox.irp.IrpDatabase;
 import org.harctoolbox.irp.IrpException;
-import org.harctoolbox.irp.IrpParseException;
-import org.harctoolbox.xml.XmlUtils;
-import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 public final class IrdbScrap extends Girrable {
@@ -63,27 +60,11 @@ public final class IrdbScrap extends Girrable {
     private static final String IRDB_NAME = "irdb";
     private static final String SILLY_IRDB_HEADER = "functionname,protocol,device,subdevice,function";
     private static final String COMMA = ",";
-    private static final Pattern WHITESPACE_QUOTE_STUFF = Pattern.compile("\\s+\".*");
     private static final String QUOTE = "\"";
-    private static final char SPACECHAR = ' ';
-    private static final char QUOTECHAR = '"';
-    private static final IrpDatabase irpDatabaseWithIrdbprotocols;
-    private static final String IRDB_PROTOCOL_FILE = "/IrdbProtocols.xml";
     private static final boolean rejectSilliness = true;
     private static final String IRDB_REMOTE_ENDING = ".csv";
     private static final int IRDB_REMOTE_ENDING_LENGTH = IRDB_REMOTE_ENDING.length();
-
-    static {
-        // Unfortunately, this forces IrpProtocol.xml to be parsed twice :-\
-        try {
-            irpDatabaseWithIrdbprotocols = new IrpDatabase((String) null);
-            Document document = XmlUtils.openXmlStream(IrdbScrap.class.getResourceAsStream(IRDB_PROTOCOL_FILE), null, true, true);
-            irpDatabaseWithIrdbprotocols.patch(document);
-            Command.setIrpDatabase(irpDatabaseWithIrdbprotocols);
-        } catch (IOException | IrpParseException | SAXException ex) {
-            throw new ThisCannotHappenException(ex);
-        }
-    }
+    private static final String IRDB_ARCHIVE_DIRECTORY = "codes";
 
     public static RemoteDatabase scrap(File baseDir) throws IOException, SAXException {
         IrdbScrap irdb = new IrdbScrap();
@@ -95,22 +76,39 @@ public final class IrdbScrap extends Girrable {
             logger.log(Level.WARNING, "{0} is not a regular and readable file, ignored.", new Object[]{file});
             return null;
         }
-        String remoteName = file.getName();
-        if (remoteName.endsWith(IRDB_REMOTE_ENDING))
-            remoteName = remoteName.substring(0, remoteName.length() - IRDB_REMOTE_ENDING_LENGTH);
-        return parse(new InputStreamReader(new FileInputStream(file), IRDB_CHARSET), manufacturer, deviceClass, remoteName, file.getPath());
+        return parseFile(file, manufacturer, deviceClass);
+    }
+
+    private static String remoteName(String filename) {
+        return filename.endsWith(IRDB_REMOTE_ENDING) ? filename.substring(0, filename.length() - IRDB_REMOTE_ENDING_LENGTH) : filename;
+    }
+
+    /**
+     * Parses a file known to be a regular file, without further checks.
+     * @return Remote, or null if the file cannot be opened.
+     */
+    private static Remote parseFile(File file, String manufacturer, String deviceClass) throws IOException {
+        String remoteName = remoteName(file.getName());
+        FileInputStream inputStream;
+        try {
+            inputStream = new FileInputStream(file);
+        } catch (FileNotFoundException ex) {
+            logger.log(Level.WARNING, "{0} is not a regular and readable file, ignored.", new Object[]{file});
+            return null;
+        }
+        return parse(new InputStreamReader(inputStream, IRDB_CHARSET), manufacturer, deviceClass, remoteName, file.getPath());
     }
 
     public static Remote parse(RemoteLink remoteLink, String manufacturer, String deviceClass, String remoteName) throws IOException {
         if (remoteLink.getKind() != ScrapKind.irdb)
             return null;
 
-        try (InputStream inputStream = remoteLink.getUrl().openStream(); InputStreamReader inputStreamReader = new InputStreamReader(inputStream, IRDB_CHARSET)) {
+        try (InputStream inputStream = HttpFetcher.getInstance().openStream(remoteLink.getUrl()); InputStreamReader inputStreamReader = new InputStreamReader(inputStream, IRDB_CHARSET)) {
             return parse(inputStreamReader, manufacturer, deviceClass, remoteName, remoteLink.getUrl().toString());
         }
     }
     public static Remote parse(URL url, String manufacturer, String deviceClass, String remoteName) throws IOException {
-        try (InputStream inputStream = url.openStream(); InputStreamReader inputStreamReader = new InputStreamReader(inputStream, IRDB_CHARSET)) {
+        try (InputStream inputStream = HttpFetcher.getInstance().openStream(url); InputStreamReader inputStreamReader = new InputStreamReader(inputStream, IRDB_CHARSET)) {
             return parse(inputStreamReader, manufacturer, deviceClass, remoteName, url.toString());
         }
     }
@@ -121,6 +119,7 @@ public final class IrdbScrap extends Girrable {
             bufferedReader.readLine(); // junk first line
             int lineno = 1;
             Map<String, Command> commands = new LinkedHashMap<>(32);
+            CsvTokenizer tokenizer = new CsvTokenizer(COMMA);
             while (true) {
                 String line = bufferedReader.readLine();
                 lineno++;
@@ -132,8 +131,7 @@ public final class IrdbScrap extends Girrable {
                     continue;
                 }
                 try {
-                    List<String> list = splitCSV(line, COMMA, lineno);
-                    if (list.size() != 5) {
+                    if (tokenizer.split(line, lineno) != 5) {
                         // Silly lines just ignored
                         logger.log(Level.WARNING, "Wrong number of fields in line {0} in file {1}.", new Object[]{lineno, source});
                         if (rejectSilliness)
@@ -142,16 +140,16 @@ public final class IrdbScrap extends Girrable {
                             continue;
                     }
 
-                    String name = list.get(0);
-                    if (name.isEmpty())
+                    if (tokenizer.isEmpty(0))
                         logger.log(Level.WARNING, "Empty function name in line {0} in file {1}", new Object[]{lineno, source});
                     else
                         nonemptyContent = true;
-                    String protocol = list.get(1);
+                    String name = tokenizer.getString(0);
+                    String protocol = tokenizer.getString(1);
 
-                    long device = Long.parseLong(list.get(2));
-                    long subdevice = Long.parseLong(list.get(3));
-                    long function = Long.parseLong(list.get(4));
+                    long device = tokenizer.getLong(2);
+                    long subdevice = tokenizer.getLong(3);
+                    long function = tokenizer.getLong(4);
 
                     Map<String, Long> parameters = new HashMap<>(3);
                     parameters.put("D", device);
@@ -187,39 +185,11 @@ public final class IrdbScrap extends Girrable {
      * @throws ParseException in the presence of un-balanced quotes.
      */
     public static LinkedList<String> splitCSV(String input, String separator, int lineNumber) throws ParseException {
-        // For performance reasons, use regexp only "occasionally"
-        if (input.charAt(0) == SPACECHAR)
-            if (WHITESPACE_QUOTE_STUFF.matcher(input).matches())
-                return splitCSV(input.trim(), separator, lineNumber); // Strictly speaking, this is wrong, since trailing spaces may be significant...
-
-        String first;
-        int index;
-        LinkedList<String> result; // need addFirst, so cannot use ArrayList
-        if (input.startsWith(QUOTE)) {
-            int closingQuoteIndex = input.indexOf(QUOTECHAR, 1);
-            if (closingQuoteIndex == -1)
-                throw new ParseException(input, lineNumber);
-            first = input.substring(1, closingQuoteIndex);
-            index = input.indexOf(separator, closingQuoteIndex);
-            if (index == -1) {
-                result = new LinkedList<>();
-            } else {
-                String rest = input.substring(index + separator.length());
-                result = splitCSV(rest, separator, lineNumber);
-            }
-        } else {
-            index = input.indexOf(separator);
-            if (index == -1) {
-                result = new LinkedList<>();
-                first = input;
-            } else {
-                String rest = input.substring(index + separator.length());
-                result = splitCSV(rest, separator, lineNumber);
-                first = input.substring(0, index);
-            }
-        }
-
-        result.addFirst(first);
+        CsvTokenizer tokenizer = new CsvTokenizer(separator);
+        int size = tokenizer.split(input, lineNumber);
+        LinkedList<String> result = new LinkedList<>();
+        for (int i = 0; i < size; i++)
+            result.add(tokenizer.getString(i));
         return result;
     }
 
@@ -266,64 +236,92 @@ public final class IrdbScrap extends Girrable {
         return IRDB_NAME;
     }
 
+    /**
+     * Adds the remotes of the directory argument, or, if it is an archive (zip or tar.gz) of the IRDB repository,
+     * of its "codes" directory.
+     * @param dir Directory or archive.
+     * @throws IOException
+     */
     @Override
     public void add(File dir) throws IOException {
         remoteDatabase.addKind(ScrapKind.irdb);
-        addManufacturerDirectory(IRDB_BASE_URI, dir, dir);
+        addManifestRoot(dir);
+        if (Archive.isArchive(dir))
+            addArchive(IRDB_BASE_URI, dir);
+        else
+            addManufacturerDirectory(IRDB_BASE_URI, dir, dir);
     }
 
-    private void addManufacturerDirectory(URI uriBase, File baseDir, File file) throws IOException {
-        assertReadableDirectory(file);
+    private void addArchive(URI uriBase, File archive) throws IOException {
+        Archive.visitEntries(archive, IRDB_ARCHIVE_DIRECTORY, (Archive.Entry entry) -> {
+            String[] components = entry.getPathComponents();
+            if (components.length != 3) {
+                logger.log(Level.FINE, "Archive entry {0} is not a remote, ignored.", entry.getFile());
+                return;
+            }
+            if (entry.getName().endsWith("~"))
+                return;
+            ManufacturerDeviceClasses manufacturerTypes = remoteDatabase.getOrCreate(components[0]);
+            DeviceClassRemotes devices = manufacturerTypes.getOrCreate(components[1]);
+            scrapFile(entry, (File file) -> {
+                Remote remote = parse(new InputStreamReader(entry.getInputStream(), IRDB_CHARSET), components[0], devices.getName(), remoteName(entry.getName()), file.getPath());
+                return remote != null
+                        ? Collections.singletonList(new RemoteLink(ScrapKind.irdb, remote, uriBase, archive, file))
+                        : Collections.emptyList();
+            }).forEach(devices::add);
+            manufacturerTypes.removeIfEmpty(devices);
+            remoteDatabase.removeIfEmpty(manufacturerTypes);
+        });
+    }
 
-        String[] manufacturerArray = file.list();
-        for (String manufacturer : manufacturerArray) {
+    private void addManufacturerDirectory(URI uriBase, File baseDir, File file) throws IOException {
+        boolean readable = visitEntries(file, (File dir, BasicFileAttributes attributes) -> {
+            String manufacturer = dir.getName();
             ManufacturerDeviceClasses manufacturerTypes = remoteDatabase.getOrCreate(manufacturer);
-            addDevices(manufacturerTypes, uriBase, baseDir, new File(file, manufacturer), manufacturer);
+            addDevices(manufacturerTypes, uriBase, baseDir, dir, attributes, manufacturer);
             remoteDatabase.removeIfEmpty(manufacturerTypes);
-        }
+        });
+        if (!readable)
+            throw new IOException(file + " is not a readable directory");
     }
 
-    private void addDevices(ManufacturerDeviceClasses manufacturerTypes, URI uriBase, File baseDir, File dir, String manufacturer) throws IOException {
-        if (!isReadableDirectory(dir)) {
+    private void addDevices(ManufacturerDeviceClasses manufacturerTypes, URI uriBase, File baseDir, File dir, BasicFileAttributes attributes, String manufacturer) throws IOException {
+        boolean readable = attributes.isDirectory() && visitEntries(dir, (File deviceDir, BasicFileAttributes deviceAttributes) -> {
+            DeviceClassRemotes devices = manufacturerTypes.getOrCreate(deviceDir.getName());
+            addRemotes(devices, uriBase, baseDir, deviceDir, deviceAttributes, manufacturer);
+            manufacturerTypes.removeIfEmpty(devices);
+        });
+        if (!readable) {
             // Non-fatal; there may lie junk files around
             String filename = dir.getName();
             if (! (filename.equals("index") || filename.equals("index.sh")))
                 logger.log(Level.WARNING, "{0} is not a readable directory", dir);
-            return;
-        }
-
-        String[] list = dir.list();
-        if (list == null)
-            // Something is wrong, so this is fatal
-            throw new IOException(dir + " could not be read");
-
-        for (String deviceClass : list) {
-            DeviceClassRemotes devices = manufacturerTypes.getOrCreate(deviceClass);
-            addRemotes(devices, uriBase, baseDir, new File(dir, deviceClass), manufacturer);
-            manufacturerTypes.removeIfEmpty(devices);
         }
     }
 
-    @SuppressWarnings({"BroadCatchBlock", "TooBroadCatch"})
-    private void addRemotes(DeviceClassRemotes devices, URI uriBase, File baseDir, File dir, String manufacturer) throws IOException {
-        if (!isReadableDirectory(dir)) {
+    private void addRemotes(DeviceClassRemotes devices, URI uriBase, File baseDir, File dir, BasicFileAttributes attributes, String manufacturer) throws IOException {
+        boolean readable = attributes.isDirectory() && visitEntries(dir,
+                (File file, BasicFileAttributes fileAttributes) -> addRemote(devices, uriBase, baseDir, file, fileAttributes, manufacturer));
+        if (!readable)
             // Can be junk file; non-fatal
             logger.log(Level.WARNING, "File {0} is not a readable directory, ignored.", dir);
+    }
+
+    private void addRemote(DeviceClassRemotes devices, URI uriBase, File baseDir, File file, BasicFileAttributes attributes, String manufacturer) throws IOException {
+        if (file.getName().endsWith("~"))
+            return;
+        if (!attributes.isRegularFile()) {
+            logger.log(Level.WARNING, "{0} is not a regular and readable file, ignored.", new Object[]{file});
             return;
         }
 
-        String[] array = dir.list();
-        for (String remoteName : array) {
-            if (remoteName.endsWith("~"))
-                continue;
-
-            File file = new File(dir, remoteName);
-            Remote remote = parse(file, manufacturer, devices.getName());
-            if (remote != null) {
-                RemoteLink remoteLink = new RemoteLink(ScrapKind.irdb, remote, uriBase, baseDir, file);
-                devices.add(remoteLink);
-            }
-        }
+        List<RemoteLink> remoteLinks = scrapFile(file, attributes, (File f) -> {
+            Remote remote = parseFile(f, manufacturer, devices.getName());
+            return remote != null
+                    ? Collections.singletonList(new RemoteLink(ScrapKind.irdb, remote, uriBase, baseDir, f))
+                    : Collections.emptyList();
+        });
+        remoteLinks.forEach(devices::add);
     }
 
     @Override
@@ -17,21 +17,27 @@ this program. If not, see http://www.gnu.org/licenses/.
 
 package org.harctoolbox.remotelocator;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.validation.Schema;
-import org.harctoolbox.girr.Remote;
-import org.harctoolbox.xml.XmlUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.xml.sax.SAXException;
 
+/**
+ * Scraps the JP1 master list, an OpenDocument spreadsheet, either as an .ods file (a zip archive),
+ * or as a flat XML .fods file. The rows are read one at a time by a streaming (StAX) parser,
+ * so memory usage does not grow with the size of the spreadsheet.
+ */
 public class Jp1Scrap extends Scrapable {
 
     private static final Logger logger = Logger.getLogger(Jp1Scrap.class.getName());
@@ -39,20 +45,22 @@ public class Jp1Scrap extends Scrapable {
     private static final String TABLE_NAMESPACE_URI = "urn:oasis:names:tc:opendocument:xmlns:table:1.0";
     private static final String TEXT_NAMESPACE_URI = "urn:oasis:names:tc:opendocument:xmlns:text:1.0";
     private static final String JP1_NAME = "jp1";
-
-    public static RemoteDatabase scrap(File jp1XmlFile) throws IOException, SAXException {
+    private static final String CONTENT_ENTRY_NAME = "content.xml";
+
+    private static final String ROW_STYLE = "ro1";
+    private static final int MIN_CELLS = 7;
+    private static final int VIEW_COLUMN = 1;
+    private static final int DEVICECLASS_COLUMN = 4;
+    private static final int MANUFACTURER_COLUMN = 5;
+    private static final int NAME_COLUMN = 6;
+    private static final int PROTOCOL_COLUMN = 9;
+    private static final int DEVICE_COLUMN = 10;
+    private static final int SUBDEVICE_COLUMN = 11;
+    private static final int NUMBER_OF_COLUMNS = 12;
+
+    public static RemoteDatabase scrap(File jp1File) throws IOException, SAXException {
         Jp1Scrap jp1db = new Jp1Scrap();
-        return jp1db.scrapSort(jp1XmlFile);
-    }
-
-    private static String getTextContent(Node node) {
-        Element element = (Element) node;
-        if (node == null)
-            return "";
-        NodeList nodeList = element.getElementsByTagNameNS(TEXT_NAMESPACE_URI, "p");
-        if (nodeList.getLength() == 0)
-            return "";
-        return nodeList.item(0).getTextContent().trim();
+        return jp1db.scrapSort(jp1File);
     }
 
     public static void add(RemoteDatabase remoteDatabase, File file) throws SAXException, IOException {
@@ -60,6 +68,40 @@ public class Jp1Scrap extends Scrapable {
         jp1.add(file);
     }
 
+    private static boolean isElement(XMLStreamReader reader, String namespaceUri, String localName) {
+        return reader.getLocalName().equals(localName) && namespaceUri.equals(reader.getNamespaceURI());
+    }
+
+    /**
+     * Reads the text content of the current element, leaving the reader at its end tag.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder stringBuilder = new StringBuilder(64);
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    stringBuilder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return stringBuilder.toString();
+    }
+
+    private static String cellText(String[] texts, int column) {
+        return texts[column] != null ? texts[column] : "";
+    }
+
     public Jp1Scrap(RemoteDatabase remoteDatabase) {
         super(remoteDatabase);
     }
@@ -68,17 +110,41 @@ public class Jp1Scrap extends Scrapable {
         super();
     }
 
-    private void processRow(Element row) {
-        if (!row.getAttributeNS(TABLE_NAMESPACE_URI, "style-name").equals("ro1"))
-            return;
-        NodeList cells = row.getElementsByTagNameNS(TABLE_NAMESPACE_URI, "table-cell");
-        if (cells.getLength() < 7)
+    /**
+     * Reads the table:table-row element the reader is positioned at, leaving the reader at its end tag.
+     * Of every table:table-cell, the text of its first text:p element is used.
+     */
+    private void processRow(XMLStreamReader reader) throws XMLStreamException {
+        boolean wanted = ROW_STYLE.equals(reader.getAttributeValue(TABLE_NAMESPACE_URI, "style-name"));
+        String formula = null;
+        String[] texts = new String[NUMBER_OF_COLUMNS];
+        int cells = 0;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                if (wanted && isElement(reader, TABLE_NAMESPACE_URI, "table-cell")) {
+                    if (cells == VIEW_COLUMN)
+                        formula = reader.getAttributeValue(TABLE_NAMESPACE_URI, "formula");
+                    cells++;
+                    depth++;
+                } else if (wanted && cells > 0 && cells <= NUMBER_OF_COLUMNS && texts[cells - 1] == null
+                        && isElement(reader, TEXT_NAMESPACE_URI, "p")) {
+                    texts[cells - 1] = readText(reader).trim();
+                } else
+                    depth++;
+            }
+        }
+
+        if (!wanted || cells < MIN_CELLS || formula == null || formula.isEmpty())
             return;
-        Element viewCell = (Element) cells.item(1);
-        String str = viewCell.getAttributeNS(TABLE_NAMESPACE_URI, "formula");
-        if (str.isEmpty())
+        String[] arr = formula.split("\"");
+        if (arr.length < 2) {
+            logger.log(Level.WARNING, "No URI in formula: {0}, ignoring", formula);
             return;
-        String[] arr = str.split("\"");
+        }
         URI uri;
         try {
             uri = new URI(arr[1]);
@@ -86,30 +152,60 @@ public class Jp1Scrap extends Scrapable {
             logger.log(Level.WARNING, "Invalid URI: {0}, ignoring", arr[1]);
             return;
         }
-        //String kind = Jp1Scrap.JP1_NAME; //getTextContent(cells.item(3)); // rmdu or txt
-        String deviceClass = getTextContent(cells.item(4));
-        String manufacturer = getTextContent(cells.item(5));
-        String name = getTextContent(cells.item(6));
-        String protocol = getTextContent(cells.item(9));
-        String device = getTextContent(cells.item(10));
-        String subdevice = getTextContent(cells.item(11));
-        Remote remote = RemoteLink.mkRemote(name, null, protocol, device, subdevice);
-        RemoteLink remoteLink = new RemoteLink(ScrapKind.jp1, remote, uri, null, null);
+        String deviceClass = cellText(texts, DEVICECLASS_COLUMN);
+        String manufacturer = cellText(texts, MANUFACTURER_COLUMN);
+        String name = cellText(texts, NAME_COLUMN);
+        String protocol = cellText(texts, PROTOCOL_COLUMN);
+        String device = cellText(texts, DEVICE_COLUMN);
+        String subdevice = cellText(texts, SUBDEVICE_COLUMN);
+        RemoteLink.Summary summary = new RemoteLink.Summary(name, null, protocol, device, subdevice);
+        RemoteLink remoteLink = new RemoteLink(ScrapKind.jp1, summary, uri, null, null, null);
         remoteDatabase.put(manufacturer, deviceClass, remoteLink);
     }
 
-    private void add(Document document) {
-        NodeList rows = document.getElementsByTagNameNS(TABLE_NAMESPACE_URI, "table-row");
-        logger.log(Level.INFO, "Found {0} rows.", rows.getLength());
-        for (int i = 0; i < rows.getLength(); i++) {
-            processRow((Element) rows.item(i));
+    private void add(InputStream inputStream, String systemId) throws SAXException {
+        int rows = 0;
+        try {
+            XMLStreamReader reader = RemoteDatabase.newXMLInputFactory().createXMLStreamReader(systemId, inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && isElement(reader, TABLE_NAMESPACE_URI, "table-row")) {
+                        rows++;
+                        processRow(reader);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new SAXException(ex);
         }
+        logger.log(Level.INFO, "Found {0} rows.", rows);
     }
 
+    /**
+     * Adds the remotes of the JP1 master list in the argument, either an .ods or a .fods file.
+     * @param file
+     * @throws SAXException
+     * @throws IOException
+     */
     @Override
     public void add(File file) throws SAXException, IOException {
         remoteDatabase.addKind(ScrapKind.jp1);
-        add(XmlUtils.openXmlFile(file, (Schema) null, true, false));
+        if (Archive.isZip(file)) {
+            try (ZipFile zipFile = new ZipFile(file)) {
+                ZipEntry entry = zipFile.getEntry(CONTENT_ENTRY_NAME);
+                if (entry == null)
+                    throw new IOException(file + " has no " + CONTENT_ENTRY_NAME + ", is not an OpenDocument spreadsheet");
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    add(inputStream, file.toURI().toString() + "/" + CONTENT_ENTRY_NAME);
+                }
+            }
+        } else {
+            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+                add(inputStream, file.toURI().toString());
+            }
+        }
     }
 
     @Override
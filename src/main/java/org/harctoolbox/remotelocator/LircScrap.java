@@ -17,12 +17,24 @@ this program. If not, see http://www.gnu.org/licenses/.
 
 package org.harctoolbox.remotelocator;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import org.harctoolbox.girr.Remote;
 import org.harctoolbox.girr.RemoteSet;
 import static org.harctoolbox.ircore.IrCoreUtils.EXTENDED_LATIN1_NAME;
@@ -35,6 +47,111 @@ public class LircScrap extends Girrable {
 
     public static final String LIRC_BASE    = "https://sourceforge.net/p/lirc-remotes/code/ci/master/tree/remotes/";
     public static final URI LIRC_BASE_URI   = URI.create(LIRC_BASE);
+    private static final String LIRC_ARCHIVE_DIRECTORY = "remotes";
+
+    /**
+     * Name of the manifest option recording {@link #setMetadataOnly(boolean)}.
+     */
+    public static final String METADATA_ONLY_OPTION_NAME = "lircMetadataOnly";
+
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final String BEGIN = "begin";
+    private static final String END = "end";
+    private static final String CODES = "codes";
+    private static final String RAW_CODES = "raw_codes";
+    private static final String NAME = "name";
+    private static final char COMMENT_CHAR = '#';
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Parses a Lirc file for its meta data only.
+     * Of every codes and raw_codes section, only the first command is kept,
+     * so that at most one command per remote is rendered and decoded.
+     * @param file Lirc file
+     * @return RemoteSet, with (at most) one command per remote.
+     * @throws IOException
+     */
+    public static RemoteSet parseMetadata(File file) throws IOException {
+        return parseMetadata(new FileInputStream(file), file.getPath());
+    }
+
+    /**
+     * Like {@link #parseMetadata(File)}, reading from an InputStream, which is closed.
+     * @param inputStream Lirc file content.
+     * @param source Name of the source, for messages and the RemoteSet.
+     * @return RemoteSet, with (at most) one command per remote.
+     * @throws IOException
+     */
+    public static RemoteSet parseMetadata(InputStream inputStream, String source) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, EXTENDED_LATIN1_NAME))) {
+            String truncated = truncateCodes(reader);
+            return ConfigFile.parseConfig(new StringReader(truncated), source, true, null);
+        }
+    }
+
+    private enum Section {
+        other,
+        codes,
+        codesDone,
+        rawCodes,
+        firstRawCode,
+        rawCodesDone
+    }
+
+    /**
+     * Copies the content of the argument, except for the second and later commands of codes and raw_codes sections.
+     */
+    static String truncateCodes(BufferedReader reader) throws IOException {
+        StringBuilder result = new StringBuilder(INITIAL_CAPACITY);
+        Section section = Section.other;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            String trimmed = line.trim();
+            String[] tokens = WHITESPACE.split(trimmed, 3);
+            String first = tokens[0];
+            boolean keep;
+            if (first.equalsIgnoreCase(BEGIN) && tokens.length > 1) {
+                section = tokens[1].equalsIgnoreCase(CODES) ? Section.codes
+                        : tokens[1].equalsIgnoreCase(RAW_CODES) ? Section.rawCodes
+                        : section;
+                keep = true;
+            } else if (first.equalsIgnoreCase(END) && tokens.length > 1
+                    && (tokens[1].equalsIgnoreCase(CODES) || tokens[1].equalsIgnoreCase(RAW_CODES))) {
+                section = Section.other;
+                keep = true;
+            } else if (trimmed.isEmpty() || trimmed.charAt(0) == COMMENT_CHAR)
+                keep = section != Section.codesDone && section != Section.rawCodesDone;
+            else {
+                switch (section) {
+                    case codes:
+                        section = Section.codesDone;
+                        keep = true;
+                        break;
+                    case rawCodes:
+                        if (first.equalsIgnoreCase(NAME))
+                            section = Section.firstRawCode;
+                        keep = true;
+                        break;
+                    case firstRawCode:
+                        if (first.equalsIgnoreCase(NAME))
+                            section = Section.rawCodesDone;
+                        keep = section == Section.firstRawCode;
+                        break;
+                    case codesDone:
+                    case rawCodesDone:
+                        keep = false;
+                        break;
+                    default:
+                        keep = true;
+                }
+            }
+            if (keep)
+                result.append(line).append('\n');
+        }
+        return result.toString();
+    }
+
+    private int parallelism = 1;
+    private boolean metadataOnly = false;
 
     public static RemoteDatabase scrap(File dir) throws IOException, SAXException {
         LircScrap lirc = new LircScrap();
@@ -54,57 +171,146 @@ public class LircScrap extends Girrable {
         return "lirc";
     }
 
+    /**
+     * Adds the remotes of the directory argument, or, if it is an archive (zip or tar.gz) of the lirc-remotes repository,
+     * of its "remotes" directory. Archives are always read sequentially.
+     * @param dir Directory or archive.
+     * @throws IOException
+     */
     @Override
     public void add(File dir) throws IOException {
         remoteDatabase.addKind(ScrapKind.lirc);
-        add(LIRC_BASE_URI, dir, dir);
+        addManifestRoot(dir);
+        if (Archive.isArchive(dir))
+            addArchive(LIRC_BASE_URI, dir);
+        else
+            add(LIRC_BASE_URI, dir, dir);
+    }
+
+    private void addArchive(URI uri, File archive) throws IOException {
+        Archive.visitEntries(archive, LIRC_ARCHIVE_DIRECTORY, (Archive.Entry entry) -> {
+            String[] components = entry.getPathComponents();
+            if (components.length != 2) {
+                logger.log(Level.FINE, "Archive entry {0} is not a remote, ignored.", entry.getFile());
+                return;
+            }
+            ManufacturerDeviceClasses manufacturerTypes = remoteDatabase.getOrCreate(components[0]);
+            DeviceClassRemotes devices = manufacturerTypes.getOrCreate(UNKNOWN);
+            try {
+                scrapFile(entry, (File file) -> {
+                    RemoteSet remoteSet = metadataOnly
+                            ? parseMetadata(entry.getInputStream(), file.getPath())
+                            : ConfigFile.parseConfig(new InputStreamReader(entry.getInputStream(), EXTENDED_LATIN1_NAME), file.getPath(), true, null);
+                    return remoteLinks(remoteSet, uri, archive, file);
+                }).forEach(devices::add);
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, ex.getLocalizedMessage());
+            }
+            manufacturerTypes.removeIfEmpty(devices);
+            remoteDatabase.removeIfEmpty(manufacturerTypes);
+        });
+    }
+
+    private static List<RemoteLink> remoteLinks(RemoteSet remoteSet, URI uri, File baseDir, File file) {
+        List<RemoteLink> result = new ArrayList<>(remoteSet.size());
+        for (Remote remote : remoteSet)
+            result.add(new RemoteLink(ScrapKind.lirc, remote, uri, baseDir, file));
+        return result;
     }
 
     private void add(URI uriBase, File baseDir, File file) throws IOException {
-        assertReadableDirectory(file);
+        if (parallelism != 1) {
+            addParallel(uriBase, baseDir, file);
+            return;
+        }
 
-        String[] manufacturerArray = file.list();
-        for (String manufacturer : manufacturerArray) {
-            ManufacturerDeviceClasses manufacturerTypes = remoteDatabase.getOrCreate(manufacturer);
-            add(manufacturerTypes, uriBase, baseDir, new File(file, manufacturer));
+        boolean readable = visitEntries(file, (File dir, BasicFileAttributes attributes) -> {
+            ManufacturerDeviceClasses manufacturerTypes = remoteDatabase.getOrCreate(dir.getName());
+            add(manufacturerTypes, uriBase, baseDir, dir, attributes);
             remoteDatabase.removeIfEmpty(manufacturerTypes);
-        }
+        });
+        if (!readable)
+            throw new IOException(file + " is not a readable directory");
     }
 
-    private void add(ManufacturerDeviceClasses manufacturerTypes, URI uri, File baseDir, File dir) throws IOException {
-        if (!isReadableDirectory(dir)) {
-            // Non-fatal; there may lie junk files around
-            logger.log(Level.WARNING, "{0} is not a readable directory", dir);
-            return;
+    private void addParallel(URI uriBase, File baseDir, File file) throws IOException {
+        ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : new ForkJoinPool();
+        List<ManufacturerTask> manufacturerTasks;
+        try {
+            manufacturerTasks = pool.invoke(new ManufacturersTask(uriBase, baseDir, file));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            pool.shutdown();
         }
 
+        // Insert the results in the same order as the sequential version does.
+        for (ManufacturerTask task : manufacturerTasks) {
+            ManufacturerDeviceClasses manufacturerTypes = remoteDatabase.getOrCreate(task.manufacturer);
+            DeviceClassRemotes devices = manufacturerTypes.getOrCreate(UNKNOWN);
+            for (FileTask fileTask : task.getRawResult())
+                fileTask.getRawResult().forEach(devices::add);
+            manufacturerTypes.removeIfEmpty(devices);
+            remoteDatabase.removeIfEmpty(manufacturerTypes);
+        }
+    }
+
+    private void add(ManufacturerDeviceClasses manufacturerTypes, URI uri, File baseDir, File dir, BasicFileAttributes attributes) throws IOException {
         DeviceClassRemotes devices = manufacturerTypes.getOrCreate(UNKNOWN);
-        add(devices, uri, baseDir, dir);
+        boolean readable = attributes.isDirectory()
+                && visitEntries(dir, (File path, BasicFileAttributes fileAttributes) -> parse(uri, baseDir, path, fileAttributes).forEach(devices::add));
+        if (!readable)
+            // Non-fatal; there may lie junk files around
+            logger.log(Level.WARNING, "{0} is not a readable directory", dir);
         manufacturerTypes.removeIfEmpty(devices);
     }
 
-    private void add(DeviceClassRemotes devices, URI uri, File baseDir, File dir) {
-        if (!isReadableDirectory(dir)) {
-            // Can be junk file, non-fatal
-            logger.log(Level.WARNING, "File {0} not a readable directory, ignored.", dir);
-            return;
+    private List<RemoteLink> parse(URI uri, File baseDir, File path, BasicFileAttributes attributes) {
+        if (!attributes.isRegularFile()) {
+            logger.log(Level.WARNING, "{0} is not a regular file, ignored", path);
+            return Collections.emptyList();
         }
-
-        String[] array = dir.list();
-        for (String filename : array) {
-            File path = new File(dir, filename);
-            try {
-                RemoteSet remoteSet = ConfigFile.parseConfig(path, EXTENDED_LATIN1_NAME, true, null);
-                for (Remote remote : remoteSet) {
-                    RemoteLink remoteLink = new RemoteLink(ScrapKind.lirc, remote, uri, baseDir, path);
-                    devices.add(remoteLink);
-                }
-            } catch (IOException ex) {
-                logger.log(Level.WARNING, ex.getLocalizedMessage());
-            }
+        try {
+            return scrapFile(path, attributes, (File file) -> {
+                RemoteSet remoteSet = metadataOnly ? parseMetadata(file) : ConfigFile.parseConfig(file, EXTENDED_LATIN1_NAME, true, null);
+                return remoteLinks(remoteSet, uri, baseDir, file);
+            });
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, ex.getLocalizedMessage());
+            return Collections.emptyList();
         }
     }
 
+    /**
+     * Sets the parallelism level used for parsing the Lirc files.
+     * 1 (the default) means sequential parsing, 0 means the number of available processors.
+     * Otherwise, manufacturer directories and files are parsed on a ForkJoinPool of the given parallelism.
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 0)
+            throw new IllegalArgumentException("parallelism must be non-negative");
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * If set, the Lirc files are only scanned for their meta data, using parseMetadata,
+     * instead of rendering and decoding all their commands.
+     * The remote links are the same, since only the first command of a remote enters them.
+     * @param metadataOnly
+     */
+    public void setMetadataOnly(boolean metadataOnly) {
+        this.metadataOnly = metadataOnly;
+    }
+
+    public boolean isMetadataOnly() {
+        return metadataOnly;
+    }
+
     public Remote getRemote(InputStreamReader reader, String source, String xpath, String manufacturer, String deviceClass) throws IOException {
         RemoteSet remoteSet = ConfigFile.parseConfig(reader, source, true, null);
         Remote lircRemote = remoteSet.iterator().next();
@@ -123,4 +329,89 @@ public class LircScrap extends Girrable {
     public Remote getRemote(InputStreamReader reader, String source, String xpath, String manufacturer, String deviceClass, String remoteName) throws IOException {
         return getRemote(reader, source, xpath, manufacturer, deviceClass);
     }
+
+    @SuppressWarnings("serial")
+    private final class ManufacturersTask extends RecursiveTask<List<ManufacturerTask>> {
+
+        private final URI uri;
+        private final File baseDir;
+        private final File dir;
+
+        ManufacturersTask(URI uri, File baseDir, File dir) {
+            this.uri = uri;
+            this.baseDir = baseDir;
+            this.dir = dir;
+        }
+
+        @Override
+        protected List<ManufacturerTask> compute() {
+            List<ManufacturerTask> tasks = new ArrayList<>(64);
+            try {
+                if (!visitEntries(dir, (File manufacturerDir, BasicFileAttributes attributes) -> tasks.add(new ManufacturerTask(uri, baseDir, manufacturerDir, attributes))))
+                    throw new IOException(dir + " is not a readable directory");
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            invokeAll(tasks);
+            return tasks;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class ManufacturerTask extends RecursiveTask<List<FileTask>> {
+
+        private final URI uri;
+        private final File baseDir;
+        private final File dir;
+        private final BasicFileAttributes attributes;
+        private final String manufacturer;
+
+        ManufacturerTask(URI uri, File baseDir, File dir, BasicFileAttributes attributes) {
+            this.uri = uri;
+            this.baseDir = baseDir;
+            this.dir = dir;
+            this.attributes = attributes;
+            this.manufacturer = dir.getName();
+        }
+
+        @Override
+        protected List<FileTask> compute() {
+            List<FileTask> tasks = new ArrayList<>(16);
+            boolean readable;
+            try {
+                readable = attributes.isDirectory()
+                        && visitEntries(dir, (File path, BasicFileAttributes fileAttributes) -> tasks.add(new FileTask(uri, baseDir, path, fileAttributes)));
+            } catch (IOException ex) {
+                readable = false;
+            }
+            if (!readable) {
+                // Non-fatal; there may lie junk files around
+                logger.log(Level.WARNING, "{0} is not a readable directory", dir);
+                return Collections.emptyList();
+            }
+            invokeAll(tasks);
+            return tasks;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class FileTask extends RecursiveTask<List<RemoteLink>> {
+
+        private final URI uri;
+        private final File baseDir;
+        private final File path;
+        private final BasicFileAttributes attributes;
+
+        FileTask(URI uri, File baseDir, File path, BasicFileAttributes attributes) {
+            this.uri = uri;
+            this.baseDir = baseDir;
+            this.path = path;
+            this.attributes = attributes;
+        }
+
+        @Override
+        protected List<RemoteLink> compute() {
+            return parse(uri, baseDir, path, attributes);
+        }
+    }
 }
@@ -0,0 +1,442 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import javax.xml.validation.Schema;
+import static org.harctoolbox.girr.XmlStatic.COMMENT_ATTRIBUTE_NAME;
+import static org.harctoolbox.girr.XmlStatic.NAME_ATTRIBUTE_NAME;
+import static org.harctoolbox.girr.XmlStatic.PROTOCOL_ATTRIBUTE_NAME;
+import org.harctoolbox.ircore.ThisCannotHappenException;
+import static org.harctoolbox.remotelocator.RemoteDatabase.CREATING_TOOL_VERSION_ATTRIBUTE_NAME;
+import static org.harctoolbox.remotelocator.RemoteDatabase.FORMATVERSION_ATTRIBUTE_NAME;
+import static org.harctoolbox.remotelocator.RemoteDatabase.REMOTELOCATOR_NAMESPACE;
+import static org.harctoolbox.remotelocator.RemoteDatabase.REMOTELOCATOR_PREFIX;
+import static org.harctoolbox.remotelocator.RemoteLink.DEVICE_ATTRIBUTE_NAME;
+import static org.harctoolbox.remotelocator.RemoteLink.KIND_ATTRIBUTE_NAME;
+import static org.harctoolbox.remotelocator.RemoteLink.PATH_ELEMENT_NAME;
+import static org.harctoolbox.remotelocator.RemoteLink.REMOTELINK_ELEMENT_NAME;
+import static org.harctoolbox.remotelocator.RemoteLink.SUBDEVICE_ATTRIBUTE_NAME;
+import static org.harctoolbox.remotelocator.RemoteLink.URL_ATTRIBUTE_NAME;
+import static org.harctoolbox.remotelocator.RemoteLink.XPATH_ATTRIBUTE_NAME;
+import org.harctoolbox.xml.XmlUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Sidecar manifest for incremental scraping.
+ * For every scraped source file, it records path, size, modification time, and content hash,
+ * together with the remote links produced from it.
+ * A file that is unchanged since the last run is not parsed again; instead its remote links are taken from the manifest.
+ * The entries of files below the roots scraped in the current run (see {@link #addRoot(File)}) are replaced by the files visited,
+ * so deleted files are dropped; entries of other roots, for example of scrapers not run this time, are kept.
+ * Files whose remote links depend on other files, like Girr files using XInclude, are not recorded (see {@link #doNotCache(File)}),
+ * and are thus parsed in every run.
+ * The tool version and the scraper options that change the remote links produced are recorded in the header;
+ * if they differ from those of the current run, all old entries are dropped.
+ */
+public final class Manifest {
+
+    private static final Logger logger = Logger.getLogger(Manifest.class.getName());
+
+    static final String MANIFEST_ELEMENT_NAME = "manifest";
+    static final String FILE_ELEMENT_NAME = "file";
+    static final String SIZE_ATTRIBUTE_NAME = "size";
+    static final String LASTMODIFIED_ATTRIBUTE_NAME = "lastModified";
+    static final String HASH_ATTRIBUTE_NAME = "sha1";
+    static final String MANUFACTURER_ATTRIBUTE_NAME = "manufacturer";
+    static final String DEVICECLASS_ATTRIBUTE_NAME = "deviceClass";
+    static final String FORMATVERSION = "1.0";
+    private static final String HASH_ALGORITHM = "SHA-1";
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    static String hash(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int n;
+            while ((n = inputStream.read(buffer)) > 0)
+                digest.update(buffer, 0, n);
+        }
+        return toHex(digest);
+    }
+
+    static String hash(String string) {
+        return hash(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String hash(byte[] data) {
+        MessageDigest digest = newDigest();
+        digest.update(data);
+        return toHex(digest);
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new ThisCannotHappenException(ex);
+        }
+    }
+
+    static String toHex(MessageDigest digest) {
+        StringBuilder str = new StringBuilder(2 * digest.getDigestLength());
+        for (byte b : digest.digest())
+            str.append(String.format("%02x", b & 0xFF));
+        return str.toString();
+    }
+
+    private static String key(File file) {
+        return file.getAbsolutePath();
+    }
+
+    private final File file;
+    private final Map<String, String> options;
+    private final Map<String, Entry> oldEntries;
+    private final Map<String, Entry> newEntries;
+    private final Set<String> roots = ConcurrentHashMap.newKeySet();
+    private final Set<String> uncacheable = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger parsed = new AtomicInteger();
+
+    /**
+     * Creates a manifest, tied to the file argument. If the file exists, it is read.
+     * @param file
+     * @throws IOException
+     * @throws SAXException
+     */
+    public Manifest(File file) throws IOException, SAXException {
+        this(file, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a manifest, tied to the file argument. If the file exists, it is read,
+     * unless it was written with other options, or by another version of the tool.
+     * @param file
+     * @param options Scraper options that change the remote links produced, as name/value pairs.
+     * Names must be valid XML attribute names.
+     * @throws IOException
+     * @throws SAXException
+     */
+    public Manifest(File file, Map<String, String> options) throws IOException, SAXException {
+        this.file = file;
+        this.options = new TreeMap<>(options);
+        this.options.put(CREATING_TOOL_VERSION_ATTRIBUTE_NAME, Version.version);
+        this.newEntries = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+        this.oldEntries = file.exists() ? load(file, this.options) : Collections.emptyMap();
+    }
+
+    private static Map<String, Entry> load(File file, Map<String, String> options) throws IOException, SAXException {
+        Document document = XmlUtils.openXmlFile(file, (Schema) null, true, false);
+        Element root = document.getDocumentElement();
+        String actualVersion = root.getAttribute(FORMATVERSION_ATTRIBUTE_NAME);
+        if (!actualVersion.equals(FORMATVERSION)) {
+            logger.log(Level.WARNING, "Manifest {0} has format version {1}, ignored.", new Object[]{file, actualVersion});
+            return Collections.emptyMap();
+        }
+        Map<String, String> actualOptions = options(root);
+        if (!actualOptions.equals(options)) {
+            logger.log(Level.INFO, "Manifest {0} was written with options {1}, not {2}; ignored.", new Object[]{file, actualOptions, options});
+            return Collections.emptyMap();
+        }
+
+        NodeList nodeList = root.getElementsByTagNameNS(REMOTELOCATOR_NAMESPACE, FILE_ELEMENT_NAME);
+        Map<String, Entry> result = new HashMap<>(nodeList.getLength());
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            Entry entry = new Entry((Element) nodeList.item(i));
+            result.put(entry.path, entry);
+        }
+        logger.log(Level.INFO, "Manifest {0} read, containing {1} files.", new Object[]{file, result.size()});
+        return result;
+    }
+
+    /**
+     * @return The attributes of the root element, except for the namespace declarations and the format version.
+     */
+    private static Map<String, String> options(Element root) {
+        NamedNodeMap attributes = root.getAttributes();
+        Map<String, String> result = new TreeMap<>();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            String name = attribute.getNodeName();
+            if (!name.equals(XMLNS_ATTRIBUTE) && !name.startsWith(XMLNS_ATTRIBUTE + ":") && !name.equals(FORMATVERSION_ATTRIBUTE_NAME))
+                result.put(name, attribute.getNodeValue());
+        }
+        return result;
+    }
+
+    /**
+     * Delivers the remote links of the file argument,
+     * either from the manifest, if the file is unchanged, or by invoking the parser.
+     * @param file Source file
+     * @param parser Function to parse the source file
+     * @return List of RemoteLinks.
+     * @throws IOException
+     */
+    List<RemoteLink> scrapFile(File file, Scrapable.FileParser parser) throws IOException {
+        return scrapFile(file, file.length(), file.lastModified(), parser);
+    }
+
+    /**
+     * Like {@link #scrapFile(File, Scrapable.FileParser)}, with size and modification time already known.
+     */
+    List<RemoteLink> scrapFile(File file, long size, long lastModified, Scrapable.FileParser parser) throws IOException {
+        return scrapFile(file, size, lastModified, () -> hash(file), parser);
+    }
+
+    /**
+     * Like {@link #scrapFile(File, Scrapable.FileParser)}, for an entry of an archive.
+     * It is identified by the name it would have if the archive was extracted, see {@link Archive.Entry#getFile()}.
+     */
+    List<RemoteLink> scrapEntry(Archive.Entry entry, Scrapable.FileParser parser) throws IOException {
+        return scrapFile(entry.getFile(), entry.getSize(), entry.getLastModified(), () -> hash(entry.getContent()), parser);
+    }
+
+    private List<RemoteLink> scrapFile(File file, long size, long lastModified, Hasher hasher, Scrapable.FileParser parser) throws IOException {
+        String key = key(file);
+        String hash = null;
+        Entry old = oldEntries.get(key);
+        if (old != null) {
+            boolean unchanged = old.size == size && old.lastModified == lastModified;
+            if (!unchanged) {
+                hash = hasher.hash();
+                unchanged = hash.equals(old.hash);
+            }
+            if (unchanged) {
+                try {
+                    List<RemoteLink> remoteLinks = old.instantiate();
+                    newEntries.put(key, new Entry(old, size, lastModified));
+                    reused.incrementAndGet();
+                    return remoteLinks;
+                } catch (URISyntaxException | MalformedURLException | IllegalArgumentException ex) {
+                    logger.log(Level.WARNING, "Erroneous manifest entry for {0}, parsing the file.", file);
+                }
+            }
+        }
+
+        List<RemoteLink> remoteLinks = parser.parse(file);
+        if (!uncacheable.remove(key))
+            newEntries.put(key, new Entry(key, size, lastModified, hash != null ? hash : hasher.hash(), remoteLinks));
+        parsed.incrementAndGet();
+        return remoteLinks;
+    }
+
+    /**
+     * Declares the argument, a directory or an archive, as scraped in the current run.
+     * On save, the old entries below it are replaced by the ones visited.
+     * @param root
+     */
+    void addRoot(File root) {
+        roots.add(key(root) + File.separator);
+    }
+
+    /**
+     * To be called by a parser (during scrapFile), if the remote links of the file depend on other files.
+     * The file is then not recorded in the manifest.
+     * @param file
+     */
+    void doNotCache(File file) {
+        uncacheable.add(key(file));
+    }
+
+    private boolean isBelowRoot(String key) {
+        for (String root : roots)
+            if (key.startsWith(root))
+                return true;
+        return false;
+    }
+
+    /**
+     * Writes the entries of the files visited since the manifest was created to its file,
+     * together with the old entries not below any of the roots scraped.
+     * @throws IOException
+     */
+    public void save() throws IOException {
+        XmlUtils.printDOM(file, toDocument());
+        logger.log(Level.INFO, "Manifest {0} written; {1} files reused, {2} files parsed.", new Object[]{file, getReused(), getParsed()});
+    }
+
+    Document toDocument() {
+        Document document = XmlUtils.newDocument(true);
+        Element root = document.createElementNS(REMOTELOCATOR_NAMESPACE, REMOTELOCATOR_PREFIX + ":" + MANIFEST_ELEMENT_NAME);
+        root.setAttribute(XMLNS_ATTRIBUTE + ":" + REMOTELOCATOR_PREFIX, REMOTELOCATOR_NAMESPACE);
+        root.setAttribute(FORMATVERSION_ATTRIBUTE_NAME, FORMATVERSION);
+        options.forEach(root::setAttribute);
+        document.appendChild(root);
+        // Sort, to get a reproducible file.
+        Map<String, Entry> entries = new TreeMap<>(newEntries);
+        oldEntries.forEach((key, entry) -> {
+            if (!isBelowRoot(key))
+                entries.putIfAbsent(key, entry);
+        });
+        for (Entry entry : entries.values())
+            root.appendChild(entry.toElement(document));
+        return document;
+    }
+
+    /**
+     * @return Number of files, the remote links of which were taken from the manifest.
+     */
+    public int getReused() {
+        return reused.get();
+    }
+
+    /**
+     * @return Number of files that had to be parsed.
+     */
+    public int getParsed() {
+        return parsed.get();
+    }
+
+    private static final class Entry {
+        private static final String[] LINK_ATTRIBUTES = {
+            KIND_ATTRIBUTE_NAME, NAME_ATTRIBUTE_NAME, COMMENT_ATTRIBUTE_NAME, PROTOCOL_ATTRIBUTE_NAME,
+            DEVICE_ATTRIBUTE_NAME, SUBDEVICE_ATTRIBUTE_NAME, PATH_ELEMENT_NAME, URL_ATTRIBUTE_NAME, XPATH_ATTRIBUTE_NAME,
+            MANUFACTURER_ATTRIBUTE_NAME, DEVICECLASS_ATTRIBUTE_NAME
+        };
+
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        /**
+         * Freshly parsed remote links; null for entries read from the file.
+         */
+        private final List<RemoteLink> remoteLinks;
+
+        /**
+         * Attributes of the remote links, as read from the file; null for freshly parsed entries.
+         */
+        private final List<Map<String, String>> linkAttributes;
+
+        Entry(String path, long size, long lastModified, String hash, List<RemoteLink> remoteLinks) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.remoteLinks = remoteLinks;
+            this.linkAttributes = null;
+        }
+
+        Entry(Entry old, long size, long lastModified) {
+            this.path = old.path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = old.hash;
+            this.remoteLinks = null;
+            this.linkAttributes = old.linkAttributes;
+        }
+
+        Entry(Element element) {
+            path = element.getAttribute(PATH_ELEMENT_NAME);
+            size = Long.parseLong(element.getAttribute(SIZE_ATTRIBUTE_NAME));
+            lastModified = Long.parseLong(element.getAttribute(LASTMODIFIED_ATTRIBUTE_NAME));
+            hash = element.getAttribute(HASH_ATTRIBUTE_NAME);
+            remoteLinks = null;
+            NodeList nodeList = element.getElementsByTagNameNS(REMOTELOCATOR_NAMESPACE, REMOTELINK_ELEMENT_NAME);
+            linkAttributes = new ArrayList<>(nodeList.getLength());
+            for (int i = 0; i < nodeList.getLength(); i++) {
+                // Copy the attributes, since a DOM is not safe for concurrent access.
+                NamedNodeMap attributes = nodeList.item(i).getAttributes();
+                Map<String, String> map = new LinkedHashMap<>(attributes.getLength());
+                for (int j = 0; j < attributes.getLength(); j++) {
+                    Node attribute = attributes.item(j);
+                    map.put(attribute.getNodeName(), attribute.getNodeValue());
+                }
+                linkAttributes.add(map);
+            }
+        }
+
+        List<RemoteLink> instantiate() throws URISyntaxException, MalformedURLException {
+            List<RemoteLink> result = new ArrayList<>(linkAttributes.size());
+            for (Map<String, String> map : linkAttributes) {
+                RemoteLink remoteLink = new RemoteLink(get(map, KIND_ATTRIBUTE_NAME), get(map, NAME_ATTRIBUTE_NAME),
+                        get(map, COMMENT_ATTRIBUTE_NAME), get(map, PROTOCOL_ATTRIBUTE_NAME), get(map, DEVICE_ATTRIBUTE_NAME),
+                        get(map, SUBDEVICE_ATTRIBUTE_NAME), get(map, PATH_ELEMENT_NAME), get(map, URL_ATTRIBUTE_NAME),
+                        get(map, XPATH_ATTRIBUTE_NAME));
+                DeviceClassRemotes.detached(get(map, MANUFACTURER_ATTRIBUTE_NAME), get(map, DEVICECLASS_ATTRIBUTE_NAME)).add(remoteLink);
+                result.add(remoteLink);
+            }
+            return result;
+        }
+
+        private static String get(Map<String, String> map, String name) {
+            String value = map.get(name);
+            return value != null ? value : "";
+        }
+
+        Element toElement(Document document) {
+            Element element = document.createElementNS(REMOTELOCATOR_NAMESPACE, REMOTELOCATOR_PREFIX + ":" + FILE_ELEMENT_NAME);
+            element.setAttribute(PATH_ELEMENT_NAME, path);
+            element.setAttribute(SIZE_ATTRIBUTE_NAME, Long.toString(size));
+            element.setAttribute(LASTMODIFIED_ATTRIBUTE_NAME, Long.toString(lastModified));
+            element.setAttribute(HASH_ATTRIBUTE_NAME, hash);
+            if (remoteLinks != null) {
+                for (RemoteLink remoteLink : remoteLinks) {
+                    Element el = remoteLink.toElement(document);
+                    el.setAttribute(MANUFACTURER_ATTRIBUTE_NAME, remoteLink.getManufacturer());
+                    el.setAttribute(DEVICECLASS_ATTRIBUTE_NAME, remoteLink.getDeviceClass());
+                    element.appendChild(el);
+                }
+            } else {
+                for (Map<String, String> map : linkAttributes) {
+                    Element el = document.createElementNS(REMOTELOCATOR_NAMESPACE, REMOTELOCATOR_PREFIX + ":" + REMOTELINK_ELEMENT_NAME);
+                    for (String attributeName : LINK_ATTRIBUTES) {
+                        String value = map.get(attributeName);
+                        if (value != null)
+                            el.setAttribute(attributeName, value);
+                    }
+                    element.appendChild(el);
+                }
+            }
+            return element;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Hasher {
+        String hash() throws IOException;
+    }
+}
@@ -25,12 +25,16 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import org.harctoolbox.girr.Named;
 import org.harctoolbox.girr.Remote;
 import static org.harctoolbox.remotelocator.DeviceClassRemotes.DEVICECLASS_ELEMENT_NAME;
@@ -54,9 +58,25 @@ public final class ManufacturerDeviceClasses implements Named, Iterable<DeviceCl
     private final Map<String, DeviceClassRemotes> deviceClasses;
     private RemoteDatabase remoteDatabase;
 
+    /**
+     * If non-null, the content has not been read yet, but resides in this shard.
+     */
+    private transient volatile Shard shard;
+
+    /**
+     * Kinds of the content residing in the shard, as given by the root file; null if not known.
+     */
+    private final transient EnumSet<ScrapKind> shardKinds;
+
     ManufacturerDeviceClasses(String mani) {
+        this(mani, null, null);
+    }
+
+    ManufacturerDeviceClasses(String mani, Shard shard, EnumSet<ScrapKind> shardKinds) {
         this.manufacturer = mani;
         this.deviceClasses = new LinkedHashMap<>(INITIAL_CAPACITY);
+        this.shard = shard;
+        this.shardKinds = shardKinds;
     }
 
     ManufacturerDeviceClasses(Element manifacturerElement) {
@@ -73,6 +93,54 @@ public final class ManufacturerDeviceClasses implements Named, Iterable<DeviceCl
         }
     }
 
+    /**
+     * Reads an rl:manufacturer element, leaving the reader at its end element.
+     * Device classes containing an erroneous URL are skipped, like in the DOM version.
+     * @param reader XMLStreamReader positioned at the start of an rl:manufacturer element.
+     * @throws XMLStreamException
+     */
+    ManufacturerDeviceClasses(XMLStreamReader reader) throws XMLStreamException {
+        this(RemoteDatabase.getAttribute(reader, MANUFACTURER_ATTRIBUTE_NAME));
+        while (true) {
+            reader.next();
+            if (RemoteDatabase.isEndElement(reader, MANUFACTURER_ELEMENT_NAME))
+                break;
+            if (RemoteDatabase.isStartElement(reader, DEVICECLASS_ELEMENT_NAME)) {
+                try {
+                    DeviceClassRemotes dev = new DeviceClassRemotes(reader);
+                    add(dev);
+                } catch (MalformedURLException | URISyntaxException ex) {
+                    logger.log(Level.WARNING, "Erroneous URL {0}", ex.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    private Map<String, DeviceClassRemotes> deviceClasses() {
+        Shard s = shard;
+        if (s != null)
+            s.resolve();
+        return deviceClasses;
+    }
+
+    /**
+     * Takes over the device classes of the argument, the content read from the shard.
+     * @param content Manufacturer read from the shard, or null if not present there.
+     */
+    void adopt(ManufacturerDeviceClasses content) {
+        if (content != null)
+            for (DeviceClassRemotes dev : content.deviceClasses.values())
+                add(dev);
+        shard = null;
+    }
+
+    /**
+     * @return true if the content has not been read from its shard yet.
+     */
+    boolean isStub() {
+        return shard != null;
+    }
+
     public int numberRemotes() {
         int sum = 0;
         for (DeviceClassRemotes deviceClassRemotes : this)
@@ -98,9 +166,29 @@ public final class ManufacturerDeviceClasses implements Named, Iterable<DeviceCl
         return element;
     }
 
+    /**
+     * Writes the rl:manufacturer element, including its content, to the XMLStreamWriter.
+     * @param writer
+     * @throws XMLStreamException
+     */
+    public void write(XMLStreamWriter writer) throws XMLStreamException {
+        RemoteDatabase.indent(writer, 1);
+        if (deviceClasses().isEmpty()) {
+            writer.writeEmptyElement(REMOTELOCATOR_PREFIX, MANUFACTURER_ELEMENT_NAME, REMOTELOCATOR_NAMESPACE);
+            writer.writeAttribute(MANUFACTURER_ATTRIBUTE_NAME, manufacturer);
+            return;
+        }
+        writer.writeStartElement(REMOTELOCATOR_PREFIX, MANUFACTURER_ELEMENT_NAME, REMOTELOCATOR_NAMESPACE);
+        writer.writeAttribute(MANUFACTURER_ATTRIBUTE_NAME, manufacturer);
+        for (DeviceClassRemotes type : this)
+            type.write(writer);
+        RemoteDatabase.indent(writer, 1);
+        writer.writeEndElement();
+    }
+
     @Override
     public Iterator<DeviceClassRemotes> iterator() {
-        return deviceClasses.values().iterator();
+        return deviceClasses().values().iterator();
     }
 
     void add(ScrapKind kind, Remote remote, URI baseUri, File baseDir, File path, String xpath) {
@@ -110,31 +198,31 @@ public final class ManufacturerDeviceClasses implements Named, Iterable<DeviceCl
 
     DeviceClassRemotes getOrCreate(String deviceClass) {
         String key = mkKey(deviceClass);
-        DeviceClassRemotes typeRemote = deviceClasses.get(key);
+        DeviceClassRemotes typeRemote = deviceClasses().get(key);
         if (typeRemote == null) {
             typeRemote = new DeviceClassRemotes((deviceClass == null || deviceClass.isEmpty()) ? UNKNOWN : deviceClass);
-            deviceClasses.put(key, typeRemote);
+            deviceClasses().put(key, typeRemote);
             typeRemote.setOwner(this);
         }
         return typeRemote;
     }
 
     RemoteLink get(String deviceClass, String remoteName) throws NotFoundException {
-        DeviceClassRemotes type = deviceClasses.get(mkKey(deviceClass));
+        DeviceClassRemotes type = deviceClasses().get(mkKey(deviceClass));
         if (type == null)
             throw new NotFoundException("Device Class " + deviceClass + " not present in selected manufacturer.");
         return type.get(deviceClass, remoteName);
     }
 
     public void sort(Comparator<? super Named> comparator) {
-        List<DeviceClassRemotes> list = new ArrayList<>(deviceClasses.values());
+        List<DeviceClassRemotes> list = new ArrayList<>(deviceClasses().values());
         Collections.sort(list, comparator);
-        deviceClasses.clear();
+        deviceClasses().clear();
         list.stream().map(dev -> {
             dev.sort(comparator);
             return dev;
         }).forEachOrdered(dev -> {
-            deviceClasses.put(RemoteDatabase.mkKey(dev.getName()), dev);
+            deviceClasses().put(RemoteDatabase.mkKey(dev.getName()), dev);
         });
     }
 
@@ -148,7 +236,7 @@ public final class ManufacturerDeviceClasses implements Named, Iterable<DeviceCl
     }
 
     public List<String> getDeviceClasses(ScrapKind kind) {
-        List<String> result = new ArrayList<>(deviceClasses.size());
+        List<String> result = new ArrayList<>(deviceClasses().size());
         for (DeviceClassRemotes d : this)
             if (d.hasKind(kind))
                 result.add(d.getName());
@@ -156,14 +244,33 @@ public final class ManufacturerDeviceClasses implements Named, Iterable<DeviceCl
     }
 
     public DeviceClassRemotes getDeviceClass(String deviceClassName) throws NotFoundException {
-        DeviceClassRemotes d = deviceClasses.get(RemoteDatabase.mkKey(deviceClassName));
+        DeviceClassRemotes d = deviceClasses().get(RemoteDatabase.mkKey(deviceClassName));
         if (d == null)
             throw new NotFoundException("Manufacturer \""  + manufacturer + "\" has no device class \"" + deviceClassName + "\" in the data base.");
         return d;
     }
 
     public boolean hasKind(ScrapKind kind) {
-        return deviceClasses.values().stream().anyMatch(deviceClassRemotes -> (deviceClassRemotes.hasKind(kind)));
+        // A manufacturer listed in the root file of a sharded data base is not empty,
+        // and the root file may also tell its kinds, without reading the shard.
+        if (isStub()) {
+            if (kind == null)
+                return true;
+            if (shardKinds != null)
+                return shardKinds.contains(kind);
+        }
+        return deviceClasses().values().stream().anyMatch(deviceClassRemotes -> (deviceClassRemotes.hasKind(kind)));
+    }
+
+    /**
+     * @return The kinds of the remotes of this manufacturer.
+     */
+    EnumSet<ScrapKind> getKinds() {
+        EnumSet<ScrapKind> result = EnumSet.noneOf(ScrapKind.class);
+        for (DeviceClassRemotes deviceClass : this)
+            for (RemoteLink remoteLink : deviceClass)
+                result.add(remoteLink.getKind());
+        return result;
     }
 
     RemoteDatabase getRemoteDatabase() {
@@ -176,10 +283,10 @@ public final class ManufacturerDeviceClasses implements Named, Iterable<DeviceCl
 
     void removeIfEmpty(DeviceClassRemotes devices) {
         if (devices.isEmpty())
-            this.deviceClasses.remove(mkKey(devices.getName()));
+            deviceClasses().remove(mkKey(devices.getName()));
     }
 
     boolean isEmpty() {
-        return deviceClasses.isEmpty();
+        return deviceClasses().isEmpty();
     }
 }
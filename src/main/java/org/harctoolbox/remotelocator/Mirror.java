@@ -0,0 +1,245 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local mirror of the files of the remotes, in a directory, organized as kind/path.
+ * The mirror is filled by sync(), which downloads the files concurrently,
+ * and records their sizes and hashes in a file in the mirror root; files already present and intact are not downloaded again,
+ * so an interrupted sync can just be restarted.
+ * When set in Girrable, remotes are read from the mirror when present there, without network access.
+ */
+public final class Mirror {
+
+    private static final Logger logger = Logger.getLogger(Mirror.class.getName());
+
+    public static final String MIRROR_FILE_NAME = "mirror.properties";
+    private static final String PART_EXTENSION = ".part";
+    private static final String CONTENT_LENGTH_HEADER = "Content-Length";
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    private static final char SEPARATOR = '/';
+    private static final int BUFFER_SIZE = 8192;
+    private static final int SAVE_INTERVAL = 100;
+
+    private static String key(RemoteLink remoteLink) {
+        return remoteLink.getKind().name() + SEPARATOR + remoteLink.getFile().getPath().replace(File.separatorChar, SEPARATOR);
+    }
+
+    private final File root;
+    private final File mirrorFile;
+    // Values are "size hash"; guarded by itself.
+    private final Properties entries;
+    private int unsaved;
+
+    /**
+     * Opens the mirror in the directory given, which is created if it does not exist.
+     * @param root
+     * @throws IOException
+     */
+    public Mirror(File root) throws IOException {
+        this.root = root;
+        if (!root.isDirectory() && !root.mkdirs())
+            throw new IOException("Could not create mirror directory " + root);
+        mirrorFile = new File(root, MIRROR_FILE_NAME);
+        entries = new Properties();
+        if (mirrorFile.isFile())
+            try (InputStream inputStream = new FileInputStream(mirrorFile)) {
+                entries.load(inputStream);
+            }
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * @return Number of files in the mirror.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The key stems from the index, which is possibly downloaded; keys leading outside of the root are rejected.
+     */
+    private File getFile(String key) throws IOException {
+        return FileUtils.resolve(root, key.replace(SEPARATOR, File.separatorChar));
+    }
+
+    /**
+     * Returns the mirrored file of the remote link, if it is present.
+     * Only the size is checked, not the hash.
+     * @param remoteLink
+     * @return File, or null if not in the mirror.
+     */
+    public File lookup(RemoteLink remoteLink) {
+        if (remoteLink.getFile() == null)
+            return null;
+        String key = key(remoteLink);
+        String entry = entries.getProperty(key);
+        if (entry == null)
+            return null;
+        File file;
+        try {
+            file = getFile(key);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "{0} not looked up in mirror: {1}", new Object[]{remoteLink.getFile(), ex.getLocalizedMessage()});
+            return null;
+        }
+        return file.length() == size(entry) ? file : null;
+    }
+
+    private static long size(String entry) {
+        return Long.parseLong(entry.substring(0, entry.indexOf(' ')));
+    }
+
+    private static String hash(String entry) {
+        return entry.substring(entry.indexOf(' ') + 1);
+    }
+
+    /**
+     * Checks that the file of the key is present, with the recorded size and hash.
+     */
+    private boolean isIntact(String key) throws IOException {
+        String entry = entries.getProperty(key);
+        if (entry == null)
+            return false;
+        File file = getFile(key);
+        return file.isFile() && file.length() == size(entry) && Manifest.hash(file).equals(hash(entry));
+    }
+
+    /**
+     * Downloads the files of the remote links to the mirror, unless already present and intact.
+     * Files are downloaded concurrently, at most maxInFlight at the same time.
+     * @param remoteLinks
+     * @param maxInFlight
+     * @return Result, with statistics; skipped files are the ones already present.
+     * @throws IOException if the mirror record could not be written.
+     */
+    public BulkDownloader.Result sync(Collection<RemoteLink> remoteLinks, int maxInFlight) throws IOException {
+        BulkDownloader.Result result = new BulkDownloader.Result();
+        // Several remotes may live in the same file.
+        Map<String, RemoteLink> files = new LinkedHashMap<>(remoteLinks.size());
+        for (RemoteLink remoteLink : remoteLinks)
+            if (remoteLink.isLoadable() && remoteLink.getFile() != null && remoteLink.getUrl() != null)
+                files.putIfAbsent(key(remoteLink), remoteLink);
+
+        try {
+            BulkDownloader.forEach(files.entrySet(), maxInFlight, (Map.Entry<String, RemoteLink> entry) -> {
+                String key = entry.getKey();
+                try {
+                    if (isIntact(key)) {
+                        result.skipped();
+                        return;
+                    }
+                    result.succeeded(download(key, entry.getValue()));
+                } catch (IOException ex) {
+                    logger.log(Level.WARNING, "{0} could not be mirrored: {1}", new Object[]{entry.getValue().getUrl(), ex.getLocalizedMessage()});
+                    result.failed(key, ex);
+                }
+            });
+        } finally {
+            save();
+        }
+        result.finish();
+        return result;
+    }
+
+    private long download(String key, RemoteLink remoteLink) throws IOException {
+        File file = getFile(key);
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory())
+            throw new IOException("Could not create directory " + directory);
+        File partFile = new File(directory, file.getName() + PART_EXTENSION);
+        MessageDigest digest = Manifest.newDigest();
+        long size = 0L;
+        long expectedSize = -1L;
+        HttpFetcher.Response response = HttpFetcher.isHttp(remoteLink.getUrl()) ? HttpFetcher.getInstance().get(remoteLink.getUrl(), null) : null;
+        try (HttpFetcher.Response closeable = response) {
+            InputStream inputStream;
+            if (response != null) {
+                if (response.getCode() != HttpURLConnection.HTTP_OK)
+                    throw new IOException("HTTP " + response.getCode());
+                String contentLength = response.getHeader(CONTENT_LENGTH_HEADER);
+                if (contentLength != null && response.getHeader(CONTENT_ENCODING_HEADER) == null)
+                    expectedSize = Long.parseLong(contentLength);
+                inputStream = response.getInputStream();
+            } else
+                inputStream = remoteLink.getUrl().openStream();
+
+            try (InputStream digestStream = new DigestInputStream(inputStream, digest); OutputStream outputStream = new FileOutputStream(partFile)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = digestStream.read(buffer)) > 0) {
+                    outputStream.write(buffer, 0, n);
+                    size += n;
+                }
+            }
+            if (expectedSize >= 0 && size != expectedSize)
+                throw new IOException("Got " + size + " bytes, expected " + expectedSize);
+            FileUtils.move(partFile, file);
+        } catch (NumberFormatException ex) {
+            throw new IOException(ex);
+        } finally {
+            partFile.delete();
+        }
+
+        synchronized (entries) {
+            entries.setProperty(key, size + " " + Manifest.toHex(digest));
+            if (++unsaved >= SAVE_INTERVAL) {
+                try {
+                    save();
+                } catch (IOException ex) {
+                    logger.log(Level.WARNING, "Could not write {0}: {1}", new Object[]{mirrorFile, ex.getLocalizedMessage()});
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes the record of the mirrored files.
+     * @throws IOException
+     */
+    public void save() throws IOException {
+        synchronized (entries) {
+            File tempFile = new File(root, MIRROR_FILE_NAME + PART_EXTENSION);
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                entries.store(outputStream, null);
+            }
+            FileUtils.move(tempFile, mirrorFile);
+            unsaved = 0;
+        }
+    }
+}
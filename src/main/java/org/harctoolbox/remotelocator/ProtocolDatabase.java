@@ -0,0 +1,81 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.harctoolbox.girr.Command;
+import org.harctoolbox.ircore.ThisCannotHappenException;
+import org.harctoolbox.irp.IrpDatabase;
+import org.harctoolbox.irp.IrpParseException;
+import org.harctoolbox.xml.XmlUtils;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * The protocol data base used by all scrapers: IrpProtocols.xml, patched with the IRDB specific protocols.
+ * It is read the first time it is needed, and then installed in Command.
+ * Listing the content of a RemoteDatabase does not need it.
+ */
+final class ProtocolDatabase {
+
+    private static final Logger logger = Logger.getLogger(ProtocolDatabase.class.getName());
+
+    private static final String IRDB_PROTOCOL_FILE = "/IrdbProtocols.xml";
+
+    /**
+     * @return the shared IrpDatabase, installed in Command.
+     */
+    static IrpDatabase getIrpDatabase() {
+        return Holder.irpDatabase;
+    }
+
+    /**
+     * Like Command.isKnownProtocol, but first making sure that the shared IrpDatabase is installed.
+     * @param protocolName
+     * @return true if the protocol is known.
+     */
+    static boolean isKnownProtocol(String protocolName) {
+        getIrpDatabase();
+        return Command.isKnownProtocol(protocolName);
+    }
+
+    private ProtocolDatabase() {
+    }
+
+    // Initialization-on-demand holder: the class is loaded, and the data base read, on first access.
+    private static final class Holder {
+
+        private static final IrpDatabase irpDatabase = load();
+
+        private static IrpDatabase load() {
+            long startTime = System.nanoTime();
+            try {
+                IrpDatabase irpDatabase = new IrpDatabase((String) null);
+                Document document = XmlUtils.openXmlStream(ProtocolDatabase.class.getResourceAsStream(IRDB_PROTOCOL_FILE), null, true, true);
+                irpDatabase.patch(document);
+                Command.setIrpDatabase(irpDatabase);
+                logger.log(Level.FINE, "Protocol data base read in {0} ms", (System.nanoTime() - startTime) / 1000000);
+                return irpDatabase;
+            } catch (IOException | IrpParseException | SAXException ex) {
+                throw new ThisCannotHappenException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.harctoolbox.girr.Remote;
+
+/**
+ * Bounded in-memory cache of parsed Remotes, for long running programs that ask for the same remotes repeatedly.
+ * Installed with RemoteLink.setRemoteCache, it is used by RemoteLink.getRemote,
+ * and thereby by RemoteDatabase.getRemote.
+ * If the maximal number of entries is exceeded, the least recently used one is removed.
+ * Optionally, the Remotes are held through soft references, so that the garbage collector can reclaim them if memory gets short.
+ *
+ * <p>The Remotes are shared between all callers, and should therefore not be modified.
+ * Two threads asking for the same, not yet cached, Remote at the same time may both parse it.
+ */
+public final class RemoteCache {
+
+    public static final int DEFAULT_MAX_SIZE = 100;
+
+    private final int maxSize;
+    private final boolean softReferences;
+    // Guarded by itself
+    private final LinkedHashMap<Key, Object> map;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger evictions = new AtomicInteger();
+
+    /**
+     * @param maxSize Maximal number of Remotes held.
+     * @param softReferences If true, hold the Remotes through soft references.
+     */
+    public RemoteCache(int maxSize, boolean softReferences) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Size of cache must be positive");
+        this.maxSize = maxSize;
+        this.softReferences = softReferences;
+        this.map = new LinkedHashMap<Key, Object>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                boolean remove = size() > RemoteCache.this.maxSize;
+                if (remove)
+                    evictions.incrementAndGet();
+                return remove;
+            }
+        };
+    }
+
+    public RemoteCache(int maxSize) {
+        this(maxSize, false);
+    }
+
+    public RemoteCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Returns the Remote of the RemoteLink, from the cache if present, otherwise by loading it.
+     * @param remoteLink
+     * @return Remote, or null if it could not be parsed.
+     * @throws IOException
+     * @throws org.harctoolbox.remotelocator.Girrable.NotGirrableException
+     * @throws NotFoundException
+     */
+    Remote get(RemoteLink remoteLink) throws IOException, Girrable.NotGirrableException, NotFoundException {
+        Key key = new Key(remoteLink);
+        Object value;
+        synchronized (map) {
+            value = map.get(key);
+        }
+        @SuppressWarnings("unchecked")
+        Remote remote = value instanceof SoftReference ? ((SoftReference<Remote>) value).get() : (Remote) value;
+        if (remote != null) {
+            hits.incrementAndGet();
+            return remote;
+        }
+
+        misses.incrementAndGet();
+        remote = remoteLink.loadRemote();
+        if (remote != null) {
+            synchronized (map) {
+                map.put(key, softReferences ? new SoftReference<>(remote) : remote);
+            }
+        }
+        return remote;
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    /**
+     * @return Number of entries, including soft references that may have been cleared.
+     */
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isSoftReferences() {
+        return softReferences;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of entries removed for exceeding the maximal size.
+     */
+    public int getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteCache: size = " + size() + "/" + maxSize + ", hits = " + getHits() + ", misses = " + getMisses() + ", evictions = " + getEvictions();
+    }
+
+    /**
+     * Identifies the Remote of a RemoteLink.
+     * RemoteLinks themselves are not suitable as keys, since for example BinaryIndex creates a new one for every lookup.
+     */
+    private static final class Key {
+
+        private final ScrapKind kind;
+        private final String url;
+        private final String xpath;
+        private final String manufacturer;
+        private final String deviceClass;
+        private final String name;
+
+        Key(RemoteLink remoteLink) {
+            kind = remoteLink.getKind();
+            url = Objects.toString(remoteLink.getUrl(), null); // URL.equals may do DNS lookups
+            xpath = remoteLink.getXpath();
+            manufacturer = remoteLink.getManufacturer();
+            deviceClass = remoteLink.getDeviceClass();
+            name = remoteLink.getName();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object)
+                return true;
+            if (!(object instanceof Key))
+                return false;
+            Key other = (Key) object;
+            return kind == other.kind
+                    && Objects.equals(url, other.url)
+                    && Objects.equals(xpath, other.xpath)
+                    && Objects.equals(manufacturer, other.manufacturer)
+                    && Objects.equals(deviceClass, other.deviceClass)
+                    && Objects.equals(name, other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, url, xpath, manufacturer, deviceClass, name);
+        }
+    }
+}
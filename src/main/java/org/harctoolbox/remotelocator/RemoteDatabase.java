@@ -20,14 +20,19 @@ package org.harctoolbox.remotelocator;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.Reader;
 import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -35,23 +40,29 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static javax.xml.XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI;
 import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
-import javax.xml.validation.Schema;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import org.harctoolbox.girr.Named;
 import org.harctoolbox.girr.Remote;
 import static org.harctoolbox.girr.XmlStatic.CREATINGUSER_ATTRIBUTE_NAME;
 import static org.harctoolbox.girr.XmlStatic.CREATIONDATE_ATTRIBUTE_NAME;
 import static org.harctoolbox.girr.XmlStatic.TITLE_ATTRIBUTE_NAME;
 import org.harctoolbox.ircore.IrCoreUtils;
-import org.harctoolbox.ircore.ThisCannotHappenException;
 import static org.harctoolbox.irp.IrpUtils.EXIT_SUCCESS;
 import static org.harctoolbox.irp.IrpUtils.EXIT_USAGE_ERROR;
 import static org.harctoolbox.remotelocator.ManufacturerDeviceClasses.MANUFACTURER_ELEMENT_NAME;
@@ -69,9 +80,9 @@ import org.xml.sax.SAXException;
  *
  */
 @SuppressWarnings({"UseOfSystemOutOrSystemErr", "serial"})
-public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>, Serializable {
+public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>, RemoteIndex, Serializable {
 
-    //private static final Logger logger = Logger.getLogger(RemoteDatabase.class.getName());
+    private static final Logger logger = Logger.getLogger(RemoteDatabase.class.getName());
 
     private static final String DEFAULT_TITLE = "Database of downloadable remotes";
     public static final String UNKNOWN = "unknown";
@@ -117,12 +128,78 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
      */
     static final String REMOTELOCATOR_COMMENT = "This file is in the RemoteLocator format, see " + REMOTELOCATOR_HOMEPAGE;
     static final String DATE_FORMAT_STRING = "yyyy-MM-dd_HH:mm:ss";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"" + DEFAULT_CHARSETNAME + "\" standalone=\"no\"?>\n";
+    private static final String W3C_SCHEMA_INSTANCE_PREFIX = "xsi";
+    private static final String SCHEMA_LOCATION_LOCAL_NAME = "schemaLocation";
+    private static final String INDENTATION = "\n                ";
+    private static final int INDENT_WIDTH = 4;
+    static final String XINCLUDE_NAMESPACE = "http://www.w3.org/2001/XInclude";
+    static final String XINCLUDE_PREFIX = "xi";
+    static final String XINCLUDE_ELEMENT_NAME = "include";
+    static final String HREF_ATTRIBUTE_NAME = "href";
+    static final String XPOINTER_ATTRIBUTE_NAME = "xpointer";
+    private static final String XML_EXTENSION = ".xml";
 
     private static RemoteDatabase remoteDatabase;
+    private static Manifest manifest = null;
     private static JCommander argumentParser;
     private static final CommandLineArgs commandLineArgs = new CommandLineArgs();
     private static PrintStream out;
 
+    /**
+     * Writes a line feed, followed by indentation for the nesting level given, to the XMLStreamWriter.
+     * @param writer
+     * @param level
+     * @throws XMLStreamException
+     */
+    static void indent(XMLStreamWriter writer, int level) throws XMLStreamException {
+        writer.writeCharacters(INDENTATION.substring(0, 1 + INDENT_WIDTH * level));
+    }
+
+    static XMLInputFactory newXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * @param reader XMLStreamReader positioned at an element.
+     * @param localName
+     * @return true if the current event is the start of the rl:localName element.
+     */
+    static boolean isStartElement(XMLStreamReader reader, String localName) {
+        return reader.isStartElement() && localName.equals(reader.getLocalName()) && REMOTELOCATOR_NAMESPACE.equals(reader.getNamespaceURI());
+    }
+
+    /**
+     * @param reader XMLStreamReader positioned at an element.
+     * @param localName
+     * @return true if the current event is the end of the rl:localName element.
+     */
+    static boolean isEndElement(XMLStreamReader reader, String localName) {
+        return reader.isEndElement() && localName.equals(reader.getLocalName()) && REMOTELOCATOR_NAMESPACE.equals(reader.getNamespaceURI());
+    }
+
+    /**
+     * Returns the value of an un-namespaced attribute, or the empty string if not present, as Element.getAttribute does.
+     * @param reader XMLStreamReader positioned at a start element.
+     * @param attributeName
+     * @return value of the attribute, never null.
+     */
+    static String getAttribute(XMLStreamReader reader, String attributeName) {
+        String value = reader.getAttributeValue(null, attributeName);
+        return value != null ? value : "";
+    }
+
+    private static URL urlOrFile(String thing) throws MalformedURLException {
+        try {
+            return new URL(thing);
+        } catch (MalformedURLException ex) {
+            return new File(thing).toURI().toURL();
+        }
+    }
+
     static String mkKey(String string) {
         return (string == null || string.isEmpty()) ? UNKNOWN : string.toLowerCase(Locale.US);
     }
@@ -172,17 +249,31 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
 
         try {
             remoteDatabase = new RemoteDatabase();
+            if (commandLineArgs.manifest != null)
+                manifest = new Manifest(new File(commandLineArgs.manifest),
+                        Collections.singletonMap(LircScrap.METADATA_ONLY_OPTION_NAME, Boolean.toString(commandLineArgs.lircMetadata)));
             readScrapers();
+            if (manifest != null)
+                manifest.save();
             if (remoteDatabase.isEmpty())
                 die("No database content", EXIT_USAGE_ERROR);
 
             if (commandLineArgs.sort)
                 remoteDatabase.sort();
 
-            out = IrCoreUtils.getPrintStream(commandLineArgs.output);
-
-            remoteDatabase.print(out);
+            if (commandLineArgs.shards != null) {
+                if (commandLineArgs.output.equals("-"))
+                    die("--shards requires --output to be a file name", EXIT_USAGE_ERROR);
+                remoteDatabase.printSharded(new File(commandLineArgs.output), commandLineArgs.shards);
+            } else {
+                out = IrCoreUtils.getPrintStream(commandLineArgs.output);
+                remoteDatabase.write(out);
+            }
             System.err.println("Configuration file " + commandLineArgs.output + " written, containing " + remoteDatabase.numberRemotes() + " remotes.");
+            if (commandLineArgs.binary != null) {
+                BinaryIndex.write(remoteDatabase, new File(commandLineArgs.binary));
+                System.err.println("Binary index " + commandLineArgs.binary + " written.");
+            }
         } catch (IOException ex) {
             die(ex.getLocalizedMessage(), EXIT_USAGE_ERROR);
         } catch (SAXException ex) {
@@ -191,24 +282,60 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
     }
 
     private static void readScrapers() throws IOException, SAXException {
-
+        if (commandLineArgs.concurrent) {
+            readScrapersConcurrently();
+            return;
+        }
 
         if (commandLineArgs.girrDir != null)
-            new GirrScrap(remoteDatabase).add(new File(commandLineArgs.girrDir));
+            configure(new GirrScrap(remoteDatabase)).add(new File(commandLineArgs.girrDir));
 
         if (commandLineArgs.irdbDir != null)
-            new IrdbScrap(remoteDatabase).add(new File(commandLineArgs.irdbDir));
+            configure(new IrdbScrap(remoteDatabase)).add(new File(commandLineArgs.irdbDir));
 
         if (commandLineArgs.flipperDir != null)
-            new FlipperScrap(remoteDatabase).add(new File(commandLineArgs.flipperDir));
+            configure(new FlipperScrap(remoteDatabase)).add(new File(commandLineArgs.flipperDir));
 
         if (commandLineArgs.lircDir != null)
-            new LircScrap(remoteDatabase).add(new File(commandLineArgs.lircDir));
+            mkLircScrap(remoteDatabase).add(new File(commandLineArgs.lircDir));
 
         if (commandLineArgs.jp1File != null)
             new Jp1Scrap(remoteDatabase).add(new File(commandLineArgs.jp1File));
     }
 
+    private static void readScrapersConcurrently() throws IOException, SAXException {
+        ConcurrentScraper scraper = new ConcurrentScraper();
+
+        if (commandLineArgs.girrDir != null)
+            scraper.add(configure(new GirrScrap(new RemoteDatabase())), new File(commandLineArgs.girrDir));
+
+        if (commandLineArgs.irdbDir != null)
+            scraper.add(configure(new IrdbScrap(new RemoteDatabase())), new File(commandLineArgs.irdbDir));
+
+        if (commandLineArgs.flipperDir != null)
+            scraper.add(configure(new FlipperScrap(new RemoteDatabase())), new File(commandLineArgs.flipperDir));
+
+        if (commandLineArgs.lircDir != null)
+            scraper.add(mkLircScrap(new RemoteDatabase()), new File(commandLineArgs.lircDir));
+
+        if (commandLineArgs.jp1File != null)
+            scraper.add(ScrapKind.jp1, new File(commandLineArgs.jp1File));
+
+        scraper.scrap(remoteDatabase);
+    }
+
+    private static LircScrap mkLircScrap(RemoteDatabase remoteDatabase) {
+        LircScrap lircScrap = configure(new LircScrap(remoteDatabase));
+        lircScrap.setParallelism(commandLineArgs.parallelism);
+        lircScrap.setMetadataOnly(commandLineArgs.lircMetadata);
+        return lircScrap;
+    }
+
+    private static <T extends Scrapable> T configure(T scrapable) {
+        scrapable.setManifest(manifest);
+        return scrapable;
+    }
+
     private final Map<String, ManufacturerDeviceClasses> manufacturers;
     private final EnumSet<ScrapKind> kinds = EnumSet.noneOf(ScrapKind.class);
 
@@ -216,20 +343,70 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
         manufacturers = new LinkedHashMap<>(INITIAL_CAPACITY);
     }
 
+    /**
+     * Reads a RemoteDatabase from a URL or a file name.
+     * Like the other constructors reading an external source, it uses a pull parser, without building a DOM.
+     * @param thing URL or file name
+     * @throws IOException
+     * @throws SAXException
+     * @throws FormatVersionMismatchException
+     */
     public RemoteDatabase(String thing) throws IOException, SAXException, FormatVersionMismatchException {
-        this(XmlUtils.openXmlUrlOrFile(thing, null, true, false));
+        this(urlOrFile(thing));
     }
 
     public RemoteDatabase(File file) throws IOException, SAXException, FormatVersionMismatchException {
-        this(XmlUtils.openXmlFile(file, (Schema) null, true, false));
+        this(file.toURI().toURL());
     }
 
     public RemoteDatabase(URL url) throws IOException, SAXException, FormatVersionMismatchException {
-        this(XmlUtils.openXmlUrl(url, null, true, false));
+        this();
+        try (InputStream inputStream = HttpFetcher.getInstance().openStream(url)) {
+            XMLStreamReader reader = newXMLInputFactory().createXMLStreamReader(url.toString(), inputStream);
+            load(reader, url);
+        } catch (XMLStreamException ex) {
+            throw new SAXException(ex);
+        }
+    }
+
+    /**
+     * Reads a RemoteDatabase from a local copy of a URL, for example from a cache.
+     * Relative references, like the xi:include elements of a sharded data base, are resolved against the original URL.
+     * @param file Local copy
+     * @param base Original URL
+     * @throws IOException
+     * @throws SAXException
+     * @throws FormatVersionMismatchException
+     */
+    public RemoteDatabase(File file, URL base) throws IOException, SAXException, FormatVersionMismatchException {
+        this();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            XMLStreamReader reader = newXMLInputFactory().createXMLStreamReader(base.toString(), inputStream);
+            load(reader, base);
+        } catch (XMLStreamException ex) {
+            throw new SAXException(ex);
+        }
     }
 
     public RemoteDatabase(Reader reader) throws IOException, SAXException, FormatVersionMismatchException {
-        this(XmlUtils.openXmlReader(reader, (Schema) null, true, false));
+        this();
+        try {
+            load(newXMLInputFactory().createXMLStreamReader(reader), null);
+        } catch (XMLStreamException ex) {
+            throw new SAXException(ex);
+        }
+    }
+
+    /**
+     * Reads a RemoteDatabase from an XMLStreamReader, in one pass, without building a DOM.
+     * The reader is advanced to the end of the rl:remotedatabase element, but not closed.
+     * @param reader XMLStreamReader positioned before, or at, the root element.
+     * @throws XMLStreamException
+     * @throws FormatVersionMismatchException
+     */
+    public RemoteDatabase(XMLStreamReader reader) throws XMLStreamException, FormatVersionMismatchException {
+        this();
+        load(reader, null);
     }
 
     public RemoteDatabase(Document document) throws FormatVersionMismatchException {
@@ -242,6 +419,10 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
         if (!actualVersion.equals(FORMATVERSION))
             throw new FormatVersionMismatchException(actualVersion);
 
+        NodeList kindList = root.getElementsByTagNameNS(REMOTELOCATOR_NAMESPACE, REMOTEDATABASE_KIND_NAME);
+        for (int i = 0; i < kindList.getLength(); i++)
+            addKind(((Element) kindList.item(i)).getAttribute(NAME_NAME));
+
         NodeList nodeList = root.getElementsByTagNameNS(REMOTELOCATOR_NAMESPACE, MANUFACTURER_ELEMENT_NAME);
         for (int i = 0; i < nodeList.getLength(); i++) {
             Element manufacturerElement = (Element) nodeList.item(i);
@@ -250,6 +431,86 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
         }
     }
 
+    /**
+     * Reads the content of the rl:remotedatabase element.
+     * An xi:include element carrying an rl:manufacturer attribute,
+     * as written by printSharded, creates a manufacturer the content of which is read from the referenced file only when needed.
+     * If it also carries an rl:kinds attribute, listing on kind does not need to read the file either.
+     * Other xi:include elements cause the referenced file to be read immediately.
+     * @param reader
+     * @param base URL for resolving relative href attributes; may be null.
+     */
+    private void load(XMLStreamReader reader, URL base) throws XMLStreamException, FormatVersionMismatchException {
+        while (!reader.isStartElement())
+            reader.next();
+
+        String actualVersion = getAttribute(reader, FORMATVERSION_ATTRIBUTE_NAME);
+        if (!actualVersion.equals(FORMATVERSION))
+            throw new FormatVersionMismatchException(actualVersion);
+
+        Map<URL, Shard> shards = new HashMap<>(INITIAL_CAPACITY);
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (isStartElement(reader, MANUFACTURER_ELEMENT_NAME))
+                    add(new ManufacturerDeviceClasses(reader));
+                else {
+                    if (isStartElement(reader, REMOTEDATABASE_KIND_NAME))
+                        addKind(getAttribute(reader, NAME_NAME));
+                    if (XINCLUDE_ELEMENT_NAME.equals(reader.getLocalName()) && XINCLUDE_NAMESPACE.equals(reader.getNamespaceURI()))
+                        include(reader, base, shards);
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    private void include(XMLStreamReader reader, URL base, Map<URL, Shard> shards) {
+        String href = getAttribute(reader, HREF_ATTRIBUTE_NAME);
+        String manufacturer = reader.getAttributeValue(REMOTELOCATOR_NAMESPACE, MANUFACTURER_ELEMENT_NAME);
+        String kindNames = reader.getAttributeValue(REMOTELOCATOR_NAMESPACE, REMOTEDATABASE_KINDS_NAME);
+        URL url;
+        try {
+            url = base != null ? new URL(base, href) : new URL(href);
+        } catch (MalformedURLException ex) {
+            logger.log(Level.WARNING, "Cannot resolve xi:include of {0}, ignored", href);
+            return;
+        }
+
+        if (manufacturer != null) {
+            Shard shard = shards.computeIfAbsent(url, Shard::new);
+            add(shard.mkStub(manufacturer, kindNames != null ? parseKinds(kindNames) : null));
+        } else {
+            try {
+                new RemoteDatabase(url).forEach(this::add);
+            } catch (IOException | SAXException | FormatVersionMismatchException ex) {
+                logger.log(Level.WARNING, "Could not read included file {0}: {1}", new Object[]{url, ex.getLocalizedMessage()});
+            }
+        }
+    }
+
+    /**
+     * Parses a white space separated list of kind names.
+     * @param kindNames
+     * @return EnumSet of the kinds, or null if any of them is unknown.
+     */
+    private static EnumSet<ScrapKind> parseKinds(String kindNames) {
+        EnumSet<ScrapKind> result = EnumSet.noneOf(ScrapKind.class);
+        for (String kindName : kindNames.trim().split("\\s+")) {
+            if (kindName.isEmpty())
+                continue;
+            try {
+                result.add(ScrapKind.valueOf(kindName));
+            } catch (IllegalArgumentException ex) {
+                logger.log(Level.WARNING, "Unknown kind {0} in xi:include, ignored", kindName);
+                return null;
+            }
+        }
+        return result;
+    }
+
     public int numberRemotes() {
         int sum = 0;
         for (ManufacturerDeviceClasses manufacturer : this)
@@ -328,38 +589,215 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
     }
 
     /**
-     * Convenience function that generates a DOM and dumps it onto the argument.
+     * Convenience function that dumps the data base onto the argument, using write(OutputStream).
+     * No DOM is generated.
      * @param ostr Stream to use.
+     * @throws IOException
      */
-    public void print(OutputStream ostr) {
-        Document doc = toDocument();
-        try {
-            XmlUtils.printDOM(ostr, doc, DEFAULT_CHARSETNAME, null);
-        } catch (UnsupportedEncodingException ex) {
-            throw new ThisCannotHappenException(ex);
-        }
+    public void print(OutputStream ostr) throws IOException {
+        write(ostr);
     }
 
     /**
-     * Convenience function that generates a DOM and dumps it onto the argument.
-     * @param file Input file
+     * Writes the data base onto the argument, using write(OutputStream).
+     * @param file Output file
      * @throws java.io.FileNotFoundException if file not existing
      */
     public void print(File file) throws IOException {
         try (OutputStream os = new FileOutputStream(file)) {
-            print(os);
+            write(os);
         }
     }
 
     /**
-     * Convenience function that generates a DOM and dumps it onto the argument.
-     * @param file Input file
+     * Writes the data base onto the argument, using write(OutputStream).
+     * @param file Output file
      * @throws java.io.FileNotFoundException if file not existing
      */
     public void print(String file) throws IOException {
         print(new File(file));
     }
 
+    /**
+     * Writes the data base onto the argument in the same format as toDocument(),
+     * but streaming directly from the object tree using an XMLStreamWriter, without generating a DOM.
+     * The stream is flushed, but not closed.
+     * @param ostr Stream to use.
+     * @throws IOException
+     */
+    public void write(OutputStream ostr) throws IOException {
+        write(ostr, null, null, null);
+    }
+
+    /**
+     * Writes the data base onto the argument, like write(OutputStream).
+     * @param ostr Stream to use.
+     * @param title Title, null for default.
+     * @param creatingUser User name, null for the current user.
+     * @param createdDate Date string, null for the current time.
+     * @throws IOException
+     */
+    public void write(OutputStream ostr, String title, String creatingUser, String createdDate) throws IOException {
+        write(ostr, (XMLStreamWriter writer) -> write(writer, title, creatingUser, createdDate));
+    }
+
+    /**
+     * Writes the rl:remotedatabase element, including its content, to the XMLStreamWriter.
+     * The attributes are written in the same order as the DOM serializer does.
+     * @param writer
+     * @param title Title, null for default.
+     * @param creatingUser User name, null for the current user.
+     * @param createdDate Date string, null for the current time.
+     * @throws XMLStreamException
+     */
+    public void write(XMLStreamWriter writer, String title, String creatingUser, String createdDate) throws XMLStreamException {
+        writeStartElement(writer, title, creatingUser, createdDate, false);
+        writeKinds(writer);
+        for (ManufacturerDeviceClasses manufacturer : this)
+            manufacturer.write(writer);
+        indent(writer, 0);
+        writer.writeEndElement();
+    }
+
+    @SuppressWarnings("AssignmentToMethodParameter")
+    private static void writeStartElement(XMLStreamWriter writer, String title, String creatingUser, String createdDate, boolean xinclude) throws XMLStreamException {
+        writer.writeStartElement(REMOTELOCATOR_PREFIX, REMOTEDATABASE_ELEMENT_NAME, REMOTELOCATOR_NAMESPACE);
+        writer.writeNamespace(REMOTELOCATOR_PREFIX, REMOTELOCATOR_NAMESPACE);
+        if (xinclude)
+            writer.writeNamespace(XINCLUDE_PREFIX, XINCLUDE_NAMESPACE);
+        writer.writeNamespace(W3C_SCHEMA_INSTANCE_PREFIX, W3C_XML_SCHEMA_INSTANCE_NS_URI);
+        writer.writeAttribute(CREATINGUSER_ATTRIBUTE_NAME, (creatingUser != null) ? creatingUser : System.getProperty("user.name"));
+        writer.writeAttribute(CREATIONDATE_ATTRIBUTE_NAME, (createdDate != null) ? createdDate : (new SimpleDateFormat(DATE_FORMAT_STRING)).format(new Date()));
+        writer.writeAttribute(FORMATVERSION_ATTRIBUTE_NAME, FORMATVERSION);
+        if (title == null)
+            title = DEFAULT_TITLE;
+        if (!title.isEmpty())
+            writer.writeAttribute(TITLE_ATTRIBUTE_NAME, title);
+        writer.writeAttribute(CREATING_TOOL_ATTRIBUTE_NAME, Version.appName);
+        writer.writeAttribute(CREATING_TOOL_VERSION_ATTRIBUTE_NAME, Version.version);
+        writer.writeAttribute(W3C_SCHEMA_INSTANCE_PREFIX, W3C_XML_SCHEMA_INSTANCE_NS_URI, SCHEMA_LOCATION_LOCAL_NAME,
+                REMOTELOCATOR_NAMESPACE + " " + REMOTELOCATOR_SCHEMA_LOCATION_URI);
+    }
+
+    private void writeKinds(XMLStreamWriter writer) throws XMLStreamException {
+        indent(writer, 1);
+        if (kinds.isEmpty())
+            writer.writeEmptyElement(REMOTELOCATOR_PREFIX, REMOTEDATABASE_KINDS_NAME, REMOTELOCATOR_NAMESPACE);
+        else {
+            writer.writeStartElement(REMOTELOCATOR_PREFIX, REMOTEDATABASE_KINDS_NAME, REMOTELOCATOR_NAMESPACE);
+            for (ScrapKind kind : kinds) {
+                indent(writer, 2);
+                writer.writeEmptyElement(REMOTELOCATOR_PREFIX, REMOTEDATABASE_KIND_NAME, REMOTELOCATOR_NAMESPACE);
+                writer.writeAttribute(NAME_NAME, kind.name());
+            }
+            indent(writer, 1);
+            writer.writeEndElement();
+        }
+    }
+
+    /**
+     * Writes the data base sharded into several files.
+     * The root file contains the kinds, and for every manufacturer an xi:include element,
+     * referencing the manufacturer element in the shard file containing it.
+     * The xi:include element also carries the name of the manufacturer in an rl:manufacturer attribute,
+     * and the kinds of its remotes in an rl:kinds attribute,
+     * so that a reader can list the manufacturers, also of a particular kind, and read only the shards actually needed.
+     * The shards are complete rl:remotedatabase files, named after the root file, with a number appended.
+     * @param file Root file; the shards are written to the same directory.
+     * @param buckets Number of shards, into which the manufacturers are distributed according to their (lower cased) hash code.
+     * If 0, every manufacturer gets its own shard.
+     * @throws IOException
+     */
+    public void printSharded(File file, int buckets) throws IOException {
+        if (buckets < 0)
+            throw new IllegalArgumentException("Number of buckets must be non-negative");
+        List<List<ManufacturerDeviceClasses>> shards = new ArrayList<>(buckets > 0 ? buckets : manufacturers.size());
+        // For every manufacturer, number of its shard, and its position therein.
+        Map<String, int[]> locations = new HashMap<>(manufacturers.size());
+        for (int i = 0; i < buckets; i++)
+            shards.add(new ArrayList<>(INITIAL_CAPACITY));
+        for (ManufacturerDeviceClasses manufacturer : this) {
+            int shard;
+            if (buckets > 0)
+                shard = Shard.bucket(manufacturer.getName(), buckets);
+            else {
+                shard = shards.size();
+                shards.add(new ArrayList<>(1));
+            }
+            shards.get(shard).add(manufacturer);
+            locations.put(mkKey(manufacturer.getName()), new int[]{shard, shards.get(shard).size()});
+        }
+
+        String name = file.getName();
+        String basename = name.endsWith(XML_EXTENSION) ? name.substring(0, name.length() - XML_EXTENSION.length()) : name;
+        File dir = file.getAbsoluteFile().getParentFile();
+        String date = (new SimpleDateFormat(DATE_FORMAT_STRING)).format(new Date());
+        for (int i = 0; i < shards.size(); i++) {
+            List<ManufacturerDeviceClasses> shard = shards.get(i);
+            if (shard.isEmpty())
+                continue;
+            try (OutputStream outputStream = new FileOutputStream(new File(dir, shardName(basename, i)))) {
+                write(outputStream, (XMLStreamWriter writer) -> {
+                    writeStartElement(writer, null, null, date, false);
+                    for (ManufacturerDeviceClasses manufacturer : shard)
+                        manufacturer.write(writer);
+                    indent(writer, 0);
+                    writer.writeEndElement();
+                });
+            }
+        }
+
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            write(outputStream, (XMLStreamWriter writer) -> {
+                writeStartElement(writer, null, null, date, true);
+                writeKinds(writer);
+                for (ManufacturerDeviceClasses manufacturer : this) {
+                    int[] location = locations.get(mkKey(manufacturer.getName()));
+                    indent(writer, 1);
+                    writer.writeEmptyElement(XINCLUDE_PREFIX, XINCLUDE_ELEMENT_NAME, XINCLUDE_NAMESPACE);
+                    writer.writeAttribute(HREF_ATTRIBUTE_NAME, shardName(basename, location[0]));
+                    writer.writeAttribute(XPOINTER_ATTRIBUTE_NAME, "element(/1/" + location[1] + ")");
+                    writer.writeAttribute(REMOTELOCATOR_PREFIX, REMOTELOCATOR_NAMESPACE, MANUFACTURER_ELEMENT_NAME, manufacturer.getName());
+                    writer.writeAttribute(REMOTELOCATOR_PREFIX, REMOTELOCATOR_NAMESPACE, REMOTEDATABASE_KINDS_NAME, kindNames(manufacturer.getKinds()));
+                }
+                indent(writer, 0);
+                writer.writeEndElement();
+            });
+        }
+    }
+
+    private static String shardName(String basename, int number) {
+        return basename + "-" + number + XML_EXTENSION;
+    }
+
+    private static String kindNames(EnumSet<ScrapKind> kinds) {
+        List<String> names = new ArrayList<>(kinds.size());
+        for (ScrapKind kind : kinds)
+            names.add(kind.name());
+        return String.join(" ", names);
+    }
+
+    private static void write(OutputStream ostr, XmlContent content) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(ostr, DEFAULT_CHARSETNAME));
+        // XMLStreamWriter cannot write the standalone pseudo attribute, so write the declaration directly.
+        writer.write(XML_DECLARATION);
+        try {
+            XMLStreamWriter xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+            xmlWriter.writeComment(REMOTELOCATOR_COMMENT);
+            content.write(xmlWriter);
+            xmlWriter.writeCharacters("\n");
+            xmlWriter.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex);
+        }
+        writer.flush();
+    }
+
+    @FunctionalInterface
+    private interface XmlContent {
+        void write(XMLStreamWriter writer) throws XMLStreamException;
+    }
+
     @Override
     public Iterator<ManufacturerDeviceClasses> iterator() {
         return manufacturers.values().iterator();
@@ -370,15 +808,47 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
         manifacturer.setRemoteDatabase(this);
     }
 
+    Set<ScrapKind> getKinds() {
+        return Collections.unmodifiableSet(kinds);
+    }
+
     protected void addKind(ScrapKind kind) {
         kinds.add(kind);
     }
 
+    private void addKind(String kindName) {
+        try {
+            addKind(ScrapKind.valueOf(kindName));
+        } catch (IllegalArgumentException ex) {
+            logger.log(Level.WARNING, "Unknown kind {0}, ignored", kindName);
+        }
+    }
+
+    /**
+     * Adds the content of another RemoteDatabase to this one.
+     * Manufacturers, device classes, and remote links are added in the order
+     * of the other data base, exactly as if they had been scraped into this one,
+     * so that the renaming of duplicates is the same as in the sequential case.
+     * @param other RemoteDatabase to be merged into this one.
+     */
+    synchronized void merge(RemoteDatabase other) {
+        kinds.addAll(other.kinds);
+        for (ManufacturerDeviceClasses manufacturer : other) {
+            ManufacturerDeviceClasses manufacturerTypes = getOrCreate(manufacturer.getName());
+            for (DeviceClassRemotes deviceClass : manufacturer) {
+                DeviceClassRemotes devices = manufacturerTypes.getOrCreate(deviceClass.getName());
+                for (RemoteLink remoteLink : deviceClass)
+                    devices.add(remoteLink);
+            }
+        }
+    }
+
     void put(String manufacturer, String deviceClass, RemoteLink remoteLink) {
         ManufacturerDeviceClasses manufacturerTypes = getOrCreate(manufacturer);
         manufacturerTypes.put(deviceClass, remoteLink);
     }
 
+    @Override
     public RemoteLink get(String manufacturer, String deviceClass, String remoteName) throws NotFoundException {
         ManufacturerDeviceClasses manufact = getManufacturerDeviceClass(manufacturer);
         return manufact.get(deviceClass, remoteName);
@@ -393,6 +863,7 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
         return getManufacturers(null);
     }
 
+    @Override
     public List<String> getManufacturers(ScrapKind kind) {
         List<String> result = new ArrayList<>(manufacturers.size());
         for (ManufacturerDeviceClasses m : this)
@@ -412,6 +883,7 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
         return getDeviceTypes(null, manufacturer);
     }
 
+    @Override
     public List<String> getDeviceTypes(ScrapKind kind, String manufacturer) throws NotFoundException {
         ManufacturerDeviceClasses m = getManufacturerDeviceClass(manufacturer);
         return m.getDeviceClasses(kind);
@@ -421,6 +893,7 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
         return getRemotes(null, manufacturer, deviceType);
     }
 
+    @Override
     public List<String> getRemotes(ScrapKind kind, String manufacturer, String deviceType) throws NotFoundException {
         ManufacturerDeviceClasses m = getManufacturerDeviceClass(manufacturer);
         DeviceClassRemotes d = m.getDeviceClass(deviceType);
@@ -439,11 +912,13 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
         return mt;
     }
 
+    @Override
     public URL getUrl(String manufacturer, String deviceClass, String remoteName) throws NotFoundException {
         RemoteLink remoteLink = get(manufacturer, deviceClass, remoteName);
         return remoteLink.getUrl();
     }
 
+    @Override
     public boolean isEmpty() {
         return manufacturers.isEmpty();
     }
@@ -455,27 +930,45 @@ public final class RemoteDatabase implements Iterable<ManufacturerDeviceClasses>
 
     private final static class CommandLineArgs {
 
-        @Parameter(names = {"-f", "--flipperdir"}, description = "Pathname of directory containing Flipper files in ir format.")
+        @Parameter(names = {"-b", "--binary"}, description = "Also write the data base as binary index to this file, for fast loading by query programs.")
+        public String binary = null;
+
+        @Parameter(names = {"-c", "--concurrent"}, description = "Run the scrapers concurrently, each in its own thread.")
+        public boolean concurrent = false;
+
+        @Parameter(names = {"-f", "--flipperdir"}, description = "Pathname of directory containing Flipper files in ir format, or of a zip or tar.gz archive of the Flipper-IRDB repository.")
         public String flipperDir = null;
 
-        @Parameter(names = {"-g", "--girrdir"}, description = "Pathname of directory (recursively) containing Girr files.")
+        @Parameter(names = {"-g", "--girrdir"}, description = "Pathname of directory (recursively) containing Girr files, or of a zip or tar.gz archive of the GirrLib repository.")
         public String girrDir = null;
 
         @Parameter(names = {"-h", "--help", "-?"}, description = "Display help message.")
         private boolean helpRequested = false;
 
-        @Parameter(names = {"-i", "--irdbdir"}, description = "Pathname of directory containing IRDB files in CSV format.")
+        @Parameter(names = {"-i", "--irdbdir"}, description = "Pathname of directory containing IRDB files in CSV format, or of a zip or tar.gz archive of the irdb repository.")
         public String irdbDir = null;
 
-        @Parameter(names = {"-l", "--lircdirs"}, description = "Pathname of directory containing Lirc files.")
+        @Parameter(names = {"-l", "--lircdirs"}, description = "Pathname of directory containing Lirc files, or of a zip or tar.gz archive of the lirc-remotes repository.")
         public String lircDir = null;
 
-        @Parameter(names = {"-j", "--jp1file"}, description = "Filename of XML export of JP1 master file.")
+        @Parameter(names = {"--lircmetadata"}, description = "Scan the Lirc files for meta data only, decoding only the first command of every remote.")
+        public boolean lircMetadata = false;
+
+        @Parameter(names = {"-j", "--jp1file"}, description = "Filename of JP1 master file, as .ods, or as flat XML .fods.")
         public String jp1File = null;
 
+        @Parameter(names = {"-m", "--manifest"}, description = "Manifest file for incremental scraping; files unchanged since the last run are not parsed again.")
+        public String manifest = null;
+
         @Parameter(names = {"-o", "--output"}, description = "File name to write to, \"-\" for stdout.")
         private String output = "-";
 
+        @Parameter(names = {"-p", "--parallelism"}, description = "Parallelism level for parsing the Lirc files; 1 for sequential, 0 for the number of available processors.")
+        public int parallelism = 1;
+
+        @Parameter(names = {"--shards"}, description = "Write the output sharded into this many files, plus a root file including them; 0 for one file per manufacturer.")
+        public Integer shards = null;
+
         @Parameter(names = {"-s", "--sort"}, description = "Sort the configuration file before writing.")
         public boolean sort = false;
 
@@ -0,0 +1,39 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Queries supported both by the RemoteDatabase and by the BinaryIndex.
+ */
+public interface RemoteIndex {
+
+    public boolean isEmpty();
+
+    public List<String> getManufacturers(ScrapKind kind);
+
+    public List<String> getDeviceTypes(ScrapKind kind, String manufacturer) throws NotFoundException;
+
+    public List<String> getRemotes(ScrapKind kind, String manufacturer, String deviceType) throws NotFoundException;
+
+    public RemoteLink get(String manufacturer, String deviceClass, String remoteName) throws NotFoundException;
+
+    public URL getUrl(String manufacturer, String deviceClass, String remoteName) throws NotFoundException;
+}
@@ -29,6 +29,9 @@ import java.nio.file.Paths;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import org.harctoolbox.girr.Command;
 import org.harctoolbox.girr.CommandSet;
 import org.harctoolbox.girr.Named;
@@ -60,6 +63,8 @@ public final class RemoteLink implements Named, Serializable {
     public static final String SUBDEVICE_ATTRIBUTE_NAME = "subdevice";
     public static final String DUMMY_COMMAND_NAME = "dummy-command";
 
+    private static volatile RemoteCache remoteCache = null;
+
     private static void setAttributeIfNonNull(Element element, String attributeName, Object object) {
         if (object == null)
             return;
@@ -69,31 +74,13 @@ public final class RemoteLink implements Named, Serializable {
         element.setAttribute(attributeName, value);
     }
 
-    static Remote mkRemote(String name, String comment, String protocolName, String device, String subdevice) {
-        if (! Command.isKnownProtocol(protocolName))
-            return mkRemote(name, comment, null, null, (Long) null);
-
-        Long dev = null;
-        Long subdev = null;
-        try {
-            dev = Long.valueOf(device);
-            subdev = Long.valueOf(subdevice);
-        } catch (NumberFormatException ex) {
-            logger.fine(ex.getLocalizedMessage());
-        }
-        return mkRemote(name, comment, protocolName, dev, subdev);
-    }
-
-    private static Remote mkRemote(String name, String comment, String protocolName, Long device, Long subdevice) {
-        Remote.MetaData metaData = new Remote.MetaData(name);
-        CommandSet commandSet;
-        if (Command.isKnownProtocol(protocolName)) {
-                Command command = new Command(protocolName, device, subdevice);
-                commandSet = new CommandSet(command);
-        } else
-            commandSet = new CommandSet();
-
-        return new Remote(metaData, comment, null, commandSet, null);
+    private static void writeAttributeIfNonNull(XMLStreamWriter writer, String attributeName, Object object) throws XMLStreamException {
+        if (object == null)
+            return;
+        String value = object.toString();
+        if (value.isEmpty())
+            return;
+        writer.writeAttribute(attributeName, value);
     }
 
     private DeviceClassRemotes owner;
@@ -101,11 +88,24 @@ public final class RemoteLink implements Named, Serializable {
     private final File file;
     private String xpath;
     private final URL url;
-    private final Remote remote;
+    private final Summary summary;
 
+    /**
+     * Constructs a RemoteLink. Only the summary of the Remote argument is retained, not its commands.
+     * @param kind
+     * @param remote
+     * @param baseUri
+     * @param baseDir
+     * @param file
+     * @param xpath
+     */
     public RemoteLink(ScrapKind kind, Remote remote, URI baseUri, File baseDir, File file, String xpath) {
+        this(kind, new Summary(remote), baseUri, baseDir, file, xpath);
+    }
+
+    RemoteLink(ScrapKind kind, Summary summary, URI baseUri, File baseDir, File file, String xpath) {
         Scrapable scrap = ScrapKind.mkScrapable(kind);
-        this.remote = remote;
+        this.summary = summary;
         this.kind = kind;
         if (baseDir != null) {
             Path baseDirPath = Paths.get(baseDir.getPath());
@@ -137,17 +137,43 @@ public final class RemoteLink implements Named, Serializable {
     }
 
     RemoteLink(Element remoteLinkElement) throws URISyntaxException, MalformedURLException {
-        kind = ScrapKind.valueOf(remoteLinkElement.getAttribute(KIND_ATTRIBUTE_NAME));
-        file = new File(remoteLinkElement.getAttribute(PATH_ELEMENT_NAME));
-        url = new URI(remoteLinkElement.getAttribute(URL_ATTRIBUTE_NAME)).toURL();
-        xpath = remoteLinkElement.getAttribute(XPATH_ATTRIBUTE_NAME);
-
-        String name = remoteLinkElement.getAttribute(NAME_ATTRIBUTE_NAME);
-        String comment = remoteLinkElement.getAttribute(COMMENT_ATTRIBUTE_NAME);
-        String protocol = remoteLinkElement.getAttribute(PROTOCOL_ATTRIBUTE_NAME);
-        String device = remoteLinkElement.getAttribute(DEVICE_ATTRIBUTE_NAME);
-        String subdevice = remoteLinkElement.getAttribute(SUBDEVICE_ATTRIBUTE_NAME);
-        remote = mkRemote(name, comment, protocol, device, subdevice);
+        this(remoteLinkElement.getAttribute(KIND_ATTRIBUTE_NAME),
+                remoteLinkElement.getAttribute(NAME_ATTRIBUTE_NAME),
+                remoteLinkElement.getAttribute(COMMENT_ATTRIBUTE_NAME),
+                remoteLinkElement.getAttribute(PROTOCOL_ATTRIBUTE_NAME),
+                remoteLinkElement.getAttribute(DEVICE_ATTRIBUTE_NAME),
+                remoteLinkElement.getAttribute(SUBDEVICE_ATTRIBUTE_NAME),
+                remoteLinkElement.getAttribute(PATH_ELEMENT_NAME),
+                remoteLinkElement.getAttribute(URL_ATTRIBUTE_NAME),
+                remoteLinkElement.getAttribute(XPATH_ATTRIBUTE_NAME));
+    }
+
+    /**
+     * Constructs a RemoteLink from an rl:remoteLink start element.
+     * @param reader XMLStreamReader positioned at the start of an rl:remoteLink element.
+     */
+    RemoteLink(XMLStreamReader reader) throws URISyntaxException, MalformedURLException {
+        this(RemoteDatabase.getAttribute(reader, KIND_ATTRIBUTE_NAME),
+                RemoteDatabase.getAttribute(reader, NAME_ATTRIBUTE_NAME),
+                RemoteDatabase.getAttribute(reader, COMMENT_ATTRIBUTE_NAME),
+                RemoteDatabase.getAttribute(reader, PROTOCOL_ATTRIBUTE_NAME),
+                RemoteDatabase.getAttribute(reader, DEVICE_ATTRIBUTE_NAME),
+                RemoteDatabase.getAttribute(reader, SUBDEVICE_ATTRIBUTE_NAME),
+                RemoteDatabase.getAttribute(reader, PATH_ELEMENT_NAME),
+                RemoteDatabase.getAttribute(reader, URL_ATTRIBUTE_NAME),
+                RemoteDatabase.getAttribute(reader, XPATH_ATTRIBUTE_NAME));
+    }
+
+    /**
+     * Constructs a RemoteLink from the attribute values of its XML representation.
+     * Absent attributes are to be given as empty strings.
+     */
+    RemoteLink(String kind, String name, String comment, String protocol, String device, String subdevice, String path, String url, String xpath) throws URISyntaxException, MalformedURLException {
+        this.kind = ScrapKind.valueOf(kind);
+        this.file = new File(path);
+        this.url = new URI(url).toURL();
+        this.xpath = xpath;
+        this.summary = new Summary(name, comment, protocol, device, subdevice);
     }
 
     void setOwner(DeviceClassRemotes owner) {
@@ -162,46 +188,35 @@ public final class RemoteLink implements Named, Serializable {
         return owner.getOwner().getName();
     }
 
-    private Command getFirstCommand() {
-        Iterator<CommandSet> iterator = remote.iterator();
-        if (!iterator.hasNext())
-            return null;
-        CommandSet firstCommandSet = iterator.next();
-        if (firstCommandSet == null)
-            throw new NullPointerException();
-        Iterator<Command> it = firstCommandSet.iterator();
-        return it.hasNext() ? it.next() : null;
-    }
-
-    private String getProtocolName() {
-        try {
-            Command firstCommand = getFirstCommand();
-            return firstCommand != null ? firstCommand.getProtocolName() : null;
-        } catch (IrpException | IrCoreException ex) {
-            return null;
-        }
-    }
-
-    private Map<String, Long> getParameters() {
-        try {
-            Command firstCommand = getFirstCommand();
-            return firstCommand != null ? firstCommand.getParameters() : null;
-        } catch (IrpException | IrCoreException ex) {
-            return null;
-        }
+    /**
+     * Sets a cache for the Remotes returned by getRemote; null for none (default).
+     * @param cache
+     */
+    public static void setRemoteCache(RemoteCache cache) {
+        remoteCache = cache;
     }
 
-    private Long getD() {
-        Map<String, Long> parameters = getParameters();
-        return parameters != null ? parameters.get(Command.D_PARAMETER_NAME) : null;
+    public static RemoteCache getRemoteCache() {
+        return remoteCache;
     }
 
-    private Long getS() {
-        Map<String, Long> parameters = getParameters();
-        return parameters != null ? parameters.get(Command.S_PARAMETER_NAME) : null;
+    /**
+     * Returns the Remote this RemoteLink points to.
+     * If a RemoteCache has been set, it is consulted first.
+     * @return Remote
+     * @throws IOException
+     * @throws org.harctoolbox.remotelocator.Girrable.NotGirrableException
+     * @throws NotFoundException
+     */
+    public Remote getRemote() throws IOException, Girrable.NotGirrableException, NotFoundException {
+        RemoteCache cache = remoteCache;
+        return cache != null ? cache.get(this) : loadRemote();
     }
 
-    public Remote getRemote() throws IOException, Girrable.NotGirrableException, NotFoundException {
+    /**
+     * Reads and parses the Remote, without consulting the cache.
+     */
+    Remote loadRemote() throws IOException, Girrable.NotGirrableException, NotFoundException {
         Scrapable scrap = ScrapKind.mkScrapable(this);
         if (!(scrap instanceof Girrable))
             throw new Girrable.NotGirrableException();
@@ -211,7 +226,7 @@ public final class RemoteLink implements Named, Serializable {
 
     @Override
     public String getName() {
-        return remote.getName();
+        return summary.name;
     }
 
     public File getFile() {
@@ -230,12 +245,31 @@ public final class RemoteLink implements Named, Serializable {
         setAttributeIfNonNull(element, XPATH_ATTRIBUTE_NAME, xpath);
         setAttributeIfNonNull(element, COMMENT_ATTRIBUTE_NAME, getComment());
         setAttributeIfNonNull(element, URL_ATTRIBUTE_NAME, url);
-        setAttributeIfNonNull(element, PROTOCOL_ATTRIBUTE_NAME, getProtocolName());
-        setAttributeIfNonNull(element, DEVICE_ATTRIBUTE_NAME, getD());
-        setAttributeIfNonNull(element, SUBDEVICE_ATTRIBUTE_NAME, getS());
+        setAttributeIfNonNull(element, PROTOCOL_ATTRIBUTE_NAME, summary.getProtocol());
+        setAttributeIfNonNull(element, DEVICE_ATTRIBUTE_NAME, summary.getDevice());
+        setAttributeIfNonNull(element, SUBDEVICE_ATTRIBUTE_NAME, summary.getSubdevice());
         return element;
     }
 
+    /**
+     * Writes the rl:remoteLink element to the XMLStreamWriter, with the same attributes as toElement.
+     * These are written in alphabetical order, like the DOM serializer does.
+     * @param writer
+     * @throws XMLStreamException
+     */
+    public void write(XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeEmptyElement(REMOTELOCATOR_PREFIX, REMOTELINK_ELEMENT_NAME, REMOTELOCATOR_NAMESPACE);
+        writeAttributeIfNonNull(writer, COMMENT_ATTRIBUTE_NAME, getComment());
+        writeAttributeIfNonNull(writer, DEVICE_ATTRIBUTE_NAME, summary.getDevice());
+        writeAttributeIfNonNull(writer, KIND_ATTRIBUTE_NAME, kind.name());
+        writer.writeAttribute(NAME_ATTRIBUTE_NAME, getName());
+        writeAttributeIfNonNull(writer, PATH_ELEMENT_NAME, file);
+        writeAttributeIfNonNull(writer, PROTOCOL_ATTRIBUTE_NAME, summary.getProtocol());
+        writeAttributeIfNonNull(writer, SUBDEVICE_ATTRIBUTE_NAME, summary.getSubdevice());
+        writeAttributeIfNonNull(writer, URL_ATTRIBUTE_NAME, url);
+        writeAttributeIfNonNull(writer, XPATH_ATTRIBUTE_NAME, xpath);
+    }
+
     /**
      * @return the kind
      */
@@ -247,13 +281,25 @@ public final class RemoteLink implements Named, Serializable {
      * @return the comment
      */
     public String getComment() {
-        return remote.getComment();
+        return summary.comment;
     }
 
     public URL getUrl() {
         return url;
     }
 
+    String getProtocol() {
+        return summary.getProtocol();
+    }
+
+    Long getDevice() {
+        return summary.getDevice();
+    }
+
+    Long getSubdevice() {
+        return summary.getSubdevice();
+    }
+
     RemoteDatabase getRemoteDatabase() {
         return owner.getOwner().getRemoteDatabase();
     }
@@ -261,4 +307,102 @@ public final class RemoteLink implements Named, Serializable {
     public boolean isLoadable() {
         return kind != ScrapKind.jp1;
     }
+
+    /**
+     * Compact summary of a Remote: name, comment, and protocol name, device, and subdevice of its first command.
+     * This is all that a RemoteLink needs; the commands themselves are not retained.
+     * It is immutable, except for whether the protocol is known, which may be determined lazily.
+     * That is idempotent, and the result is published through a volatile field,
+     * so instances can be shared between threads.
+     */
+    static final class Summary implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static Command getFirstCommand(Remote remote) {
+            Iterator<CommandSet> iterator = remote.iterator();
+            if (!iterator.hasNext())
+                return null;
+            CommandSet firstCommandSet = iterator.next();
+            if (firstCommandSet == null)
+                throw new NullPointerException();
+            Iterator<Command> it = firstCommandSet.iterator();
+            return it.hasNext() ? it.next() : null;
+        }
+
+        private final String name;
+        private final String comment;
+        private final String protocol;
+        private final Long device;
+        private final Long subdevice;
+        // Null as long as the protocol has not been checked against the protocol data base.
+        private volatile Boolean known;
+
+        Summary(Remote remote) {
+            name = remote.getName();
+            comment = remote.getComment();
+            String protocolName = null;
+            Map<String, Long> parameters = null;
+            Command firstCommand = getFirstCommand(remote);
+            if (firstCommand != null) {
+                try {
+                    protocolName = firstCommand.getProtocolName();
+                    parameters = firstCommand.getParameters();
+                } catch (IrpException | IrCoreException ex) {
+                }
+            }
+            protocol = protocolName;
+            device = parameters != null ? parameters.get(Command.D_PARAMETER_NAME) : null;
+            subdevice = parameters != null ? parameters.get(Command.S_PARAMETER_NAME) : null;
+            known = true;
+        }
+
+        /**
+         * Constructs a Summary from textual data.
+         * If the protocol is not known, protocol, device, and subdevice are all ignored.
+         * Device and subdevice are ignored if they do not parse as numbers.
+         * Whether the protocol is known is only checked when it is asked for,
+         * so that reading a RemoteDatabase does not require the protocol data base to be read.
+         */
+        Summary(String name, String comment, String protocolName, String device, String subdevice) {
+            this.name = name;
+            this.comment = comment;
+            Long dev = null;
+            Long subdev = null;
+            boolean present = protocolName != null && !protocolName.isEmpty();
+            if (present) {
+                try {
+                    dev = Long.valueOf(device);
+                    subdev = Long.valueOf(subdevice);
+                } catch (NumberFormatException ex) {
+                    logger.fine(ex.getLocalizedMessage());
+                }
+            }
+            this.protocol = present ? protocolName : null;
+            this.device = dev;
+            this.subdevice = subdev;
+            this.known = present ? null : true;
+        }
+
+        private boolean isKnown() {
+            Boolean k = known;
+            if (k == null) {
+                k = ProtocolDatabase.isKnownProtocol(protocol);
+                known = k;
+            }
+            return k;
+        }
+
+        String getProtocol() {
+            return isKnown() ? protocol : null;
+        }
+
+        Long getDevice() {
+            return isKnown() ? device : null;
+        }
+
+        Long getSubdevice() {
+            return isKnown() ? subdevice : null;
+        }
+    }
 }
@@ -22,15 +22,19 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import java.awt.Desktop;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
-import org.harctoolbox.girr.Command;
-import org.harctoolbox.girr.CommandSet;
+import java.util.Map;
 import org.harctoolbox.girr.GirrException;
 import org.harctoolbox.girr.Remote;
 import org.harctoolbox.ircore.IrCoreException;
@@ -46,8 +50,10 @@ public class RemoteLocator {
 
     private static JCommander argumentParser;
     private static final CommandLineArgs commandLineArgs = new CommandLineArgs();
-    private static RemoteDatabase remoteDatabase;
+    private static RemoteIndex remoteDatabase;
     private static final String QUESTIONMARK = "?";
+    private static final String REMOTES_CACHE_SUBDIR = "remotes";
+    private static final long MEGABYTE = 1024L * 1024L;
     private static PrintStream out;
 
     private static void usage(int exitcode) {
@@ -95,27 +101,119 @@ public class RemoteLocator {
             System.exit(EXIT_SUCCESS);
         }
 
-        if (commandLineArgs.config == null) {
+        if (commandLineArgs.config == null && commandLineArgs.source == null) {
             System.err.println("--config|-c is a required argument");
             usage(EXIT_USAGE_ERROR);
         }
 
+        if (commandLineArgs.source != null && (commandLineArgs.kind == null || commandLineArgs.bulk == null)) {
+            System.err.println("--source requires --kind and --bulk");
+            usage(EXIT_USAGE_ERROR);
+        }
+
         try {
-            remoteDatabase = new RemoteDatabase(commandLineArgs.config);
+            HttpFetcher httpFetcher = HttpFetcher.getInstance();
+            httpFetcher.setConnectTimeout(commandLineArgs.connectTimeout);
+            httpFetcher.setReadTimeout(commandLineArgs.readTimeout);
+            httpFetcher.setMaxRetries(commandLineArgs.retries);
+            remoteDatabase = commandLineArgs.source != null ? scrapSource() : loadConfig(commandLineArgs.config);
             if (remoteDatabase.isEmpty())
                 die("No database content", EXIT_USAGE_ERROR);
 
+            if (commandLineArgs.cacheDir != null) {
+                HttpCache remoteCache = new HttpCache(new File(commandLineArgs.cacheDir, REMOTES_CACHE_SUBDIR));
+                remoteCache.setMaxAge(commandLineArgs.maxAge);
+                remoteCache.setMaxSize(commandLineArgs.cacheSize * MEGABYTE);
+                Girrable.setHttpCache(remoteCache);
+            }
+
+            if (commandLineArgs.mirror != null) {
+                Mirror mirror = new Mirror(new File(commandLineArgs.mirror));
+                if (commandLineArgs.sync) {
+                    processSync(mirror);
+                    return;
+                }
+                Girrable.setMirror(mirror);
+            } else if (commandLineArgs.sync)
+                die("--sync requires --mirror", EXIT_USAGE_ERROR);
+
+            if (commandLineArgs.bulk != null) {
+                processBulk();
+                return;
+            }
+
             out = IrCoreUtils.getPrintStream(commandLineArgs.output);
             processManufacturer();
-        } catch (NotFoundException | URISyntaxException | IOException | GirrException | IrpException | IrCoreException | SAXException | RemoteDatabase.FormatVersionMismatchException ex) {
+        } catch (NotFoundException | URISyntaxException | IOException | UncheckedIOException | GirrException | IrpException | IrCoreException | SAXException | RemoteDatabase.FormatVersionMismatchException ex) {
             die(ex.getLocalizedMessage(), EXIT_USAGE_ERROR);
         }
     }
 
+    private static RemoteIndex scrapSource() throws IOException, SAXException {
+        RemoteDatabase database = new RemoteDatabase();
+        ScrapKind.mkScrapable(database, commandLineArgs.kind).add(new File(commandLineArgs.source));
+        return database;
+    }
+
+    private static RemoteIndex loadConfig(String config) throws IOException, SAXException, RemoteDatabase.FormatVersionMismatchException {
+        File configFile = new File(config);
+        if (BinaryIndex.isBinaryIndex(configFile))
+            return new BinaryIndex(configFile);
+
+        if (commandLineArgs.cacheDir != null) {
+            URL url;
+            try {
+                url = new URL(config);
+            } catch (MalformedURLException ex) {
+                url = null;
+            }
+            if (url != null && HttpCache.isCacheable(url)) {
+                HttpCache httpCache = new HttpCache(new File(commandLineArgs.cacheDir));
+                httpCache.setMaxAge(commandLineArgs.maxAge);
+                return new RemoteDatabase(httpCache.get(url), url);
+            }
+        }
+        return new RemoteDatabase(config);
+    }
+
     private static boolean isQuestion(String string) {
         return string.equals(QUESTIONMARK);
     }
 
+    private static List<RemoteLink> selectRemoteLinks() throws NotFoundException {
+        String manufacturer = commandLineArgs.manufacturer == null || isQuestion(commandLineArgs.manufacturer) ? null : commandLineArgs.manufacturer;
+        String deviceClass = manufacturer == null || commandLineArgs.deviceClass == null || isQuestion(commandLineArgs.deviceClass) ? null : commandLineArgs.deviceClass;
+        List<String> names = deviceClass == null || commandLineArgs.remoteNames.isEmpty() || isQuestion(commandLineArgs.remoteNames.get(0))
+                ? null : commandLineArgs.remoteNames;
+        return BulkDownloader.select(remoteDatabase, commandLineArgs.kind, manufacturer, deviceClass, names);
+    }
+
+    private static void processBulk() throws NotFoundException, IOException {
+        if (commandLineArgs.source == null && (commandLineArgs.manufacturer == null || isQuestion(commandLineArgs.manufacturer)))
+            die("--bulk requires --manufacturer, unless --source is given", EXIT_USAGE_ERROR);
+
+        BulkDownloader bulkDownloader = new BulkDownloader(commandLineArgs.inFlight);
+        if (commandLineArgs.source != null)
+            bulkDownloader.setSourceDirectory(new File(commandLineArgs.source));
+        Map<ExportFormat, BulkDownloader.Result> results = bulkDownloader.export(selectRemoteLinks(), EnumSet.copyOf(commandLineArgs.formats), new File(commandLineArgs.bulk));
+        results.forEach((format, result) -> {
+            System.err.println(format + ": " + result);
+        });
+        printNetworkStatistics();
+    }
+
+    private static void processSync(Mirror mirror) throws NotFoundException, IOException {
+        BulkDownloader.Result result = mirror.sync(selectRemoteLinks(), commandLineArgs.inFlight);
+        System.err.println(result);
+        printNetworkStatistics();
+    }
+
+    private static void printNetworkStatistics() {
+        HttpFetcher httpFetcher = HttpFetcher.getInstance();
+        if (httpFetcher.getRequests() > 0)
+            System.err.println("Network: " + httpFetcher.getStatistics());
+    }
+
     private static void processManufacturer() throws NotFoundException, URISyntaxException, IOException, GirrException, IrpException, IrCoreException {
         if (commandLineArgs.manufacturer == null || isQuestion(commandLineArgs.manufacturer)) {
             List<String> manufacturers = remoteDatabase.getManufacturers(commandLineArgs.kind);
@@ -176,21 +274,15 @@ public class RemoteLocator {
             return;
         }
         if (commandLineArgs.girr) {
-            remote.print(out, true, true, true);
+            ExportFormat.girr.print(out, remote);
             doneStuff = true;
         }
         if (commandLineArgs.prontoHex) {
-            for (CommandSet cs : remote) {
-                for (Command c : cs) {
-                    out.println(c.getName());
-                    out.println(c.getProntoHex());
-                    out.println();
-                }
-            }
+            ExportFormat.pronto.print(out, remote);
             doneStuff = true;
         }
         if (commandLineArgs.cvs) {
-            IrdbScrap.print(out, remote);
+            ExportFormat.csv.print(out, remote);
             doneStuff = true;
         }
         if (!doneStuff) {
@@ -206,21 +298,40 @@ public class RemoteLocator {
         @Parameter(names = {"-b", "--browse"}, description = "Browse the remote instead of downloading it.")
         private boolean browse = false;
 
-        @Parameter(names = {"-c", "--config"}, description = "Name or URL of config file, to be read or written.")
+        @Parameter(names = {"--bulk"}, description = "Download all selected remotes, in the --format(s), into this directory, or zip file if ending with .zip.")
+        private String bulk = null;
+
+        @Parameter(names = {"--cachedir"}, description = "Directory for caching the config file, when given as http(s) URL, and downloaded remotes.")
+        private String cacheDir = null;
+
+        @Parameter(names = {"--cachesize"}, description = "Maximal size in megabytes of the cached remotes.")
+        private long cacheSize = 100;
+
+        @Parameter(names = {"-c", "--config"}, description = "Name or URL of config file, to be read or written; may also be a local binary index.")
         String config = null;
 
+        @Parameter(names = {"--connecttimeout"}, description = "Timeout in milliseconds for connecting to a server, 0 for infinite.")
+        private int connectTimeout = HttpFetcher.DEFAULT_CONNECT_TIMEOUT;
+
         @Parameter(names = {"--csv"}, description = "Produce output in IRDB CVS format.")
         private boolean cvs = false;
 
         @Parameter(names = {"-d", "--deviceclass"}, description = "Device class, \"?\" for list.")
         private String deviceClass = null;
 
+        @Parameter(names = {"-f", "--format"}, description = "Format(s) for --bulk, separated by commas.",
+        converter = ExportFormatParser.class)
+        private List<ExportFormat> formats = new ArrayList<>(Arrays.asList(ExportFormat.girr));
+
         @Parameter(names = {"-g", "--girr"}, description = "Produce output in Girr format.")
         private boolean girr = false;
 
         @Parameter(names = {"-h", "--help", "-?"}, description = "Display help message.")
         private boolean helpRequested = false;
 
+        @Parameter(names = {"--inflight"}, description = "Maximal number of remotes being downloaded at the same time, with --bulk or --sync.")
+        private int inFlight = BulkDownloader.DEFAULT_MAX_IN_FLIGHT;
+
         @Parameter(names = {"-k", "--kind"}, description = "Only consider remotes of this kind.",
         converter = ScrapKindParser.class)
         private ScrapKind kind = null;
@@ -228,12 +339,30 @@ public class RemoteLocator {
         @Parameter(names = {"-m", "--manufacturer"}, description = "Manufacturer, \"?\" for list.")
         private String manufacturer = null;
 
+        @Parameter(names = {"--maxage"}, description = "Time in seconds, during which a cached file is used without asking the server.")
+        private long maxAge = HttpCache.DEFAULT_MAX_AGE;
+
+        @Parameter(names = {"--mirror"}, description = "Directory of a local mirror of the files of the remotes, read in preference to the network.")
+        private String mirror = null;
+
         @Parameter(names = {"-o", "--output"}, description = "File name to write to, \"-\" for stdout.")
         private String output = "-";
 
         @Parameter(names = {"-p", "--prontohex"}, description = "Produce output in Pronto Hex format.")
         private boolean prontoHex = false;
 
+        @Parameter(names = {"--readtimeout"}, description = "Timeout in milliseconds for reading from a server, 0 for infinite.")
+        private int readTimeout = HttpFetcher.DEFAULT_READ_TIMEOUT;
+
+        @Parameter(names = {"--retries"}, description = "Number of times a failed download is retried.")
+        private int retries = HttpFetcher.DEFAULT_MAX_RETRIES;
+
+        @Parameter(names = {"--source"}, description = "Local source tree of --kind, to be read instead of --config, for --bulk.")
+        private String source = null;
+
+        @Parameter(names = {"--sync"}, description = "Download the files of the selected remotes, or all, into the --mirror directory.")
+        private boolean sync = false;
+
         @Parameter(names = {"-u", "--url"}, description = "Do not get the remote, just print its url.")
         private boolean doUrl = false;
 
@@ -245,6 +374,18 @@ public class RemoteLocator {
         private List<String> remoteNames = new ArrayList<>(4);
     }
 
+    private static class ExportFormatParser implements IStringConverter<ExportFormat> {
+
+        @Override
+        public ExportFormat convert(String value) {
+            try {
+                return ExportFormat.valueOf(value.toLowerCase(Locale.US));
+            } catch (IllegalArgumentException ex) {
+                throw new ParameterException(ex);
+            }
+        }
+    }
+
     private static class ScrapKindParser implements IStringConverter<ScrapKind> {
 
         @Override
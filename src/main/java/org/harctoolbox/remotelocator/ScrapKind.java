@@ -24,7 +24,7 @@ public enum ScrapKind {
     lirc,
     jp1;
 
-   private static Scrapable mkScrapable(RemoteDatabase remoteDatabase, ScrapKind kind) {
+   static Scrapable mkScrapable(RemoteDatabase remoteDatabase, ScrapKind kind) {
         switch (kind) {
             case irdb:
                 return new IrdbScrap(remoteDatabase);
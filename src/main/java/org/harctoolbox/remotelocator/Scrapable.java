@@ -20,19 +20,55 @@ package org.harctoolbox.remotelocator;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.harctoolbox.girr.Named;
 import org.xml.sax.SAXException;
 
 public abstract class Scrapable {
 
-    protected static boolean isReadableDirectory(File file) {
-        return file.isDirectory() && file.canRead();
-    }
+    private static final Logger logger = Logger.getLogger(Scrapable.class.getName());
 
-    protected static void assertReadableDirectory(File file) throws IOException {
-        if (!isReadableDirectory(file))
-            throw new IOException(file + " is not a readable directory");
+    /**
+     * Calls the visitor for every entry of the directory, in the order of the directory, together with its attributes.
+     * The attributes, following symbolic links, are read once per entry, and are to be used by the visitor
+     * instead of File.isDirectory(), File.isFile(), File.length() etc., which each cost a file system call.
+     * Entries whose attributes cannot be read, like dangling symbolic links, are logged and skipped.
+     *
+     * @param dir Directory
+     * @param visitor
+     * @return false if dir could not be opened as a directory, in which case nothing is visited.
+     * @throws IOException if reading the directory fails, or thrown by the visitor.
+     */
+    protected static boolean visitEntries(File dir, EntryVisitor visitor) throws IOException {
+        DirectoryStream<Path> directoryStream;
+        try {
+            directoryStream = Files.newDirectoryStream(dir.toPath());
+        } catch (IOException ex) {
+            return false;
+        }
+        try (DirectoryStream<Path> stream = directoryStream) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException ex) {
+                    logger.log(Level.WARNING, "Cannot read attributes of {0}, ignored: {1}", new Object[]{path, ex.getLocalizedMessage()});
+                    continue;
+                }
+                visitor.visit(path.toFile(), attributes);
+            }
+        } catch (DirectoryIteratorException ex) {
+            throw ex.getCause();
+        }
+        return true;
     }
 
     /**
@@ -41,6 +77,8 @@ public abstract class Scrapable {
      */
     protected final RemoteDatabase remoteDatabase;
 
+    private Manifest manifest = null;
+
     protected Scrapable(RemoteDatabase remoteDatabase) {
         this.remoteDatabase = remoteDatabase;
     }
@@ -78,4 +116,97 @@ public abstract class Scrapable {
     String formatUrl(String url) {
         return url;
     }
+
+    /**
+     * Sets a manifest, used for incremental scraping.
+     * @param manifest Manifest, or null for none.
+     */
+    public void setManifest(Manifest manifest) {
+        this.manifest = manifest;
+    }
+
+    /**
+     * Delivers the remote links of a source file.
+     * If a manifest is set, and it states that the file is unchanged, the links from the manifest are used.
+     * Otherwise, the file is parsed by the parser argument, and the result recorded in the manifest.
+     *
+     * @param file Source file
+     * @param parser Function parsing the file
+     * @return List of RemoteLinks, possibly empty.
+     * @throws IOException
+     */
+    protected List<RemoteLink> scrapFile(File file, FileParser parser) throws IOException {
+        return manifest != null ? manifest.scrapFile(file, parser) : parser.parse(file);
+    }
+
+    /**
+     * Like {@link #scrapFile(File, FileParser)}, for a file whose attributes are known, for example from visitEntries.
+     * @param file Source file
+     * @param attributes Its attributes
+     * @param parser Function parsing the file
+     * @return List of RemoteLinks, possibly empty.
+     * @throws IOException
+     */
+    protected List<RemoteLink> scrapFile(File file, BasicFileAttributes attributes, FileParser parser) throws IOException {
+        return manifest != null
+                ? manifest.scrapFile(file, attributes.size(), attributes.lastModifiedTime().toMillis(), parser)
+                : parser.parse(file);
+    }
+
+    /**
+     * Like {@link #scrapFile(File, FileParser)}, for an entry of an archive.
+     * The parser is called with {@link Archive.Entry#getFile()}, which does not exist in the file system;
+     * it has to read the content from the entry.
+     * @param entry Archive entry
+     * @param parser Function parsing the entry
+     * @return List of RemoteLinks, possibly empty.
+     * @throws IOException
+     */
+    List<RemoteLink> scrapFile(Archive.Entry entry, FileParser parser) throws IOException {
+        return manifest != null ? manifest.scrapEntry(entry, parser) : parser.parse(entry.getFile());
+    }
+
+    /**
+     * To be called by add(File), with its argument, if the manifest is used.
+     * @param root Directory or archive to be scraped.
+     */
+    protected void addManifestRoot(File root) {
+        if (manifest != null)
+            manifest.addRoot(root);
+    }
+
+    /**
+     * To be called by a FileParser for a file whose remote links depend on other files,
+     * so that it is not taken from the manifest in a later run.
+     * @param file
+     */
+    protected void doNotCache(File file) {
+        if (manifest != null)
+            manifest.doNotCache(file);
+    }
+
+    @FunctionalInterface
+    protected interface FileParser {
+        /**
+         * Parses the argument into remote links.
+         * Before a manifest is saved, the remote links must know their manufacturer and device class,
+         * i.e., they must have been added to the RemoteDatabase, or to a detached DeviceClassRemotes.
+         *
+         * @param file Source file.
+         * @return List of RemoteLinks, possibly empty.
+         * @throws IOException
+         */
+        List<RemoteLink> parse(File file) throws IOException;
+    }
+
+    @FunctionalInterface
+    protected interface EntryVisitor {
+        /**
+         * Processes an entry of a directory.
+         * @param file The entry
+         * @param attributes Its attributes
+         * @throws IOException
+         */
+        void visit(File file, BasicFileAttributes attributes) throws IOException;
+    }
 }
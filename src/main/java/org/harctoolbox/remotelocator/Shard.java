@@ -0,0 +1,98 @@
+/*
+Copyright (C) 2025 Bengt Martensson.
+
+This program is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 3 of the License, or (at
+your option) any later version.
+
+This program is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+General Public License for more details.
+
+You should have received a copy of the GNU General Public License along with
+this program. If not, see http://www.gnu.org/licenses/.
+*/
+
+package org.harctoolbox.remotelocator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.harctoolbox.remotelocator.RemoteDatabase.mkKey;
+import org.xml.sax.SAXException;
+
+/**
+ * A file of a sharded RemoteDatabase, referenced by xi:include elements of the root file.
+ * The manufacturers it contains are known by name from the root file,
+ * but their content is only read when it is first accessed.
+ */
+final class Shard {
+
+    private static final Logger logger = Logger.getLogger(Shard.class.getName());
+
+    private final URL url;
+    private final List<ManufacturerDeviceClasses> stubs;
+
+    Shard(URL url) {
+        this.url = url;
+        this.stubs = new ArrayList<>(8);
+    }
+
+    /**
+     * Creates a ManufacturerDeviceClasses, the content of which is to be read from this shard.
+     * @param manufacturer Name of manufacturer
+     * @param kinds Kinds of its remotes, as given in the root file; null if not known.
+     * @return Empty ManufacturerDeviceClasses, to be filled on demand.
+     */
+    ManufacturerDeviceClasses mkStub(String manufacturer, EnumSet<ScrapKind> kinds) {
+        ManufacturerDeviceClasses stub = new ManufacturerDeviceClasses(manufacturer, this, kinds);
+        stubs.add(stub);
+        return stub;
+    }
+
+    /**
+     * Reads the shard, and fills in all its manufacturers.
+     * @throws UncheckedIOException if the shard could not be read.
+     */
+    synchronized void resolve() {
+        if (stubs.isEmpty())
+            return;
+
+        logger.log(Level.FINE, "Reading shard {0}", url);
+        RemoteDatabase content;
+        try {
+            content = new RemoteDatabase(url);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (SAXException | RemoteDatabase.FormatVersionMismatchException ex) {
+            throw new UncheckedIOException(new IOException("Could not read shard " + url + ": " + ex.getLocalizedMessage(), ex));
+        }
+
+        for (ManufacturerDeviceClasses stub : stubs) {
+            try {
+                stub.adopt(content.getManufacturerDeviceClass(stub.getName()));
+            } catch (NotFoundException ex) {
+                logger.log(Level.WARNING, "Manufacturer {0} not found in shard {1}", new Object[]{stub.getName(), url});
+                stub.adopt(null);
+            }
+        }
+        stubs.clear();
+    }
+
+    /**
+     * Computes the shard number of a manufacturer, when sharding into buckets.
+     * @param manufacturer
+     * @param buckets Number of buckets, positive.
+     * @return Integer in [0, buckets).
+     */
+    static int bucket(String manufacturer, int buckets) {
+        return Math.floorMod(mkKey(manufacturer).hashCode(), buckets);
+    }
+}
@@ -0,0 +1,97 @@
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class ArchiveNGTest {
+    // Both made by "git archive --prefix=sample-master/", as Github does.
+    private static final File SAMPLE_TARGZ = new File("src/test/archives/sample.tar.gz");
+    private static final File SAMPLE_ZIP = new File("src/test/archives/sample.zip");
+    private static final String LONG_PATH = "dddddddddddddddddddddddddddddddddddddddddddddddddddddddddddd/ffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff.txt";
+
+    private static Map<String, String> read(File archive, String directory) throws Exception {
+        Map<String, String> result = new LinkedHashMap<>(8);
+        Archive.visitEntries(archive, directory, (Archive.Entry entry) -> {
+            assertEquals(entry.getFile(), new File(archive, entry.getPath()));
+            assertEquals(entry.getSize(), entry.getContent().length);
+            assertTrue(entry.getLastModified() > 0L);
+            result.put(entry.getPath(), new String(entry.getContent(), StandardCharsets.UTF_8));
+        });
+        return result;
+    }
+
+    public ArchiveNGTest() {
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+    }
+
+    /**
+     * Test of isArchive method, of class Archive.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testIsArchive() throws Exception {
+        System.out.println("isArchive");
+        assertTrue(Archive.isArchive(SAMPLE_TARGZ));
+        assertTrue(Archive.isArchive(SAMPLE_ZIP));
+        assertFalse(Archive.isArchive(new File("src/test/archives")));
+        assertFalse(Archive.isArchive(new File("src/test/girr/sony_tv.girr")));
+        assertFalse(Archive.isArchive(new File("src/test/archives/nonexisting.zip")));
+    }
+
+    /**
+     * Test of visitEntries method, of class Archive, with a tar.gz archive.
+     * The path longer than 100 characters is stored in a pax extended header.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testVisitEntries_TarGz() throws Exception {
+        System.out.println("visitEntries_TarGz");
+        Map<String, String> result = read(SAMPLE_TARGZ, "data");
+        assertEquals(result.keySet(), Arrays.asList("a.txt", "blåbär.txt", LONG_PATH, "sub/b.txt"));
+        assertEquals(result.get("sub/b.txt"), "b\n");
+        assertEquals(result.get(LONG_PATH), "long\n");
+        assertEquals(result.get("blåbär.txt"), "blåbär\n");
+
+        result = read(SAMPLE_TARGZ, "");
+        assertEquals(result.size(), 5);
+        assertEquals(result.get("README.md"), "Sample archive\n");
+        assertEquals(result.get("data/a.txt"), "a\n");
+    }
+
+    /**
+     * Test of visitEntries method, of class Archive, with a zip archive.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testVisitEntries_Zip() throws Exception {
+        System.out.println("visitEntries_Zip");
+        assertEquals(read(SAMPLE_ZIP, "data"), read(SAMPLE_TARGZ, "data"));
+        assertEquals(read(SAMPLE_ZIP, ""), read(SAMPLE_TARGZ, ""));
+        assertTrue(read(SAMPLE_ZIP, "nonexisting").isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class ArchiveScrapNGTest {
+
+    private static RemoteDatabase scrap(ScrapKind kind, File file) throws Exception {
+        RemoteDatabase remoteDatabase = new RemoteDatabase();
+        ScrapKind.mkScrapable(remoteDatabase, kind).add(file);
+        remoteDatabase.sort();
+        return remoteDatabase;
+    }
+
+    public ArchiveScrapNGTest() {
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+    }
+
+    /**
+     * Snapshots of the collections, as downloaded from Github, and the corresponding directories.
+     * @return kind, directory, archive.
+     */
+    @DataProvider(name = "archives")
+    public Object[][] archives() {
+        return new Object[][] {
+            // The Girr snapshot contains a file using XInclude.
+            { ScrapKind.girr, new File("src/test/GirrLib/Girr"), new File("src/test/archives/GirrLib-master.tar.gz") },
+            { ScrapKind.irdb, new File("src/test/irdb/codes"), new File("src/test/archives/irdb-master.tar.gz") },
+            { ScrapKind.flipper, new File("src/test/Flipper-IRDB"), new File("src/test/archives/Flipper-IRDB-main.zip") },
+            { ScrapKind.lirc, new File("src/test/lirc-remotes/remotes"), new File("src/test/archives/lirc-remotes-code-master.zip") }
+        };
+    }
+
+    /**
+     * Test of add method of the scrapers, with a zip or tar.gz snapshot.
+     * It must deliver the same remote links as the directory.
+     * @param kind
+     * @param directory
+     * @param archive
+     * @throws java.lang.Exception
+     */
+    @Test(dataProvider = "archives")
+    public void testAdd_Archive(ScrapKind kind, File directory, File archive) throws Exception {
+        System.out.println("add_Archive " + kind);
+        RemoteDatabase remoteDatabase = scrap(kind, archive);
+        assertTrue(remoteDatabase.numberRemotes() > 0);
+        assertEquals(ScrapTestUtils.toString(remoteDatabase), ScrapTestUtils.toString(scrap(kind, directory)));
+    }
+}
@@ -0,0 +1,124 @@
+package org.harctoolbox.remotelocator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.util.List;
+import static org.harctoolbox.xml.XmlUtils.DEFAULT_CHARSETNAME;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class BinaryIndexNGTest {
+    private static final File LOCAL_GIRRLIB_BASEDIR = new File("src/test/GirrLib/Girr");
+    private static final File LOCAL_GIRRTEST_BASEDIR = new File("src/test/girr");
+    private static final File LOCAL_IRDB_BASEDIR = new File("src/test/irdb/codes");
+    private static final File LOCAL_FLIPPER_BASEDIR = new File("src/test/Flipper-IRDB");
+    private static final File LOCAL_LIRC_BASEDIR = new File("src/test/lirc-remotes/remotes");
+    private static final File BINARY_FILE = new File("output/remotelocator" + BinaryIndex.BINARY_EXTENSION);
+
+    private final RemoteDatabase remoteDatabase;
+    private final BinaryIndex instance;
+
+    public BinaryIndexNGTest() throws Exception {
+        RemoteDatabase scraped = new RemoteDatabase();
+        new GirrScrap(scraped).add(LOCAL_GIRRLIB_BASEDIR);
+        new GirrScrap(scraped).add(LOCAL_GIRRTEST_BASEDIR);
+        new IrdbScrap(scraped).add(LOCAL_IRDB_BASEDIR);
+        new FlipperScrap(scraped).add(LOCAL_FLIPPER_BASEDIR);
+        new LircScrap(scraped).add(LOCAL_LIRC_BASEDIR);
+
+        // The XML form, as read by the query programs
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        scraped.write(outputStream);
+        remoteDatabase = new RemoteDatabase(new StringReader(outputStream.toString(DEFAULT_CHARSETNAME)));
+
+        BINARY_FILE.getParentFile().mkdirs();
+        BinaryIndex.write(scraped, BINARY_FILE);
+        instance = new BinaryIndex(BINARY_FILE);
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+    }
+
+    /**
+     * Test of isBinaryIndex method, of class BinaryIndex.
+     */
+    @Test
+    public void testIsBinaryIndex() {
+        System.out.println("isBinaryIndex");
+        assertTrue(BinaryIndex.isBinaryIndex(BINARY_FILE));
+        assertFalse(BinaryIndex.isBinaryIndex(new File("src/test/girr/sony_tv.girr")));
+        assertFalse(BinaryIndex.isBinaryIndex(new File("non/existing/file")));
+    }
+
+    /**
+     * Test of toRemoteDatabase method, of class BinaryIndex.
+     * The round trip through the binary form must give the same data base as the XML form.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testToRemoteDatabase() throws Exception {
+        System.out.println("toRemoteDatabase");
+        RemoteDatabase result = instance.toRemoteDatabase();
+        assertEquals(instance.numberRemotes(), remoteDatabase.numberRemotes());
+        assertEquals(ScrapTestUtils.toString(result), ScrapTestUtils.toString(remoteDatabase));
+    }
+
+    /**
+     * Test of the query methods, of class BinaryIndex.
+     * Every remote of the XML form must be found in the binary index, with the same properties.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGet() throws Exception {
+        System.out.println("get");
+        assertFalse(instance.isEmpty());
+        for (ScrapKind kind : new ScrapKind[] { null, ScrapKind.girr, ScrapKind.lirc, ScrapKind.jp1 })
+            assertEquals(instance.getManufacturers(kind), remoteDatabase.getManufacturers(kind));
+
+        for (String manufacturer : remoteDatabase.getManufacturers()) {
+            assertEquals(instance.getDeviceTypes(manufacturer.toUpperCase()), remoteDatabase.getDeviceTypes(manufacturer));
+            assertEquals(instance.getDeviceTypes(ScrapKind.irdb, manufacturer), remoteDatabase.getDeviceTypes(ScrapKind.irdb, manufacturer));
+            for (String deviceClass : remoteDatabase.getDeviceTypes(manufacturer)) {
+                List<String> remotes = remoteDatabase.getRemotes(manufacturer, deviceClass);
+                assertEquals(instance.getRemotes(manufacturer, deviceClass), remotes);
+                assertEquals(instance.getRemotes(ScrapKind.flipper, manufacturer, deviceClass), remoteDatabase.getRemotes(ScrapKind.flipper, manufacturer, deviceClass));
+                for (String remote : remotes) {
+                    RemoteLink expected = remoteDatabase.get(manufacturer, deviceClass, remote);
+                    RemoteLink actual = instance.get(manufacturer, deviceClass, remote);
+                    assertEquals(actual.getName(), expected.getName());
+                    assertEquals(actual.getKind(), expected.getKind());
+                    assertEquals(actual.getUrl(), expected.getUrl());
+                    assertEquals(actual.getManufacturer(), expected.getManufacturer());
+                    assertEquals(actual.getDeviceClass(), expected.getDeviceClass());
+                }
+            }
+        }
+
+        String manufacturer = "Philips";
+        String deviceClass = "tv";
+        String remoteName = remoteDatabase.getRemotes(manufacturer, deviceClass).get(0);
+        assertEquals(instance.getUrl(manufacturer, deviceClass, remoteName.toUpperCase()), remoteDatabase.getUrl(manufacturer, deviceClass, remoteName));
+        assertThrows(NotFoundException.class, () -> instance.get("no such manufacturer", deviceClass, remoteName));
+        assertThrows(NotFoundException.class, () -> instance.get(manufacturer, "no such device class", remoteName));
+        assertThrows(NotFoundException.class, () -> instance.get(manufacturer, deviceClass, "no such remote"));
+    }
+}
@@ -0,0 +1,178 @@
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class BulkDownloaderNGTest {
+    private static final File LOCAL_GIRRTEST_BASEDIR = new File("src/test/girr");
+    private static final File LOCAL_FLIPPER_BASEDIR = new File("src/test/Flipper-IRDB");
+
+    private final RemoteDatabase remoteDatabase;
+
+    public BulkDownloaderNGTest() throws Exception {
+        // Point the remote links to the local files, to avoid network access.
+        RemoteDatabase scraped = new RemoteDatabase();
+        new GirrScrap(scraped).add(LOCAL_GIRRTEST_BASEDIR);
+        remoteDatabase = new RemoteDatabase();
+        for (ManufacturerDeviceClasses manufacturer : scraped)
+            for (DeviceClassRemotes deviceClass : manufacturer)
+                for (RemoteLink remoteLink : deviceClass)
+                    remoteDatabase.put(manufacturer.getName(), deviceClass.getName(), new RemoteLink(remoteLink.getKind().name(),
+                            remoteLink.getName(), "", "", "", "", new File(LOCAL_GIRRTEST_BASEDIR, remoteLink.getFile().getPath()).getPath(),
+                            remoteLink.getUrl().toString(), remoteLink.getXpath()));
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+    }
+
+    private int numberRemotes(String manufacturer) throws NotFoundException {
+        int number = 0;
+        for (String deviceClass : remoteDatabase.getDeviceTypes(null, manufacturer))
+            number += remoteDatabase.getRemotes(null, manufacturer, deviceClass).size();
+        return number;
+    }
+
+    /**
+     * Test of select method, of class BulkDownloader.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSelect() throws Exception {
+        System.out.println("select");
+        List<RemoteLink> result = BulkDownloader.select(remoteDatabase, null, "philips", null, null);
+        assertEquals(result.size(), numberRemotes("Philips"));
+        result = BulkDownloader.select(remoteDatabase, null, "Sony", "TV", Collections.singletonList("sony generic tv"));
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).getName(), "Sony Generic TV");
+        result = BulkDownloader.select(remoteDatabase, ScrapKind.irdb, "Sony", null, null);
+        assertTrue(result.isEmpty());
+    }
+
+    /**
+     * Test of newExecutor method, of class BulkDownloader.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testNewExecutor() throws Exception {
+        System.out.println("newExecutor");
+        ExecutorService executor = BulkDownloader.newExecutor(2);
+        assertEquals((int) executor.submit(() -> 42).get(), 42);
+        executor.shutdown();
+    }
+
+    /**
+     * Test of download method, of class BulkDownloader.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDownload() throws Exception {
+        System.out.println("download");
+        List<RemoteLink> remoteLinks = BulkDownloader.select(remoteDatabase, null, "Philips", null, null);
+        BulkDownloader instance = new BulkDownloader(2);
+
+        File directory = new File("output/bulk");
+        BulkDownloader.Result result = instance.download(remoteLinks, directory);
+        System.out.println(result);
+        assertEquals(result.getSucceeded(), remoteLinks.size());
+        assertEquals(result.getFailed(), 0);
+        assertTrue(result.getBytes() > 0);
+        assertTrue(new File(directory, "Philips/" + remoteLinks.get(0).getDeviceClass() + "/" + remoteLinks.get(0).getName() + BulkDownloader.GIRR_EXTENSION).length() > 0);
+
+        File zip = new File("output/bulk.zip");
+        result = instance.download(remoteLinks, zip);
+        assertEquals(result.getSucceeded(), remoteLinks.size());
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            assertEquals(zipFile.size(), remoteLinks.size());
+        }
+    }
+
+    /**
+     * Test of export method, of class BulkDownloader, from a local source tree.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testExport() throws Exception {
+        System.out.println("export");
+        RemoteDatabase scraped = new RemoteDatabase();
+        new FlipperScrap(scraped).add(LOCAL_FLIPPER_BASEDIR);
+        List<RemoteLink> remoteLinks = BulkDownloader.select(scraped, null, null, null, null);
+        BulkDownloader instance = new BulkDownloader(4);
+        instance.setSourceDirectory(LOCAL_FLIPPER_BASEDIR);
+        File zip = new File("output/export.zip");
+        Map<ExportFormat, BulkDownloader.Result> result = instance.export(remoteLinks, EnumSet.allOf(ExportFormat.class), zip);
+        assertEquals(result.size(), ExportFormat.values().length);
+        int entries = 0;
+        for (Map.Entry<ExportFormat, BulkDownloader.Result> entry : result.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            assertEquals(entry.getValue().getSucceeded() + entry.getValue().getFailed(), remoteLinks.size());
+            assertEquals(entry.getValue().getErrors().size(), entry.getValue().getFailed());
+            entries += entry.getValue().getSucceeded() + (entry.getValue().getFailed() > 0 ? 1 : 0);
+        }
+        assertEquals(result.get(ExportFormat.girr).getFailed(), 0);
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            assertEquals(zipFile.size(), entries);
+            RemoteLink remoteLink = remoteLinks.get(0);
+            assertNotNull(zipFile.getEntry("pronto/" + remoteLink.getManufacturer() + "/" + remoteLink.getDeviceClass() + "/" + remoteLink.getName() + ".txt"));
+        }
+    }
+
+    /**
+     * Test of export method, of class BulkDownloader, when the output cannot be written.
+     * No remotes are to be started after the failure.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testExport_SinkFailure() throws Exception {
+        System.out.println("export_SinkFailure");
+        RemoteDatabase scraped = new RemoteDatabase();
+        new FlipperScrap(scraped).add(LOCAL_FLIPPER_BASEDIR);
+        List<RemoteLink> remoteLinks = BulkDownloader.select(scraped, null, null, null, null);
+        BulkDownloader instance = new BulkDownloader(1);
+        instance.setSourceDirectory(LOCAL_FLIPPER_BASEDIR);
+        File directory = new File("output/blocked");
+        if (directory.isDirectory())
+            try (Stream<Path> paths = Files.walk(directory.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        assertTrue(directory.mkdirs());
+        // A file where the directory of the first manufacturer should go.
+        File blocker = new File(directory, remoteLinks.get(0).getManufacturer());
+        assertTrue(blocker.createNewFile());
+        try {
+            instance.download(remoteLinks, directory);
+            fail();
+        } catch (IOException ex) {
+        }
+        assertEquals(directory.list(), new String[] { blocker.getName() });
+    }
+}
@@ -0,0 +1,68 @@
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class ConcurrentScraperNGTest {
+    private static final File LOCAL_GIRRLIB_BASEDIR = new File("src/test/GirrLib/Girr");
+    private static final File LOCAL_GIRRTEST_BASEDIR = new File("src/test/girr");
+    private static final File LOCAL_IRDB_BASEDIR = new File("src/test/irdb/codes");
+    private static final File LOCAL_FLIPPER_BASEDIR = new File("src/test/Flipper-IRDB");
+    private static final File LOCAL_LIRC_BASEDIR = new File("src/test/lirc-remotes/remotes");
+
+    public ConcurrentScraperNGTest() {
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+    }
+
+    /**
+     * Test of scrap method, of class ConcurrentScraper.
+     * The result must be identical to the one of running the scrapers sequentially,
+     * including the renaming of duplicates.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testScrap() throws Exception {
+        System.out.println("scrap");
+        RemoteDatabase sequential = new RemoteDatabase();
+        new GirrScrap(sequential).add(LOCAL_GIRRLIB_BASEDIR);
+        new GirrScrap(sequential).add(LOCAL_GIRRTEST_BASEDIR);
+        new IrdbScrap(sequential).add(LOCAL_IRDB_BASEDIR);
+        new FlipperScrap(sequential).add(LOCAL_FLIPPER_BASEDIR);
+        new LircScrap(sequential).add(LOCAL_LIRC_BASEDIR);
+        sequential.sort();
+
+        ConcurrentScraper instance = new ConcurrentScraper();
+        instance.add(ScrapKind.girr, LOCAL_GIRRLIB_BASEDIR);
+        instance.add(ScrapKind.girr, LOCAL_GIRRTEST_BASEDIR);
+        instance.add(ScrapKind.irdb, LOCAL_IRDB_BASEDIR);
+        instance.add(ScrapKind.flipper, LOCAL_FLIPPER_BASEDIR);
+        instance.add(ScrapKind.lirc, LOCAL_LIRC_BASEDIR);
+        RemoteDatabase concurrent = new RemoteDatabase();
+        instance.scrap(concurrent);
+        concurrent.sort();
+
+        assertEquals(concurrent.numberRemotes(), sequential.numberRemotes());
+        assertEquals(ScrapTestUtils.toString(concurrent), ScrapTestUtils.toString(sequential));
+    }
+}
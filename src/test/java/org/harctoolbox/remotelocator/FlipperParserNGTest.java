@@ -6,11 +6,13 @@ package org.harctoolbox.remotelocator;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringReader;
 import java.text.ParseException;
 import org.harctoolbox.girr.Command;
 import org.harctoolbox.girr.CommandSet;
 import org.harctoolbox.girr.GirrException;
 import org.harctoolbox.ircore.IrCoreException;
+import org.harctoolbox.ircore.IrSignal;
 import org.harctoolbox.irp.IrpException;
 import org.harctoolbox.irp.NameEngine;
 import static org.testng.Assert.*;
@@ -77,4 +79,42 @@ public class FlipperParserNGTest {
         parseCheck("Blu-Ray/Pioneer/Pioneer_BDP150.ir", "Power", "Pioneer", "{D=175,F=188}");
         parseCheck("TVs/RCA/RCA_CRK50A.ir", "Power", "RCA", "{D=15,F=84}");
     }
+
+    /**
+     * Test of parse method, of class FlipperParser, with raw signals.
+     * @throws Exception
+     */
+    @Test
+    public void testParse_Raw() throws Exception {
+        System.out.println("parse_Raw");
+        File file = new File(LOCAL_FLIPPER_BASEDIR, "TVs/Philips/Philips_TV_Universal.ir");
+        CommandSet cmdSet = FlipperParser.parse(new FileReader(file));
+        IrSignal irSignal = cmdSet.getCommand("Stop").toIrSignal();
+        assertEquals(irSignal.getFrequency(), 38000.0, 0.001);
+        assertEquals(irSignal.getDutyCycle(), 0.33, 0.000001);
+        assertEquals(irSignal.getIntroLength(), 76); // 75 durations and the dummy ending gap
+        assertEquals(irSignal.getIntroSequence().get(0), 2721.0, 0.001);
+        assertEquals(irSignal.getIntroSequence().get(74), 890.0, 0.001);
+    }
+
+    /**
+     * Test of parse method, of class FlipperParser, with CRLF line endings, comments, and empty lines.
+     * @throws Exception
+     */
+    @Test
+    public void testParse_LineEndings() throws Exception {
+        System.out.println("parse_LineEndings");
+        String ir = "Filetype: IR signals file\r\nVersion: 1\r\n#\r\n# A comment\r\n"
+                + "name: Power\r\ntype: parsed\r\nprotocol: NEC\r\naddress: 04 00 00 00\r\ncommand: 08 00 00 00\r\n"
+                + "\r\n"
+                + "name: Raw\r\ntype: raw\r\nfrequency: 38000\r\nduty_cycle: 0.330000\r\ndata: 9024 4512 564 564\r\n";
+        CommandSet cmdSet = FlipperParser.parse(new StringReader(ir));
+        assertEquals(cmdSet.getCommands().size(), 2);
+        Command power = cmdSet.getCommand("Power");
+        assertEquals(power.getProtocolName(), "NEC1");
+        assertTrue(new NameEngine(power.getParameters()).equals(new NameEngine("{D=4,F=8}")));
+        IrSignal raw = cmdSet.getCommand("Raw").toIrSignal();
+        assertEquals(raw.getIntroLength(), 4);
+        assertEquals(raw.getIntroSequence().get(1), 4512.0, 0.001);
+    }
 }
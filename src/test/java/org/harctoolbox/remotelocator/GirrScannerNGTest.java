@@ -0,0 +1,68 @@
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import org.harctoolbox.girr.RemoteSet;
+import static org.harctoolbox.girr.XmlStatic.COMMANDSET_ELEMENT_NAME;
+import static org.harctoolbox.girr.XmlStatic.COMMAND_ELEMENT_NAME;
+import static org.harctoolbox.girr.XmlStatic.REMOTE_ELEMENT_NAME;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.w3c.dom.Element;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class GirrScannerNGTest {
+    private static final File LOCAL_GIRRTEST_BASEDIR = new File("src/test/girr");
+
+    public GirrScannerNGTest() {
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+    }
+
+    /**
+     * Test of scan method, of class GirrScanner.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testScan() throws Exception {
+        System.out.println("scan");
+        Element element = GirrScanner.scan(new File(LOCAL_GIRRTEST_BASEDIR, "onkyo-t-4555.girr"));
+        Element remote = (Element) element.getElementsByTagNameNS("*", REMOTE_ELEMENT_NAME).item(0);
+        assertEquals(remote.getAttribute("manufacturer"), "Onkyo");
+        assertEquals(remote.getAttribute("deviceClass"), "Tuner");
+        assertEquals(element.getElementsByTagNameNS("*", COMMANDSET_ELEMENT_NAME).getLength(), 1);
+        assertEquals(element.getElementsByTagNameNS("*", COMMAND_ELEMENT_NAME).getLength(), 1);
+        RemoteLink.Summary summary = new RemoteLink.Summary(new RemoteSet(element, "test").iterator().next());
+        RemoteLink.Summary expected = new RemoteLink.Summary(new RemoteSet(new File(LOCAL_GIRRTEST_BASEDIR, "onkyo-t-4555.girr")).iterator().next());
+        assertEquals(summary.getProtocol(), expected.getProtocol());
+        assertEquals(summary.getDevice(), expected.getDevice());
+        assertEquals(summary.getSubdevice(), expected.getSubdevice());
+    }
+
+    /**
+     * Test of scan method, of class GirrScanner, on a file using XInclude.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testScan_XInclude() throws Exception {
+        System.out.println("scan_XInclude");
+        assertNull(GirrScanner.scan(new File(LOCAL_GIRRTEST_BASEDIR, "philips_37pfl9603_all.girr")));
+    }
+}
@@ -6,6 +6,10 @@
 package org.harctoolbox.remotelocator;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import org.harctoolbox.girr.CommandSet;
 import org.harctoolbox.girr.Remote;
 import static org.testng.Assert.*;
 import org.testng.annotations.AfterClass;
@@ -19,6 +23,13 @@ public class GirrScrapNGTest {
     private static final File LOCAL_GIRRLIB_BASEDIR = new File("src/test/GirrLib/Girr");
     private static final File LOCAL_GIRRTEST_BASEDIR = new File("src/test/girr");
 
+    private static int numberOfCommands(Remote remote) {
+        int number = 0;
+        for (CommandSet commandSet : remote)
+            number += commandSet.size();
+        return number;
+    }
+
     public GirrScrapNGTest() {
     }
 
@@ -82,4 +93,34 @@ public class GirrScrapNGTest {
         assertEquals(remote.getManufacturer(), "Coolstream");
         assertEquals(remote.getDeviceClass(), "sat");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test of getRemote method, of class GirrScrap, with a reader, extracting one remote by streaming.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetRemote_Reader() throws Exception {
+        System.out.println("getRemote_Reader");
+        File file = new File(LOCAL_GIRRLIB_BASEDIR, "Philips/philips_37pfl9603_alt.girr");
+        String xpath = "remotes/remote[@name='Philips PLD9603 alternative']";
+        GirrScrap instance = new GirrScrap();
+        Remote remote;
+        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            remote = instance.getRemote(reader, file.toString(), xpath, "Philips", "tv");
+        }
+        Remote expResult;
+        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            expResult = GirrScrap.getRemoteByXpath(reader, xpath);
+        }
+        assertEquals(remote.getName(), expResult.getName());
+        assertEquals(numberOfCommands(remote), numberOfCommands(expResult));
+        assertEquals(numberOfCommands(remote), 114);
+
+        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            assertNull(instance.getRemote(reader, file.toString(), "remotes/remote[@name='nonexisting']", "Philips", "tv"));
+        }
+        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(new File(LOCAL_GIRRTEST_BASEDIR, "sony_tv.girr")), StandardCharsets.UTF_8)) {
+            assertEquals(instance.getRemote(reader, "sony_tv.girr", "/remote", "Sony", "TV").getName(), "Sony Generic TV");
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.harctoolbox.remotelocator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class HttpCacheNGTest {
+    private static final File CACHE_DIR = new File("output/httpcache");
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private HttpServer server;
+    private URL url;
+    private volatile String content;
+    private volatile String etag;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    public HttpCacheNGTest() {
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+        content = "<content version=\"1\"/>";
+        etag = "\"1\"";
+        requests.set(0);
+        downloads.set(0);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/remotelocator.xml", this::handle);
+        server.createContext("/files/", this::handleFile);
+        server.start();
+        url = new URL("http", "localhost", server.getAddress().getPort(), "/remotelocator.xml");
+        if (CACHE_DIR.isDirectory())
+            for (File file : CACHE_DIR.listFiles())
+                file.delete();
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        downloads.incrementAndGet();
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    // Serves files from src/test, with a weak ETag.
+    private void handleFile(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        File file = new File("src/test", exchange.getRequestURI().getPath().substring("/files/".length()));
+        if (!file.isFile()) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        String fileEtag = "W/\"" + file.length() + "\"";
+        if (fileEtag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        downloads.incrementAndGet();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        exchange.getResponseHeaders().set("ETag", fileEtag);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Test of get method, of class HttpCache.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGet() throws Exception {
+        System.out.println("get");
+        HttpCache instance = new HttpCache(CACHE_DIR);
+        File result = instance.get(url);
+        assertEquals(read(result), content);
+        assertEquals(requests.get(), 1);
+        assertEquals(downloads.get(), 1);
+
+        // Revalidated, but not downloaded again
+        result = instance.get(url);
+        assertEquals(read(result), content);
+        assertEquals(requests.get(), 2);
+        assertEquals(downloads.get(), 1);
+
+        // Changed on the server
+        content = "<content version=\"2\"/>";
+        etag = "\"2\"";
+        result = instance.get(new URL(url.toString()));
+        assertEquals(read(result), content);
+        assertEquals(requests.get(), 3);
+        assertEquals(downloads.get(), 2);
+
+        // A new instance uses the same files
+        HttpCache other = new HttpCache(CACHE_DIR);
+        other.setMaxAge(3600);
+        result = other.get(url);
+        assertEquals(read(result), content);
+        assertEquals(requests.get(), 3);
+    }
+
+    /**
+     * Test of get method, of class HttpCache, with the server not reachable.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetOffline() throws Exception {
+        System.out.println("getOffline");
+        HttpCache instance = new HttpCache(CACHE_DIR);
+        String expected = content;
+        instance.get(url);
+        server.stop(0);
+        assertEquals(read(instance.get(url)), expected);
+        assertThrows(IOException.class, () -> instance.get(new URL(url, "/nonexisting.xml")));
+    }
+
+    /**
+     * Test of open method, of class HttpCache.
+     * The stream stays readable when the file is evicted after opening.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testOpen() throws Exception {
+        System.out.println("open");
+        HttpCache instance = new HttpCache(CACHE_DIR);
+        String expected = content;
+        try (InputStream inputStream = instance.open(url)) {
+            instance.setMaxSize(0L);
+            assertEquals(instance.getSize(), 0L);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = inputStream.read(buffer)) > 0)
+                outputStream.write(buffer, 0, n);
+            assertEquals(outputStream.toString(StandardCharsets.UTF_8.name()), expected);
+        }
+        assertEquals(downloads.get(), 1);
+    }
+
+    /**
+     * Test of isCacheable method, of class HttpCache.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testIsCacheable() throws Exception {
+        System.out.println("isCacheable");
+        assertTrue(HttpCache.isCacheable(new URL("https://www.harctoolbox.org/downloads/remotelocator.xml")));
+        assertTrue(HttpCache.isCacheable(url));
+        assertFalse(HttpCache.isCacheable(new File("remotelocator.xml").toURI().toURL()));
+    }
+
+    /**
+     * Test of setMaxSize method, of class HttpCache.
+     * When the size is exceeded, the least recently used files are evicted.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSetMaxSize() throws Exception {
+        System.out.println("setMaxSize");
+        HttpCache instance = new HttpCache(CACHE_DIR);
+        instance.setMaxAge(3600);
+        URL first = new URL(url, "/files/girr/sony_tv.girr");
+        URL second = new URL(url, "/files/girr/marco.girr");
+        URL third = new URL(url, "/files/girr/duhow.girr");
+        long firstSize = instance.get(first).length();
+        long secondSize = instance.get(second).length();
+        assertEquals(instance.getSize(), firstSize + secondSize);
+        assertEquals(instance.getMisses(), 2);
+        assertEquals(instance.getHits(), 0);
+
+        instance.get(first); // first is now the most recently used
+        assertEquals(instance.getHits(), 1);
+        instance.setMaxSize(firstSize + secondSize);
+        long thirdSize = instance.get(third).length();
+        assertEquals(instance.getMisses(), 3);
+        assertTrue(instance.getSize() <= firstSize + secondSize);
+        assertEquals(instance.getSize(), firstSize + thirdSize);
+
+        // second was evicted, first was not
+        int requestsBefore = requests.get();
+        instance.get(first);
+        assertEquals(requests.get(), requestsBefore);
+        instance.get(second);
+        assertEquals(requests.get(), requestsBefore + 1);
+
+        // A new instance takes over the files present
+        HttpCache other = new HttpCache(CACHE_DIR);
+        assertEquals(other.getSize(), instance.getSize());
+        other.setMaxSize(0L);
+        assertEquals(other.getSize(), 0L);
+    }
+
+    /**
+     * Test of Girrable.getRemote with a cache.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetRemote() throws Exception {
+        System.out.println("getRemote");
+        HttpCache instance = new HttpCache(CACHE_DIR);
+        RemoteLink remoteLink = new RemoteLink("girr", "Sony Generic TV", "", "", "", "", "non/existing/sony_tv.girr",
+                new URL(url, "/files/girr/sony_tv.girr").toString(), "/remote");
+        DeviceClassRemotes.detached("Sony", "TV").add(remoteLink);
+        HttpCache old = Girrable.getHttpCache();
+        try {
+            Girrable.setHttpCache(instance);
+            assertEquals(remoteLink.getRemote().getName(), "Sony Generic TV");
+            assertEquals(remoteLink.getRemote().getName(), "Sony Generic TV");
+            assertEquals(instance.getMisses(), 1);
+            assertEquals(instance.getHits(), 1);
+            assertEquals(downloads.get(), 1);
+        } finally {
+            Girrable.setHttpCache(old);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.harctoolbox.remotelocator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class HttpFetcherNGTest {
+    private static final String CONTENT = "<remotes/>\n";
+
+    private static String read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int n;
+        while ((n = inputStream.read(buffer)) > 0)
+            outputStream.write(buffer, 0, n);
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger unavailable = new AtomicInteger();
+    private final AtomicInteger gzipped = new AtomicInteger();
+
+    public HttpFetcherNGTest() {
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+        clientPorts.clear();
+        unavailable.set(0);
+        gzipped.set(0);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/content", this::handle);
+        server.createContext("/unavailable", this::handleUnavailable);
+        server.createContext("/slow", this::handleSlow);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http", "localhost", server.getAddress().getPort(), path);
+    }
+
+    // Sends the content, compressed if the client accepts it.
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        byte[] bytes = CONTENT.getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            gzipped.incrementAndGet();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+                gzipOutputStream.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    // Answers 503 to the first two requests.
+    private void handleUnavailable(HttpExchange exchange) throws IOException {
+        if (unavailable.incrementAndGet() <= 2) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        handle(exchange);
+    }
+
+    private void handleSlow(HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(2000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        handle(exchange);
+    }
+
+    /**
+     * Test of openStream method, of class HttpFetcher.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testOpenStream() throws Exception {
+        System.out.println("openStream");
+        HttpFetcher instance = new HttpFetcher();
+        for (int i = 0; i < 5; i++)
+            try (InputStream inputStream = instance.openStream(url("/content"))) {
+                assertEquals(read(inputStream), CONTENT);
+            }
+        System.out.println(instance.getStatistics());
+        assertEquals(gzipped.get(), 5);
+        assertEquals(instance.getRequests(), 5);
+        assertEquals(instance.getRetries(), 0);
+        assertEquals(instance.getBytes(), 5 * CONTENT.length());
+        assertTrue(instance.getMaxLatency() > 0.0);
+        // All requests over the same, kept alive, connection.
+        assertEquals(clientPorts.size(), 1);
+    }
+
+    /**
+     * Test of get method, of class HttpFetcher, with retries.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testRetry() throws Exception {
+        System.out.println("retry");
+        HttpFetcher instance = new HttpFetcher();
+        instance.setBackoff(1L);
+        try (InputStream inputStream = instance.openStream(url("/unavailable"))) {
+            assertEquals(read(inputStream), CONTENT);
+        }
+        assertEquals(instance.getRetries(), 2);
+        assertEquals(instance.getFailures(), 0);
+
+        unavailable.set(0);
+        instance.setMaxRetries(1);
+        try (HttpFetcher.Response response = instance.get(url("/unavailable"), null)) {
+            assertEquals(response.getCode(), 503);
+        }
+        assertEquals(instance.getRetries(), 3);
+        unavailable.set(0);
+        try {
+            instance.openStream(url("/unavailable")).close();
+            fail();
+        } catch (IOException ex) {
+        }
+    }
+
+    /**
+     * Test of setReadTimeout method, of class HttpFetcher.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSetReadTimeout() throws Exception {
+        System.out.println("setReadTimeout");
+        HttpFetcher instance = new HttpFetcher();
+        instance.setReadTimeout(200);
+        instance.setMaxRetries(0);
+        try {
+            instance.openStream(url("/slow")).close();
+            fail();
+        } catch (SocketTimeoutException ex) {
+        }
+        assertEquals(instance.getFailures(), 1);
+    }
+}
@@ -1,7 +1,12 @@
 package org.harctoolbox.remotelocator;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import static org.testng.Assert.*;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
@@ -13,6 +18,8 @@ import org.testng.annotations.Test;
 public class Jp1ScrapNGTest {
 
     private static final File JP1_XML_FILE = new File("src/main/resources/jp1-master-1.17.fods");
+    private static final File JP1_SAMPLE_FILE = new File("src/test/jp1/jp1-sample.fods");
+    private static final File JP1_SAMPLE_ODS_FILE = new File("output/jp1-sample.ods");
 
     public Jp1ScrapNGTest() {
     }
@@ -60,4 +67,44 @@ public class Jp1ScrapNGTest {
         String expResult = "http://www.hifi-remote.com/forums/dload.php?action=file&file_id=14576";
         assertEquals(result, expResult);
     }
+
+    private void checkSample(RemoteDatabase remoteDatabase) throws Exception {
+        RemoteLink remoteLink = remoteDatabase.get("Oppo", "digital stbs", "Oppo Sonica DAC");
+        assertEquals(remoteLink.getUrl().toString(), "http://www.hifi-remote.com/forums/dload.php?action=file&file_id=14576");
+        assertEquals(remoteLink.getProtocol(), "NEC1");
+        assertEquals(remoteLink.getDevice(), Long.valueOf(73L));
+        assertNotNull(remoteDatabase.get("Philips", "TV", "32PFL7962"));
+        try {
+            remoteDatabase.get("Sony", "TV", "Other style");
+            fail();
+        } catch (NotFoundException ex) {
+        }
+    }
+
+    /**
+     * Test of scrap method, of class Jp1Scrap, with a flat XML spreadsheet.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testScrap_Fods() throws Exception {
+        System.out.println("scrap_Fods");
+        checkSample(Jp1Scrap.scrap(JP1_SAMPLE_FILE));
+    }
+
+    /**
+     * Test of scrap method, of class Jp1Scrap, with a zipped spreadsheet.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testScrap_Ods() throws Exception {
+        System.out.println("scrap_Ods");
+        JP1_SAMPLE_ODS_FILE.getParentFile().mkdirs();
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(JP1_SAMPLE_ODS_FILE))) {
+            zip.putNextEntry(new ZipEntry("mimetype"));
+            zip.write("application/vnd.oasis.opendocument.spreadsheet".getBytes(StandardCharsets.US_ASCII));
+            zip.putNextEntry(new ZipEntry("content.xml"));
+            Files.copy(JP1_SAMPLE_FILE.toPath(), zip);
+        }
+        checkSample(Jp1Scrap.scrap(JP1_SAMPLE_ODS_FILE));
+    }
 }
@@ -63,4 +63,42 @@ public class LircScrapNGTest {
         assertEquals(remote.getManufacturer(), "yamaha");
         assertEquals(remote.getDeviceClass(), "unknown");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test of setParallelism method, of class LircScrap.
+     * Parallel parsing must deliver the same result as the sequential one.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSetParallelism() throws Exception {
+        System.out.println("setParallelism");
+        RemoteDatabase sequential = new RemoteDatabase();
+        new LircScrap(sequential).add(LOCAL_LIRC_BASEDIR);
+        RemoteDatabase parallel = new RemoteDatabase();
+        LircScrap instance = new LircScrap(parallel);
+        instance.setParallelism(4);
+        instance.add(LOCAL_LIRC_BASEDIR);
+        assertEquals(parallel.numberRemotes(), sequential.numberRemotes());
+        assertEquals(ScrapTestUtils.toString(parallel), ScrapTestUtils.toString(sequential));
+    }
+
+    /**
+     * Test of setMetadataOnly method, of class LircScrap.
+     * The meta data scan must deliver the same result as full parsing.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSetMetadataOnly() throws Exception {
+        System.out.println("setMetadataOnly");
+        RemoteDatabase full = new RemoteDatabase();
+        new LircScrap(full).add(LOCAL_LIRC_BASEDIR);
+
+        RemoteDatabase metadata = new RemoteDatabase();
+        LircScrap instance = new LircScrap(metadata);
+        instance.setMetadataOnly(true);
+        instance.add(LOCAL_LIRC_BASEDIR);
+
+        assertEquals(metadata.numberRemotes(), full.numberRemotes());
+        assertEquals(ScrapTestUtils.toString(metadata), ScrapTestUtils.toString(full));
+    }
+}
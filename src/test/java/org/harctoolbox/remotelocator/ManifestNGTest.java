@@ -0,0 +1,130 @@
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import java.util.Collections;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class ManifestNGTest {
+    private static final File LOCAL_GIRRLIB_BASEDIR = new File("src/test/GirrLib/Girr");
+    private static final File LOCAL_IRDB_BASEDIR = new File("src/test/irdb/codes");
+    private static final File LOCAL_FLIPPER_BASEDIR = new File("src/test/Flipper-IRDB");
+    private static final File LOCAL_LIRC_BASEDIR = new File("src/test/lirc-remotes/remotes");
+    private static final File MANIFEST_FILE = new File("output/manifest.xml");
+    // philips_37pfl9603_all.girr in GirrLib; never taken from the manifest.
+    private static final int XINCLUDE_FILES = 1;
+
+    private static RemoteDatabase scrap(Manifest manifest) throws Exception {
+        RemoteDatabase remoteDatabase = new RemoteDatabase();
+        Scrapable[] scrapables = {
+            new GirrScrap(remoteDatabase),
+            new IrdbScrap(remoteDatabase),
+            new FlipperScrap(remoteDatabase),
+            new LircScrap(remoteDatabase)
+        };
+        File[] dirs = { LOCAL_GIRRLIB_BASEDIR, LOCAL_IRDB_BASEDIR, LOCAL_FLIPPER_BASEDIR, LOCAL_LIRC_BASEDIR };
+        for (int i = 0; i < scrapables.length; i++) {
+            scrapables[i].setManifest(manifest);
+            scrapables[i].add(dirs[i]);
+        }
+        remoteDatabase.sort();
+        return remoteDatabase;
+    }
+
+    public ManifestNGTest() {
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+    }
+
+    /**
+     * Test of scrapFile method, of class Manifest.
+     * A second run using the manifest of the first one must not parse any file, except for the one using XInclude,
+     * and must give the same result as a run without manifest.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testScrapFile() throws Exception {
+        System.out.println("scrapFile");
+        MANIFEST_FILE.delete();
+        String expected = ScrapTestUtils.toString(scrap(null));
+
+        Manifest first = new Manifest(MANIFEST_FILE);
+        assertEquals(ScrapTestUtils.toString(scrap(first)), expected);
+        assertEquals(first.getReused(), 0);
+        assertTrue(first.getParsed() > 0);
+        first.save();
+
+        Manifest second = new Manifest(MANIFEST_FILE);
+        assertEquals(ScrapTestUtils.toString(scrap(second)), expected);
+        assertEquals(second.getParsed(), XINCLUDE_FILES);
+        assertEquals(second.getReused(), first.getParsed() - XINCLUDE_FILES);
+    }
+
+    /**
+     * Test of save method, of class Manifest.
+     * A run with only some of the scrapers must keep the entries of the others.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSave_Subset() throws Exception {
+        System.out.println("save_Subset");
+        MANIFEST_FILE.delete();
+        Manifest full = new Manifest(MANIFEST_FILE);
+        scrap(full);
+        full.save();
+
+        Manifest subset = new Manifest(MANIFEST_FILE);
+        IrdbScrap irdbScrap = new IrdbScrap(new RemoteDatabase());
+        irdbScrap.setManifest(subset);
+        irdbScrap.add(LOCAL_IRDB_BASEDIR);
+        assertEquals(subset.getParsed(), 0);
+        subset.save();
+
+        Manifest again = new Manifest(MANIFEST_FILE);
+        scrap(again);
+        assertEquals(again.getParsed(), XINCLUDE_FILES);
+        assertEquals(again.getReused(), full.getParsed() - XINCLUDE_FILES);
+    }
+
+    /**
+     * Test of Manifest(File, Map), of class Manifest.
+     * A run with other options than the manifest was written with must parse all files.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testManifest_Options() throws Exception {
+        System.out.println("Manifest_Options");
+        MANIFEST_FILE.delete();
+        Manifest first = new Manifest(MANIFEST_FILE, Collections.singletonMap(LircScrap.METADATA_ONLY_OPTION_NAME, "false"));
+        scrap(first);
+        first.save();
+
+        Manifest same = new Manifest(MANIFEST_FILE, Collections.singletonMap(LircScrap.METADATA_ONLY_OPTION_NAME, "false"));
+        scrap(same);
+        assertEquals(same.getParsed(), XINCLUDE_FILES);
+
+        Manifest other = new Manifest(MANIFEST_FILE, Collections.singletonMap(LircScrap.METADATA_ONLY_OPTION_NAME, "true"));
+        scrap(other);
+        assertEquals(other.getReused(), 0);
+        assertEquals(other.getParsed(), first.getParsed());
+    }
+}
@@ -0,0 +1,179 @@
+package org.harctoolbox.remotelocator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.harctoolbox.girr.Remote;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class MirrorNGTest {
+    private static final File LOCAL_GIRRTEST_BASEDIR = new File("src/test/girr");
+    private static final File MIRROR_DIR = new File("output/mirror");
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null)
+            for (File f : files)
+                delete(f);
+        file.delete();
+    }
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private RemoteDatabase remoteDatabase;
+    private List<RemoteLink> remoteLinks;
+
+    public MirrorNGTest() {
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+        requests.set(0);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        delete(MIRROR_DIR);
+
+        // Remote links with relative paths, and URLs on the local server.
+        String base = "http://localhost:" + server.getAddress().getPort() + "/";
+        RemoteDatabase scraped = new RemoteDatabase();
+        new GirrScrap(scraped).add(LOCAL_GIRRTEST_BASEDIR);
+        remoteDatabase = new RemoteDatabase();
+        remoteLinks = new ArrayList<>(16);
+        for (ManufacturerDeviceClasses manufacturer : scraped)
+            for (DeviceClassRemotes deviceClass : manufacturer)
+                for (RemoteLink remoteLink : deviceClass) {
+                    String path = remoteLink.getFile().getPath();
+                    RemoteLink link = new RemoteLink(remoteLink.getKind().name(), remoteLink.getName(), "", "", "", "", path, base + path, remoteLink.getXpath());
+                    remoteDatabase.put(manufacturer.getName(), deviceClass.getName(), link);
+                    remoteLinks.add(link);
+                }
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+        server.stop(0);
+        Girrable.setMirror(null);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        File file = new File(LOCAL_GIRRTEST_BASEDIR, exchange.getRequestURI().getPath().substring(1));
+        if (!file.isFile()) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private int numberFiles() {
+        Set<String> files = new HashSet<>(remoteLinks.size());
+        remoteLinks.forEach(remoteLink -> files.add(remoteLink.getFile().getPath()));
+        return files.size();
+    }
+
+    /**
+     * Test of sync method, of class Mirror.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSync() throws Exception {
+        System.out.println("sync");
+        Mirror instance = new Mirror(MIRROR_DIR);
+        BulkDownloader.Result result = instance.sync(remoteLinks, 4);
+        System.out.println(result);
+        assertEquals(result.getSucceeded(), numberFiles());
+        assertEquals(result.getFailed(), 0);
+        assertEquals(requests.get(), numberFiles());
+        File file = new File(MIRROR_DIR, "girr/sony_tv.girr");
+        assertEquals(file.length(), new File(LOCAL_GIRRTEST_BASEDIR, "sony_tv.girr").length());
+
+        // Resume: nothing to do, as long as the files are intact; a reopened mirror knows its files.
+        instance = new Mirror(MIRROR_DIR);
+        assertEquals(instance.size(), numberFiles());
+        result = instance.sync(remoteLinks, 4);
+        assertEquals(result.getSkipped(), numberFiles());
+        assertEquals(requests.get(), numberFiles());
+
+        // Damage a file, keeping its size; it is detected by its hash, and downloaded again.
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(file.length() / 2);
+            randomAccessFile.write('!');
+        }
+        result = instance.sync(remoteLinks, 4);
+        assertEquals(result.getSucceeded(), 1);
+        assertEquals(requests.get(), numberFiles() + 1);
+    }
+
+    /**
+     * Test of lookup method, of class Mirror, through RemoteDatabase.getRemote.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testLookup() throws Exception {
+        System.out.println("lookup");
+        Mirror instance = new Mirror(MIRROR_DIR);
+        RemoteLink remoteLink = remoteDatabase.get("Sony", "TV", "Sony Generic TV");
+        assertNull(instance.lookup(remoteLink));
+        instance.sync(remoteLinks, 4);
+        assertEquals(instance.lookup(remoteLink), new File(MIRROR_DIR, "girr/sony_tv.girr"));
+
+        Girrable.setMirror(instance);
+        server.stop(0);
+        int before = requests.get();
+        Remote remote = remoteDatabase.getRemote("Sony", "TV", "Sony Generic TV");
+        assertEquals(remote.getName(), "Sony Generic TV");
+        assertEquals(requests.get(), before);
+    }
+
+    /**
+     * Test of sync and lookup methods, of class Mirror, with a path leading outside of the mirror.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSync_Outside() throws Exception {
+        System.out.println("sync_Outside");
+        String path = "../../mirror-outside.girr";
+        File outside = new File(MIRROR_DIR.getParentFile(), "mirror-outside.girr");
+        outside.delete();
+        RemoteLink link = new RemoteLink("girr", "outside", "", "", "", "", path,
+                "http://localhost:" + server.getAddress().getPort() + "/sony_tv.girr", null);
+        Mirror instance = new Mirror(MIRROR_DIR);
+        BulkDownloader.Result result = instance.sync(Collections.singletonList(link), 1);
+        assertEquals(result.getFailed(), 1);
+        assertEquals(requests.get(), 0);
+        assertFalse(outside.exists());
+        assertNull(instance.lookup(link));
+    }
+}
@@ -0,0 +1,98 @@
+package org.harctoolbox.remotelocator;
+
+import java.io.File;
+import org.harctoolbox.girr.Remote;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class RemoteCacheNGTest {
+    private static final File LOCAL_GIRRTEST_BASEDIR = new File("src/test/girr");
+
+    private final RemoteDatabase remoteDatabase;
+
+    public RemoteCacheNGTest() throws Exception {
+        // Point the remote links to the local files, to avoid network access.
+        RemoteDatabase scraped = new RemoteDatabase();
+        new GirrScrap(scraped).add(LOCAL_GIRRTEST_BASEDIR);
+        remoteDatabase = new RemoteDatabase();
+        for (ManufacturerDeviceClasses manufacturer : scraped)
+            for (DeviceClassRemotes deviceClass : manufacturer)
+                for (RemoteLink remoteLink : deviceClass)
+                    remoteDatabase.put(manufacturer.getName(), deviceClass.getName(), new RemoteLink(remoteLink.getKind().name(),
+                            remoteLink.getName(), "", "", "", "", new File(LOCAL_GIRRTEST_BASEDIR, remoteLink.getFile().getPath()).getPath(),
+                            remoteLink.getUrl().toString(), remoteLink.getXpath()));
+    }
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+        RemoteLink.setRemoteCache(null);
+    }
+
+    /**
+     * Test of get method, of class RemoteCache, through RemoteDatabase.getRemote.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGet() throws Exception {
+        System.out.println("get");
+        RemoteCache instance = new RemoteCache(2);
+        RemoteLink.setRemoteCache(instance);
+        Remote first = remoteDatabase.getRemote("Sony", "TV", "Sony Generic TV");
+        assertNotNull(first);
+        assertEquals(instance.getMisses(), 1);
+        assertSame(remoteDatabase.getRemote("sony", "tv", "sony generic tv"), first);
+        assertEquals(instance.getHits(), 1);
+        assertEquals(instance.size(), 1);
+
+        // Fill the cache beyond its size; Sony is the least recently used and gets evicted.
+        int number = 0;
+        for (ManufacturerDeviceClasses manufacturer : remoteDatabase)
+            for (DeviceClassRemotes deviceClass : manufacturer)
+                for (RemoteLink remoteLink : deviceClass)
+                    if (!manufacturer.getName().equals("Sony") && number < 2 && remoteLink.getRemote() != null)
+                        number++;
+        assertEquals(number, 2);
+        assertEquals(instance.size(), 2);
+        assertTrue(instance.getEvictions() >= 1);
+        int misses = instance.getMisses();
+        Remote again = remoteDatabase.getRemote("Sony", "TV", "Sony Generic TV");
+        assertNotSame(again, first);
+        assertEquals(instance.getMisses(), misses + 1);
+    }
+
+    /**
+     * Test of get method, of class RemoteCache, with soft references.
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetSoft() throws Exception {
+        System.out.println("getSoft");
+        RemoteCache instance = new RemoteCache(10, true);
+        assertTrue(instance.isSoftReferences());
+        RemoteLink.setRemoteCache(instance);
+        Remote first = remoteDatabase.getRemote("Sony", "TV", "Sony Generic TV");
+        // first is strongly reachable, so it cannot have been cleared
+        assertSame(remoteDatabase.getRemote("Sony", "TV", "Sony Generic TV"), first);
+        assertEquals(instance.getHits(), 1);
+        assertEquals(instance.getMisses(), 1);
+        instance.clear();
+        assertEquals(instance.size(), 0);
+    }
+}
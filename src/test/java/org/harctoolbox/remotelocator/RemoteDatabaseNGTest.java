@@ -5,12 +5,16 @@
 
 package org.harctoolbox.remotelocator;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.Iterator;
 import java.util.List;
+import javax.xml.validation.Schema;
 import static org.harctoolbox.remotelocator.RemoteDatabase.UNKNOWN;
 import org.harctoolbox.xml.XmlUtils;
+import static org.harctoolbox.xml.XmlUtils.DEFAULT_CHARSETNAME;
 import static org.testng.Assert.*;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
@@ -170,4 +174,94 @@ public class RemoteDatabaseNGTest {
         db.sort();
         db.print("output/aller.xml");
     }
+
+    /**
+     * Test of write method, of class RemoteDatabase.
+     * The streaming writer must produce the same bytes as the DOM path.
+     * @throws Exception
+     */
+    @Test
+    public void testWrite() throws Exception {
+        System.out.println("write");
+        String creatingUser = "nobody";
+        String createdDate = "1970-01-01_00:00:00";
+
+        Document document = XmlUtils.newDocument(true);
+        document.appendChild(document.createComment(RemoteDatabase.REMOTELOCATOR_COMMENT));
+        document.appendChild(remoteDatabase.toElement(document, null, creatingUser, createdDate));
+        ByteArrayOutputStream dom = new ByteArrayOutputStream();
+        XmlUtils.printDOM(dom, document, DEFAULT_CHARSETNAME, null);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        remoteDatabase.write(stream, null, creatingUser, createdDate);
+        assertEquals(stream.toString(DEFAULT_CHARSETNAME), dom.toString(DEFAULT_CHARSETNAME));
+    }
+
+    /**
+     * Test of RemoteDatabase(File), using the pull parser, compared to RemoteDatabase(Document).
+     * @throws Exception
+     */
+    @Test
+    public void testRemoteDatabase_Stax() throws Exception {
+        System.out.println("RemoteDatabase_Stax");
+        File file = new File("output/all.xml");
+        remoteDatabase.print(file);
+
+        Document document = XmlUtils.openXmlFile(file, (Schema) null, true, false);
+        RemoteDatabase dom = new RemoteDatabase(document);
+        RemoteDatabase stax = new RemoteDatabase(file);
+        assertEquals(stax.numberRemotes(), dom.numberRemotes());
+        ByteArrayOutputStream domOutput = new ByteArrayOutputStream();
+        dom.write(domOutput, null, "nobody", "1970-01-01_00:00:00");
+        ByteArrayOutputStream staxOutput = new ByteArrayOutputStream();
+        stax.write(staxOutput, null, "nobody", "1970-01-01_00:00:00");
+        assertEquals(staxOutput.toString(DEFAULT_CHARSETNAME), domOutput.toString(DEFAULT_CHARSETNAME));
+    }
+
+    /**
+     * Test of RemoteDatabase(Reader) with wrong format version.
+     * @throws Exception
+     */
+    @Test
+    public void testRemoteDatabase_FormatVersion() throws Exception {
+        System.out.println("RemoteDatabase_FormatVersion");
+        String xml = "<rl:remotedatabase xmlns:rl=\"" + RemoteDatabase.REMOTELOCATOR_NAMESPACE + "\" formatVersion=\"0.9\"/>";
+        try {
+            new RemoteDatabase(new StringReader(xml));
+            fail();
+        } catch (RemoteDatabase.FormatVersionMismatchException ex) {
+        }
+    }
+
+    /**
+     * Test of printSharded method, of class RemoteDatabase, and of reading the result.
+     * @throws Exception
+     */
+    @Test
+    public void testPrintSharded() throws Exception {
+        System.out.println("printSharded");
+        int buckets = 8;
+        File file = new File("output/sharded.xml");
+        remoteDatabase.printSharded(file, buckets);
+        RemoteDatabase sharded = new RemoteDatabase(file);
+        assertEquals(sharded.getManufacturers(), remoteDatabase.getManufacturers());
+        // The kinds are given in the root file, so no shard is read for this either
+        for (ScrapKind kind : ScrapKind.values())
+            assertEquals(sharded.getManufacturers(kind), remoteDatabase.getManufacturers(kind));
+        for (ManufacturerDeviceClasses manufacturer : sharded)
+            assertTrue(manufacturer.isStub());
+
+        // Only the shard containing Philips is read
+        List<String> remotes = sharded.getRemotes("Philips", "tv");
+        assertEquals(remotes, remoteDatabase.getRemotes("Philips", "tv"));
+        int philipsBucket = Shard.bucket("Philips", buckets);
+        for (ManufacturerDeviceClasses manufacturer : sharded)
+            assertEquals(manufacturer.isStub(), Shard.bucket(manufacturer.getName(), buckets) != philipsBucket);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        remoteDatabase.write(expected, null, "nobody", "1970-01-01_00:00:00");
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        sharded.write(actual, null, "nobody", "1970-01-01_00:00:00");
+        assertEquals(actual.toString(DEFAULT_CHARSETNAME), expected.toString(DEFAULT_CHARSETNAME));
+    }
 }
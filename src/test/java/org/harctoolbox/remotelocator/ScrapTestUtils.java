@@ -0,0 +1,30 @@
+package org.harctoolbox.remotelocator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import org.harctoolbox.xml.XmlUtils;
+import static org.harctoolbox.xml.XmlUtils.DEFAULT_CHARSETNAME;
+import org.w3c.dom.Document;
+
+/**
+ * Helpers shared by the tests.
+ */
+final class ScrapTestUtils {
+
+    /**
+     * Serializes the data base with fixed creating user and date, for comparing the results of different scraping methods.
+     * @param remoteDatabase
+     * @return XML text
+     * @throws UnsupportedEncodingException
+     */
+    static String toString(RemoteDatabase remoteDatabase) throws UnsupportedEncodingException {
+        Document document = XmlUtils.newDocument(true);
+        document.appendChild(remoteDatabase.toElement(document, null, "nobody", "1970-01-01_00:00:00"));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XmlUtils.printDOM(outputStream, document, DEFAULT_CHARSETNAME, null);
+        return outputStream.toString(DEFAULT_CHARSETNAME);
+    }
+
+    private ScrapTestUtils() {
+    }
+}